@@ -0,0 +1,47 @@
+import javax.swing.table.AbstractTableModel;
+
+// Read-only table over the archive file. Cells are read from the mapped records only
+// when JTable paints them, so scrolling through millions of rows keeps the heap flat.
+class ArchiveTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS = {"Booking ID", "Name", "Phone", "Room", "Check-in", "Check-out", "Nights", "Total Cost"};
+
+    private final ReservationArchive archive;
+    private final int rows;
+
+    ArchiveTableModel(ReservationArchive archive) {
+        this.archive = archive;
+        this.rows = (int) Math.min(archive.size(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0: return "BK" + archive.bookingId(row);
+            case 1: return archive.customerName(row);
+            case 2: return archive.customerPhone(row);
+            case 3: return archive.roomNumber(row) + " (" + archive.roomType(row) + ")";
+            case 4: return archive.checkIn(row);
+            case 5: return archive.checkOut(row);
+            case 6: return archive.nights(row);
+            case 7: return Money.format(archive.costCents(row));
+            default: return null;
+        }
+    }
+}
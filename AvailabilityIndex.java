@@ -0,0 +1,307 @@
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Occupied-night bitmaps for every room.
+// Each room gets a dense slot number; for every night in the horizon there is a bitmap
+// with one bit per slot. "Which rooms of type X are free from D1 to D2" is then the type's
+// bitmap minus the nights' bitmaps, which is a few word-wide operations per night.
+// Date ranges are half-open: [checkIn, checkOut), so a checkout day can be sold again.
+//
+// Slots live in fixed-size chunks that never move once allocated, and bits are flipped
+// with CAS, so bookings on different rooms can update the index concurrently. Callers
+// must not book the same room from two threads at once (BookingService locks per room).
+//
+// Nights are stored round-robin by date (slotOf), so the horizon moves forward a day at a
+// time: advanceTo clears the nights that have passed and reuses them for the new days at
+// the far end, and a process that stays up keeps selling a full horizon ahead.
+class AvailabilityIndex {
+    // How far ahead rooms can be sold
+    static final int HORIZON_DAYS = 730;
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_ROOMS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_WORDS = CHUNK_ROOMS / 64;
+
+    // A block of slots: one word per night per 64 rooms, the type bitmaps and the room in each slot
+    private static final class Chunk {
+        final AtomicLongArray nights = new AtomicLongArray(HORIZON_DAYS * CHUNK_WORDS);
+        final Map<String, AtomicLongArray> types = new ConcurrentHashMap<>();
+        final AtomicReferenceArray<Room> rooms = new AtomicReferenceArray<>(CHUNK_ROOMS);
+    }
+
+    // First day of the horizon; only moves forward, see advanceTo
+    private volatile long baseDay;
+    private volatile Chunk[] chunks = new Chunk[0];
+    // Number of rooms booked on each night (by slot), so occupancy for a date is a single lookup
+    private final AtomicIntegerArray roomsOccupied = new AtomicIntegerArray(HORIZON_DAYS);
+
+    // Slot allocation happens under this lock; bookings never take it
+    private final Object structureLock = new Object();
+    // Slots of removed rooms, reused by the next room added
+    private final BitSet releasedSlots = new BitSet();
+    private int slotCount;
+
+    AvailabilityIndex() {
+        this(LocalDate.now());
+    }
+
+    AvailabilityIndex(LocalDate firstDay) {
+        this.baseDay = firstDay.toEpochDay();
+    }
+
+    LocalDate firstDay() {
+        return LocalDate.ofEpochDay(baseDay);
+    }
+
+    LocalDate lastDay() {
+        return LocalDate.ofEpochDay(baseDay + HORIZON_DAYS);
+    }
+
+    // True when [from, to) lies inside the bookable window
+    boolean inHorizon(LocalDate from, LocalDate to) {
+        long base = baseDay;
+        return from.toEpochDay() >= base && to.toEpochDay() <= base + HORIZON_DAYS;
+    }
+
+    // Where a night is kept while it is inside the horizon
+    static int slotOf(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) HORIZON_DAYS);
+    }
+
+    // Moves the first day of the horizon forward to the given day: the nights that drop out
+    // are cleared and become the new days at the far end. Bookings must not change meanwhile
+    // (BookingService holds every room lock); a query running at the same time may see the
+    // passing days as free.
+    void advanceTo(LocalDate day) {
+        synchronized (structureLock) {
+            long base = baseDay;
+            long target = day.toEpochDay();
+            if (target <= base) {
+                return;
+            }
+            Chunk[] current = chunks;
+            for (long passed = base; passed < target && passed < base + HORIZON_DAYS; passed++) {
+                int slot = slotOf(passed);
+                for (Chunk chunk : current) {
+                    for (int word = 0; word < CHUNK_WORDS; word++) {
+                        chunk.nights.set(slot * CHUNK_WORDS + word, 0);
+                    }
+                }
+                roomsOccupied.set(slot, 0);
+            }
+            baseDay = target;
+        }
+    }
+
+    void addRoom(Room room) {
+        synchronized (structureLock) {
+            if (room.slot >= 0) {
+                return;
+            }
+            int slot = releasedSlots.nextSetBit(0);
+            if (slot == -1) {
+                slot = slotCount++;
+            } else {
+                releasedSlots.clear(slot);
+            }
+            Chunk[] current = chunks;
+            int chunkIndex = slot >>> CHUNK_SHIFT;
+            if (chunkIndex >= current.length) {
+                Chunk[] grown = Arrays.copyOf(current, chunkIndex + 1);
+                grown[chunkIndex] = new Chunk();
+                chunks = current = grown;
+            }
+            Chunk chunk = current[chunkIndex];
+            int offset = slot & (CHUNK_ROOMS - 1);
+            chunk.rooms.set(offset, room);
+            setBit(chunk.types.computeIfAbsent(room.type, t -> new AtomicLongArray(CHUNK_WORDS)), offset >>> 6, 1L << offset);
+            room.slot = slot;
+        }
+    }
+
+    void removeRoom(Room room) {
+        synchronized (structureLock) {
+            int slot = room.slot;
+            if (slot < 0) {
+                return;
+            }
+            Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+            int offset = slot & (CHUNK_ROOMS - 1);
+            int word = offset >>> 6;
+            long bit = 1L << offset;
+            for (int night = 0; night < HORIZON_DAYS; night++) {
+                if (clearBit(chunk.nights, night * CHUNK_WORDS + word, bit)) {
+                    roomsOccupied.decrementAndGet(night);
+                }
+            }
+            AtomicLongArray sameType = chunk.types.get(room.type);
+            if (sameType != null) {
+                clearBit(sameType, word, bit);
+            }
+            chunk.rooms.set(offset, null);
+            releasedSlots.set(slot);
+            room.slot = -1;
+        }
+    }
+
+    boolean isFree(Room room, LocalDate from, LocalDate to) {
+        int slot = room.slot;
+        if (slot < 0) {
+            return false;
+        }
+        Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        int offset = slot & (CHUNK_ROOMS - 1);
+        int word = offset >>> 6;
+        long bit = 1L << offset;
+        for (int night : nights(from, to)) {
+            if ((chunk.nights.get(night * CHUNK_WORDS + word) & bit) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isFreeOn(Room room, LocalDate day) {
+        return isFree(room, day, day.plusDays(1));
+    }
+
+    // True when the room has any booked night from 'from' onwards
+    boolean hasBookingsFrom(Room room, LocalDate from) {
+        return room.slot >= 0 && !isFree(room, from, lastDay());
+    }
+
+    void occupy(Room room, LocalDate from, LocalDate to) {
+        int slot = room.slot;
+        if (slot < 0) {
+            return;
+        }
+        Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        int offset = slot & (CHUNK_ROOMS - 1);
+        int word = offset >>> 6;
+        long bit = 1L << offset;
+        for (int night : nights(from, to)) {
+            if (setBit(chunk.nights, night * CHUNK_WORDS + word, bit)) {
+                roomsOccupied.incrementAndGet(night);
+            }
+        }
+    }
+
+    void release(Room room, LocalDate from, LocalDate to) {
+        int slot = room.slot;
+        if (slot < 0) {
+            return;
+        }
+        Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        int offset = slot & (CHUNK_ROOMS - 1);
+        int word = offset >>> 6;
+        long bit = 1L << offset;
+        for (int night : nights(from, to)) {
+            if (clearBit(chunk.nights, night * CHUNK_WORDS + word, bit)) {
+                roomsOccupied.decrementAndGet(night);
+            }
+        }
+    }
+
+    // Rooms of the given type that are free for every night in [from, to)
+    List<Room> freeRooms(String type, LocalDate from, LocalDate to) {
+        List<Room> free = new ArrayList<>();
+        int[] nights = nights(from, to);
+        for (Chunk chunk : chunks) {
+            AtomicLongArray sameType = chunk.types.get(type);
+            if (sameType == null) {
+                continue;
+            }
+            for (int word = 0; word < CHUNK_WORDS; word++) {
+                long bits = freeWord(chunk, sameType, word, nights);
+                while (bits != 0) {
+                    int offset = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    Room room = chunk.rooms.get(offset);
+                    if (room != null) {
+                        free.add(room);
+                    }
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return free;
+    }
+
+    // Bitmap by slot of the rooms free for every night in [from, to), of one type or of any
+    // type when type is null
+    long[] freeSlots(String type, LocalDate from, LocalDate to) {
+        Chunk[] current = chunks;
+        long[] free = new long[current.length * CHUNK_WORDS];
+        int[] nights = nights(from, to);
+        for (int c = 0; c < current.length; c++) {
+            Chunk chunk = current[c];
+            for (Map.Entry<String, AtomicLongArray> entry : chunk.types.entrySet()) {
+                if (type != null && !type.equals(entry.getKey())) {
+                    continue;
+                }
+                for (int word = 0; word < CHUNK_WORDS; word++) {
+                    free[c * CHUNK_WORDS + word] |= freeWord(chunk, entry.getValue(), word, nights);
+                }
+            }
+        }
+        return free;
+    }
+
+    int countFree(String type, LocalDate from, LocalDate to) {
+        int count = 0;
+        int[] nights = nights(from, to);
+        for (Chunk chunk : chunks) {
+            AtomicLongArray sameType = chunk.types.get(type);
+            if (sameType == null) {
+                continue;
+            }
+            for (int word = 0; word < CHUNK_WORDS; word++) {
+                count += Long.bitCount(freeWord(chunk, sameType, word, nights));
+            }
+        }
+        return count;
+    }
+
+    int occupiedCount(LocalDate day) {
+        long base = baseDay;
+        long epochDay = day.toEpochDay();
+        if (epochDay < base || epochDay >= base + HORIZON_DAYS) {
+            return 0;
+        }
+        return roomsOccupied.get(slotOf(epochDay));
+    }
+
+    // Rooms of one type in one 64-slot word that are free on every one of the nights
+    private static long freeWord(Chunk chunk, AtomicLongArray sameType, int word, int[] nights) {
+        long bits = sameType.get(word);
+        for (int i = 0; i < nights.length && bits != 0; i++) {
+            bits &= ~chunk.nights.get(nights[i] * CHUNK_WORDS + word);
+        }
+        return bits;
+    }
+
+    // Returns true if the bit was not already set
+    private static boolean setBit(AtomicLongArray words, int index, long bit) {
+        return (words.getAndAccumulate(index, bit, (a, b) -> a | b) & bit) == 0;
+    }
+
+    // Returns true if the bit was set before
+    private static boolean clearBit(AtomicLongArray words, int index, long bit) {
+        return (words.getAndAccumulate(index, ~bit, (a, b) -> a & b) & bit) != 0;
+    }
+
+    // Slots of the nights in [from, to) that lie inside the horizon
+    private int[] nights(LocalDate from, LocalDate to) {
+        long base = baseDay;
+        long first = Math.max(from.toEpochDay(), base);
+        long end = Math.min(to.toEpochDay(), base + HORIZON_DAYS);
+        int[] nights = new int[(int) Math.max(0, end - first)];
+        for (int i = 0; i < nights.length; i++) {
+            nights[i] = slotOf(first + i);
+        }
+        return nights;
+    }
+}
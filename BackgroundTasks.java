@@ -0,0 +1,132 @@
+import java.awt.Component;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+// Runs booking, lookup and report work on a worker pool and hands results back on the
+// Event Dispatch Thread, so the window keeps responding while the work runs.
+class BackgroundTasks {
+    interface Work<T> {
+        T run() throws Exception;
+    }
+
+    interface ProgressWork<T> {
+        // progress takes 0-100
+        T run(IntConsumer progress) throws Exception;
+    }
+
+    private final ExecutorService pool;
+
+    BackgroundTasks() {
+        AtomicInteger count = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "ui-worker-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // onDone and onError run on the EDT
+    <T> void submit(Work<T> work, Consumer<T> onDone, Consumer<Exception> onError) {
+        pool.execute(new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return work.run();
+            }
+
+            @Override
+            protected void done() {
+                deliver(this, onDone, onError);
+            }
+        });
+    }
+
+    // Like submit, with a progress dialog that pops up if the work takes more than half a second
+    <T> void submitWithProgress(Component parent, String message, ProgressWork<T> work,
+                                Consumer<T> onDone, Consumer<Exception> onError) {
+        ProgressMonitor monitor = new ProgressMonitor(parent, message, null, 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        monitor.setMillisToPopup(500);
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return work.run(this::setProgress);
+            }
+
+            @Override
+            protected void done() {
+                monitor.close();
+                deliver(this, onDone, onError);
+            }
+        };
+        worker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                monitor.setProgress((Integer) event.getNewValue());
+            }
+        });
+        pool.execute(worker);
+    }
+
+    // Refresh that can be requested any number of times: while one load is running, further
+    // requests collapse into a single reload after it, so a burst of changes costs two loads at most
+    <T> Runnable coalescing(Work<T> load, Consumer<T> apply) {
+        return new Runnable() {
+            // Both only touched on the EDT
+            private boolean running;
+            private boolean again;
+
+            @Override
+            public void run() {
+                if (!SwingUtilities.isEventDispatchThread()) {
+                    SwingUtilities.invokeLater(this);
+                    return;
+                }
+                if (running) {
+                    again = true;
+                    return;
+                }
+                running = true;
+                submit(load, result -> {
+                    apply.accept(result);
+                    finished();
+                }, error -> {
+                    Log.error("Refresh failed", error);
+                    finished();
+                });
+            }
+
+            private void finished() {
+                running = false;
+                if (again) {
+                    again = false;
+                    run();
+                }
+            }
+        };
+    }
+
+    private static <T> void deliver(SwingWorker<T, ?> worker, Consumer<T> onDone, Consumer<Exception> onError) {
+        T result;
+        try {
+            result = worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                onError.accept((Exception) cause);
+            } else {
+                onError.accept(new RuntimeException(cause));
+            }
+            return;
+        }
+        onDone.accept(result);
+    }
+}
@@ -0,0 +1,923 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Headless HTTP/JSON API over the same properties the Swing UI uses. The top-level resources
+// belong to the default property ("main"); every property has the same set under
+// /properties/{propertyId}.
+//
+//   GET    /rooms                       all rooms (add ?type=&checkIn=&nights= for free rooms)
+//   GET    /rooms?sort=&status=&...     one page of a filtered listing (see roomPage)
+//   POST   /rooms                       {"roomNumber", "type", "price"}
+//   DELETE /rooms/{roomNumber}
+//   GET    /bookings                    all bookings
+//   GET    /bookings/{bookingId}
+//   POST   /bookings                    {"name", "phone", "roomNumber", "checkIn", "nights"}
+//   DELETE /bookings/{bookingId}        cancel
+//   GET    /holds                       rooms held awaiting confirmation
+//   GET    /holds/{holdId}
+//   POST   /holds                       {"name", "phone", "roomNumber", "checkIn", "nights", "ttlSeconds"}
+//   POST   /holds/{holdId}/confirm      book the held room at the held price
+//   DELETE /holds/{holdId}              release
+//   GET    /guests?q=&limit=            guests whose name words or phone start with the query
+//   GET    /guests/{guestId}            one guest with their live bookings
+//   GET    /report                      report summary
+//   GET    /report/full?format=&top=    per-type breakdown and top customers (json, csv or text)
+//   GET    /archive?offset=&limit=      page of archived bookings
+//   POST   /archive                     archive bookings that have checked out
+//   POST   /import?format=csv|json&mode=new|restore  body: rooms and bookings, one per line (see BulkTransfer)
+//   GET    /export?format=csv|json      every room and booking, streamed one per line
+//   GET    /metrics                     operation latencies, failures and gauges (Prometheus text)
+//   GET    /events?after=               change events as JSON lines, streamed as they happen
+//   GET    /pricing                     pricing rules as text, one per line (see PricingRules)
+//   PUT    /pricing                     body: the new rules, replacing all of them
+//   GET    /quote?checkIn=&nights=&type=&limit=  free rooms with the price of the stay, cheapest first
+//   GET    /properties                  every property's report summary and the group total
+//   POST   /properties                  {"propertyId"}
+//   GET    /properties/{propertyId}     report summary of one property
+//   *      /properties/{propertyId}/... any resource above, for that property
+//   GET    /search?checkIn=&nights=&type=  free rooms in every property, cheapest first
+class BookingApiServer {
+    static final int DEFAULT_PORT = 8080;
+
+    private final HotelPortfolio portfolio;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    BookingApiServer(HotelPortfolio portfolio, int port) throws IOException {
+        this.portfolio = portfolio;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/rooms", exchange -> handle(exchange, this::rooms));
+        server.createContext("/bookings", exchange -> handle(exchange, this::bookings));
+        server.createContext("/holds", exchange -> handle(exchange, this::holds));
+        server.createContext("/guests", exchange -> handle(exchange, this::guests));
+        server.createContext("/report", exchange -> handle(exchange, this::report));
+        server.createContext("/archive", exchange -> handle(exchange, this::archive));
+        server.createContext("/import", exchange -> handle(exchange, this::importRecords));
+        server.createContext("/export", exchange -> export(exchange, portfolio.defaultProperty()));
+        server.createContext("/events", exchange -> events(exchange, portfolio.defaultProperty()));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+        server.createContext("/pricing", exchange -> handle(exchange, this::pricing));
+        server.createContext("/quote", exchange -> handle(exchange, this::quote));
+        server.createContext("/properties", this::properties);
+        server.createContext("/search", exchange -> handle(exchange, this::search));
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    // One virtual thread per request when the JDK has them (21+), otherwise a cached pool
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    // Entry point for --headless: serves the API until the process is stopped
+    static void run(String[] args) throws IOException {
+        int port = Integer.parseInt(HotelReservationSystem.optionValue(args, "--port", String.valueOf(DEFAULT_PORT)));
+        HotelPortfolio portfolio = HotelReservationSystem.openPortfolio(args);
+
+        BookingApiServer api = new BookingApiServer(portfolio, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(api::stop));
+        api.start();
+        System.out.println("Hotel booking API listening on http://localhost:" + api.port()
+            + " (ready " + HotelReservationSystem.uptimeMillis() + " ms after JVM start)");
+        if (Arrays.asList(args).contains("--exit-after-startup")) {
+            System.exit(0);
+        }
+    }
+
+    // ROUTES
+    private Response rooms(HttpExchange exchange, BookingService service, String id) throws BookingException {
+        String method = exchange.getRequestMethod();
+        if (id == null && method.equals("GET")) {
+            Map<String, String> query = query(exchange);
+            Collection<Room> rooms;
+            if (query.containsKey("sort") || query.containsKey("status") || query.containsKey("minPrice")
+                    || query.containsKey("maxPrice") || query.containsKey("limit")) {
+                rooms = roomPage(service, query);
+            } else if (query.containsKey("checkIn")) {
+                LocalDate checkIn = date(query.get("checkIn"));
+                int nights = stayNights(service, query, checkIn);
+                String type = query.get("type");
+                rooms = new ArrayList<>();
+                for (String t : service.repository().roomTypes()) {
+                    if (type == null || type.equals(t)) {
+                        rooms.addAll(service.repository().freeRooms(t, checkIn, checkIn.plusDays(nights)));
+                    }
+                }
+            } else if (query.containsKey("type")) {
+                rooms = service.repository().roomsOfType(query.get("type"));
+            } else {
+                rooms = service.repository().rooms();
+            }
+            StringBuilder json = new StringBuilder("[");
+            LocalDate today = service.today();
+            for (Room room : rooms) {
+                if (json.length() > 1) json.append(',');
+                appendRoom(json, service, room, today);
+            }
+            return new Response(200, json.append(']').toString());
+        }
+        if (id == null && method.equals("POST")) {
+            Map<String, String> body = body(exchange);
+            String price = body.get("price");
+            Room room = service.addRoom(body.get("roomNumber"), body.get("type"),
+                price == null ? 0 : money(price, "price"));
+            StringBuilder json = new StringBuilder();
+            appendRoom(json, service, room, service.today());
+            return new Response(201, json.toString());
+        }
+        if (id != null && method.equals("DELETE")) {
+            Room room = service.removeRoom(id);
+            StringBuilder json = new StringBuilder();
+            appendRoom(json, service, room, service.today());
+            return new Response(200, json.toString());
+        }
+        return Response.methodNotAllowed();
+    }
+
+    // ?type=&minPrice=&maxPrice=&status=free|booked&checkIn=&nights=&sort=number|price|-price|type&after=&limit=
+    // Status is for the stay (tonight by default); pass the last room number of a page as after
+    // to get the next one
+    private static List<Room> roomPage(BookingService service, Map<String, String> query) throws BookingException {
+        LocalDate from = query.containsKey("checkIn") ? date(query.get("checkIn")) : service.today();
+        int nights = stayNights(service, query, from);
+        RoomCatalog.Status status;
+        switch (query.getOrDefault("status", "any")) {
+            case "any": status = RoomCatalog.Status.ANY; break;
+            case "free": status = RoomCatalog.Status.FREE; break;
+            case "booked": status = RoomCatalog.Status.BOOKED; break;
+            default: throw new IllegalArgumentException("status must be any, free or booked!");
+        }
+        RoomCatalog.Sort sort;
+        switch (query.getOrDefault("sort", "number")) {
+            case "number": sort = RoomCatalog.Sort.NUMBER; break;
+            case "price": sort = RoomCatalog.Sort.PRICE; break;
+            case "-price": sort = RoomCatalog.Sort.PRICE_DESC; break;
+            case "type": sort = RoomCatalog.Sort.TYPE; break;
+            default: throw new IllegalArgumentException("sort must be number, price, -price or type!");
+        }
+        RoomCatalog.Query filter = new RoomCatalog.Query(query.get("type"),
+            query.containsKey("minPrice") ? money(query.get("minPrice"), "minPrice") : 0,
+            query.containsKey("maxPrice") ? money(query.get("maxPrice"), "maxPrice") : Long.MAX_VALUE,
+            status, from, from.plusDays(nights), sort);
+        Room after = null;
+        if (query.containsKey("after")) {
+            after = service.repository().findRoom(query.get("after"));
+            if (after == null) {
+                throw new BookingException(BookingException.Reason.NOT_FOUND, "Error", "Room not found!");
+            }
+        }
+        int limit = query.containsKey("limit") ? integer(query.get("limit"), "limit") : 100;
+        return service.repository().queryRooms(filter, after, Math.max(0, Math.min(limit, 1000)));
+    }
+
+    private Response bookings(HttpExchange exchange, BookingService service, String id) throws BookingException {
+        String method = exchange.getRequestMethod();
+        if (id == null && method.equals("GET")) {
+            StringBuilder json = new StringBuilder("[");
+            for (Reservation res : service.repository().reservations()) {
+                if (json.length() > 1) json.append(',');
+                appendReservation(json, res);
+            }
+            return new Response(200, json.append(']').toString());
+        }
+        if (id != null && method.equals("GET")) {
+            Reservation res = service.repository().findReservation(id);
+            if (res == null) {
+                throw new BookingException(BookingException.Reason.NOT_FOUND, "Error", "Booking not found!");
+            }
+            StringBuilder json = new StringBuilder();
+            appendReservation(json, res);
+            return new Response(200, json.toString());
+        }
+        if (id == null && method.equals("POST")) {
+            Map<String, String> body = body(exchange);
+            String checkIn = body.get("checkIn");
+            String nights = body.get("nights");
+            Reservation res = service.book(body.get("name"), body.get("phone"), body.get("roomNumber"),
+                checkIn == null ? null : date(checkIn),
+                nights == null ? 0 : integer(nights, "nights"));
+            StringBuilder json = new StringBuilder();
+            appendReservation(json, res);
+            return new Response(201, json.toString());
+        }
+        if (id != null && method.equals("DELETE")) {
+            Reservation res = service.cancel(id);
+            StringBuilder json = new StringBuilder();
+            appendReservation(json, res);
+            return new Response(200, json.toString());
+        }
+        return Response.methodNotAllowed();
+    }
+
+    // Holds run out after ttlSeconds (15 minutes by default); the id may end in /confirm
+    private Response holds(HttpExchange exchange, BookingService service, String id) throws BookingException {
+        String method = exchange.getRequestMethod();
+        if (id == null && method.equals("GET")) {
+            StringBuilder json = new StringBuilder("[");
+            for (Hold hold : service.holds()) {
+                if (json.length() > 1) json.append(',');
+                appendHold(json, hold);
+            }
+            return new Response(200, json.append(']').toString());
+        }
+        if (id == null && method.equals("POST")) {
+            Map<String, String> body = body(exchange);
+            String checkIn = body.get("checkIn");
+            String nights = body.get("nights");
+            String ttl = body.get("ttlSeconds");
+            Hold hold = service.hold(body.get("name"), body.get("phone"), body.get("roomNumber"),
+                checkIn == null ? null : date(checkIn),
+                nights == null ? 0 : integer(nights, "nights"),
+                TimeUnit.SECONDS.toMillis(ttl == null ? 15 * 60 : integer(ttl, "ttlSeconds")));
+            StringBuilder json = new StringBuilder();
+            appendHold(json, hold);
+            return new Response(201, json.toString());
+        }
+        if (id != null && id.endsWith("/confirm") && method.equals("POST")) {
+            Reservation res = service.confirmHold(id.substring(0, id.length() - "/confirm".length()));
+            StringBuilder json = new StringBuilder();
+            appendReservation(json, res);
+            return new Response(201, json.toString());
+        }
+        if (id != null && method.equals("GET")) {
+            Hold hold = service.findHold(id);
+            if (hold == null) {
+                throw new BookingException(BookingException.Reason.NOT_FOUND, "Hold Not Found", "This hold has expired or does not exist!");
+            }
+            StringBuilder json = new StringBuilder();
+            appendHold(json, hold);
+            return new Response(200, json.toString());
+        }
+        if (id != null && method.equals("DELETE")) {
+            StringBuilder json = new StringBuilder();
+            appendHold(json, service.releaseHold(id));
+            return new Response(200, json.toString());
+        }
+        return Response.methodNotAllowed();
+    }
+
+    private Response guests(HttpExchange exchange, BookingService service, String id) throws BookingException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return Response.methodNotAllowed();
+        }
+        GuestDirectory directory = service.repository().guests();
+        if (id == null) {
+            Map<String, String> query = query(exchange);
+            int limit = query.containsKey("limit") ? integer(query.get("limit"), "limit") : 20;
+            StringBuilder json = new StringBuilder("[");
+            for (Guest guest : directory.search(query.getOrDefault("q", ""), Math.max(0, Math.min(limit, 1000)))) {
+                if (json.length() > 1) json.append(',');
+                appendGuest(json, guest);
+                json.append('}');
+            }
+            return new Response(200, json.append(']').toString());
+        }
+        Guest guest = directory.guest(integer(id, "guest ID"));
+        if (guest == null) {
+            throw new BookingException(BookingException.Reason.NOT_FOUND, "Error", "Guest not found!");
+        }
+        StringBuilder json = new StringBuilder();
+        appendGuest(json, guest);
+        json.append(",\"reservations\":[");
+        boolean first = true;
+        for (Reservation res : service.repository().reservationsOf(guest)) {
+            if (!first) json.append(',');
+            first = false;
+            appendReservation(json, res);
+        }
+        return new Response(200, json.append("]}").toString());
+    }
+
+    private Response report(HttpExchange exchange, BookingService service, String id) {
+        if (!exchange.getRequestMethod().equals("GET") || (id != null && !id.equals("full"))) {
+            return Response.methodNotAllowed();
+        }
+        if (id != null) {
+            return fullReport(exchange, service);
+        }
+        return new Response(200, summaryJson(service.summary()));
+    }
+
+    private static String summaryJson(ReportSummary summary) {
+        return "{\"totalRooms\":" + summary.totalRooms
+            + ",\"availableTonight\":" + summary.availableTonight()
+            + ",\"bookedTonight\":" + summary.bookedTonight
+            + ",\"totalBookings\":" + summary.totalBookings
+            + ",\"totalRevenue\":" + Money.plain(summary.totalRevenueCents)
+            + ",\"archivedBookings\":" + summary.archivedBookings
+            + ",\"archivedRevenue\":" + Money.plain(summary.archivedRevenueCents)
+            + ",\"byType\":" + typeSummariesJson(summary.byType) + "}";
+    }
+
+    private Response fullReport(HttpExchange exchange, BookingService service) {
+        Map<String, String> query = query(exchange);
+        String format = query.getOrDefault("format", "json").toLowerCase();
+        ReportEngine.Format outputFormat = format.equals("csv") ? ReportEngine.Format.CSV
+            : format.equals("text") ? ReportEngine.Format.TEXT : ReportEngine.Format.JSON;
+        int top = query.containsKey("top") ? integer(query.get("top"), "top") : ReportEngine.DEFAULT_TOP;
+        ReportEngine.Result result = service.fullReport(Math.max(0, Math.min(top, 1000)));
+        StringWriter out = new StringWriter();
+        try {
+            ReportEngine.write(result, outputFormat, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String contentType = outputFormat == ReportEngine.Format.JSON ? "application/json; charset=utf-8"
+            : outputFormat == ReportEngine.Format.CSV ? "text/csv; charset=utf-8" : "text/plain; charset=utf-8";
+        return new Response(200, out.toString(), contentType);
+    }
+
+    // Prometheus text format, for scraping
+    private Response metrics(HttpExchange exchange, BookingService service, String id) {
+        if (!exchange.getRequestMethod().equals("GET") || id != null) {
+            return Response.methodNotAllowed();
+        }
+        return new Response(200, service.metrics().prometheusText(), "text/plain; version=0.0.4; charset=utf-8");
+    }
+
+    private Response pricing(HttpExchange exchange, BookingService service, String id) throws BookingException {
+        if (id != null) {
+            return Response.methodNotAllowed();
+        }
+        String method = exchange.getRequestMethod();
+        if (method.equals("PUT")) {
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    lines.add(line);
+                }
+                service.updatePricing(lines);
+            } catch (IOException e) {
+                return Response.error(500, "Error", "Could not save the pricing rules: " + e.getMessage());
+            }
+        } else if (!method.equals("GET")) {
+            return Response.methodNotAllowed();
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : service.pricingRules()) {
+            text.append(line).append('\n');
+        }
+        return new Response(200, text.toString(), "text/plain; charset=utf-8");
+    }
+
+    // Every free room (or the first limit by base price) priced in one bulk quote
+    private Response quote(HttpExchange exchange, BookingService service, String id) throws BookingException {
+        if (id != null || !exchange.getRequestMethod().equals("GET")) {
+            return Response.methodNotAllowed();
+        }
+        Map<String, String> query = query(exchange);
+        LocalDate checkIn = query.containsKey("checkIn") ? date(query.get("checkIn")) : service.today();
+        int nights = stayNights(service, query, checkIn);
+        int limit = query.containsKey("limit") ? integer(query.get("limit"), "limit") : Integer.MAX_VALUE;
+        RoomCatalog.Query free = new RoomCatalog.Query(query.get("type"), 0, Long.MAX_VALUE, RoomCatalog.Status.FREE,
+            checkIn, checkIn.plusDays(nights), RoomCatalog.Sort.PRICE);
+        List<Room> rooms = service.repository().queryRooms(free, null, Math.max(0, limit));
+        long[] totals = service.repository().rates().quote(rooms, checkIn, nights);
+        Integer[] order = new Integer[rooms.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(totals[a], totals[b]));
+        StringBuilder json = new StringBuilder("[");
+        for (int i : order) {
+            if (json.length() > 1) json.append(',');
+            Room room = rooms.get(i);
+            json.append("{\"roomNumber\":");
+            Json.appendQuoted(json, room.roomNumber);
+            json.append(",\"type\":");
+            Json.appendQuoted(json, room.type);
+            json.append(",\"price\":").append(Money.plain(room.priceCents));
+            json.append(",\"total\":").append(Money.plain(totals[i])).append('}');
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    private static String typeSummariesJson(List<ReportSummary.TypeSummary> lines) {
+        StringBuilder json = new StringBuilder("[");
+        for (ReportSummary.TypeSummary line : lines) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"type\":");
+            Json.appendQuoted(json, line.type);
+            json.append(",\"rooms\":").append(line.rooms)
+                .append(",\"bookings\":").append(line.bookings)
+                .append(",\"revenue\":").append(Money.plain(line.revenueCents)).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    // The body is parsed as it arrives, so large imports are never held in memory
+    private Response importRecords(HttpExchange exchange, BookingService service, String id) {
+        if (id != null || !exchange.getRequestMethod().equals("POST")) {
+            return Response.methodNotAllowed();
+        }
+        BulkTransfer.Mode mode;
+        switch (query(exchange).getOrDefault("mode", "new")) {
+            case "new": mode = BulkTransfer.Mode.NEW_BOOKINGS; break;
+            case "restore": mode = BulkTransfer.Mode.RESTORE; break;
+            default: throw new IllegalArgumentException("mode must be new or restore!");
+        }
+        BulkTransfer.ImportResult result;
+        try (Reader in = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            result = new BulkTransfer(service).importFrom(in, bulkFormat(exchange), mode);
+        } catch (IOException e) {
+            return Response.error(400, "Invalid Input", "Could not read the import: " + e.getMessage());
+        }
+        StringBuilder json = new StringBuilder();
+        json.append("{\"roomsAdded\":").append(result.roomsAdded)
+            .append(",\"bookingsAdded\":").append(result.bookingsAdded)
+            .append(",\"rejected\":").append(result.rejected)
+            .append(",\"errors\":[");
+        for (int i = 0; i < result.errors.size(); i++) {
+            if (i > 0) json.append(',');
+            Json.appendQuoted(json, result.errors.get(i));
+        }
+        return new Response(200, json.append("]}").toString());
+    }
+
+    // Streams straight to the response with chunked encoding instead of building a Response
+    private void export(HttpExchange exchange, BookingService service) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            respond(exchange, Response.methodNotAllowed());
+            return;
+        }
+        BulkTransfer.Format format = bulkFormat(exchange);
+        exchange.getResponseHeaders().set("Content-Type", format == BulkTransfer.Format.CSV
+            ? "text/csv; charset=utf-8" : "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 16)) {
+            new BulkTransfer(service).exportTo(out, format);
+        }
+    }
+
+    // The response stays open and gets a line per event as it happens, and an empty line after
+    // 15 quiet seconds so that clients that have gone are noticed. Pass the last sequence seen
+    // as ?after= to resume. A client that reads too slowly to keep up gets {"overrun":N} and
+    // continues from the newest events; it should reload whatever it shows.
+    private void events(HttpExchange exchange, BookingService service) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            respond(exchange, Response.methodNotAllowed());
+            return;
+        }
+        String after = query(exchange).get("after");
+        EventBus.Reader reader;
+        try {
+            reader = after == null ? service.events().reader() : service.events().reader(Long.parseLong(after));
+        } catch (NumberFormatException e) {
+            respond(exchange, Response.error(400, "Invalid Input", "after must be an event sequence number!"));
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 16)) {
+            StringBuilder lines = new StringBuilder();
+            while (true) {
+                List<ChangeEvent> batch = reader.poll(1024, 15, TimeUnit.SECONDS);
+                lines.setLength(0);
+                LocalDate today = service.today();
+                for (ChangeEvent event : batch) {
+                    appendEvent(lines, service, event, today);
+                    lines.append('\n');
+                }
+                long missed = reader.takeMissed();
+                if (missed > 0) {
+                    lines.append("{\"overrun\":").append(missed).append("}\n");
+                }
+                out.append(lines.length() == 0 ? "\n" : lines);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client has gone
+        }
+    }
+
+    // ?format=json (or a JSON content type) selects JSON lines; CSV otherwise
+    private static BulkTransfer.Format bulkFormat(HttpExchange exchange) {
+        String format = query(exchange).get("format");
+        if (format == null) {
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            format = contentType != null && contentType.contains("json") ? "json" : "csv";
+        }
+        return format.equalsIgnoreCase("json") || format.equalsIgnoreCase("jsonl")
+            ? BulkTransfer.Format.JSON_LINES : BulkTransfer.Format.CSV;
+    }
+
+    private Response archive(HttpExchange exchange, BookingService service, String id) throws BookingException {
+        if (id != null) {
+            return Response.methodNotAllowed();
+        }
+        if (exchange.getRequestMethod().equals("POST")) {
+            try {
+                return new Response(200, "{\"archived\":" + service.archiveCompleted() + "}");
+            } catch (IOException e) {
+                return Response.error(500, "Error", "Could not write the archive: " + e.getMessage());
+            }
+        }
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return Response.methodNotAllowed();
+        }
+        ReservationArchive archive = service.archive();
+        if (archive == null) {
+            throw new BookingException(BookingException.Reason.NOT_FOUND, "Archive Unavailable",
+                "There is no archive when running with --in-memory.");
+        }
+        Map<String, String> query = query(exchange);
+        long offset = Math.max(0, query.containsKey("offset") ? integer(query.get("offset"), "offset") : 0);
+        int limit = query.containsKey("limit") ? integer(query.get("limit"), "limit") : 100;
+        long end = Math.min(archive.size(), offset + Math.max(0, Math.min(limit, 1000)));
+        StringBuilder json = new StringBuilder("{\"total\":").append(archive.size()).append(",\"bookings\":[");
+        for (long i = offset; i < end; i++) {
+            if (i > offset) json.append(',');
+            json.append("{\"bookingId\":\"BK").append(archive.bookingId(i)).append('"');
+            json.append(",\"name\":");
+            Json.appendQuoted(json, archive.customerName(i));
+            json.append(",\"phone\":");
+            Json.appendQuoted(json, archive.customerPhone(i));
+            json.append(",\"roomNumber\":");
+            Json.appendQuoted(json, archive.roomNumber(i));
+            json.append(",\"roomType\":");
+            Json.appendQuoted(json, archive.roomType(i));
+            json.append(",\"checkIn\":\"").append(archive.checkIn(i)).append('"');
+            json.append(",\"nights\":").append(archive.nights(i));
+            json.append(",\"totalCost\":").append(Money.plain(archive.costCents(i)));
+            json.append('}');
+        }
+        return new Response(200, json.append("]}").toString());
+    }
+
+    // PROPERTIES
+    // /properties/{propertyId}/{resource}[/{id}] serves the top-level resources of any property;
+    // /properties itself lists and creates properties
+    private void properties(HttpExchange exchange) throws IOException {
+        String context = exchange.getHttpContext().getPath();
+        String path = exchange.getRequestURI().getRawPath();
+        String rest = path.length() > context.length() ? path.substring(context.length()) : "";
+        if (rest.startsWith("/")) {
+            rest = rest.substring(1);
+        }
+        String[] parts = rest.isEmpty() ? new String[0] : rest.split("/", 3);
+        if (parts.length < 2) {
+            handle(exchange, this::propertyList, null, parts.length == 0 ? null : decode(parts[0]));
+            return;
+        }
+        BookingService service = portfolio.property(decode(parts[0]));
+        if (service == null) {
+            respond(exchange, Response.error(404, "Unknown Property", "There is no property \"" + decode(parts[0]) + "\"!"));
+            return;
+        }
+        String id = parts.length > 2 && !parts[2].isEmpty() ? decode(parts[2]) : null;
+        Route route;
+        switch (parts[1]) {
+            case "rooms": route = this::rooms; break;
+            case "bookings": route = this::bookings; break;
+            case "holds": route = this::holds; break;
+            case "guests": route = this::guests; break;
+            case "report": route = this::report; break;
+            case "archive": route = this::archive; break;
+            case "import": route = this::importRecords; break;
+            case "metrics": route = this::metrics; break;
+            case "pricing": route = this::pricing; break;
+            case "quote": route = this::quote; break;
+            case "export":
+                export(exchange, service);
+                return;
+            case "events":
+                events(exchange, service);
+                return;
+            default:
+                respond(exchange, Response.error(404, "Not Found", "Unknown resource " + parts[1]));
+                return;
+        }
+        handle(exchange, route, service, id);
+    }
+
+    // GET: every property's summary plus the group total; POST {"propertyId"}: adds a property
+    private Response propertyList(HttpExchange exchange, BookingService unused, String propertyId) throws BookingException {
+        String method = exchange.getRequestMethod();
+        if (propertyId == null && method.equals("GET")) {
+            Map<String, ReportSummary> summaries = portfolio.summaries();
+            StringBuilder json = new StringBuilder("{\"properties\":[");
+            boolean first = true;
+            for (Map.Entry<String, ReportSummary> entry : summaries.entrySet()) {
+                if (!first) json.append(',');
+                first = false;
+                json.append("{\"propertyId\":");
+                Json.appendQuoted(json, entry.getKey());
+                json.append(",\"report\":").append(summaryJson(entry.getValue())).append('}');
+            }
+            json.append("],\"total\":").append(summaryJson(HotelPortfolio.combine(summaries.values()))).append('}');
+            return new Response(200, json.toString());
+        }
+        if (propertyId == null && method.equals("POST")) {
+            String id = body(exchange).get("propertyId");
+            try {
+                portfolio.addProperty(id == null ? null : id.trim());
+            } catch (IOException e) {
+                return Response.error(500, "Error", "Could not create the property: " + e.getMessage());
+            }
+            StringBuilder json = new StringBuilder("{\"propertyId\":");
+            Json.appendQuoted(json, id.trim());
+            return new Response(201, json.append('}').toString());
+        }
+        if (propertyId != null && method.equals("GET")) {
+            return new Response(200, summaryJson(portfolio.require(propertyId).summary()));
+        }
+        return Response.methodNotAllowed();
+    }
+
+    // GET /search?checkIn=&nights=&type= : free rooms in every property, cheapest first
+    private Response search(HttpExchange exchange, BookingService unused, String id) throws BookingException {
+        if (id != null || !exchange.getRequestMethod().equals("GET")) {
+            return Response.methodNotAllowed();
+        }
+        Map<String, String> query = query(exchange);
+        if (!query.containsKey("checkIn")) {
+            throw new IllegalArgumentException("Please enter a valid check-in date (YYYY-MM-DD)!");
+        }
+        LocalDate checkIn = date(query.get("checkIn"));
+        int nights = query.containsKey("nights") ? integer(query.get("nights"), "nights") : 1;
+        StringBuilder json = new StringBuilder("[");
+        for (HotelPortfolio.PropertyRoom match : portfolio.freeRooms(query.get("type"), checkIn, nights)) {
+            BookingService service = portfolio.property(match.propertyId);
+            if (json.length() > 1) json.append(',');
+            json.append("{\"propertyId\":");
+            Json.appendQuoted(json, match.propertyId);
+            json.append(",\"room\":");
+            appendRoom(json, service, match.room, service.today());
+            json.append('}');
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    // JSON
+    // today is null for rooms that are no longer in the inventory
+    private static void appendRoom(StringBuilder json, BookingService service, Room room, LocalDate today) {
+        json.append("{\"roomNumber\":");
+        Json.appendQuoted(json, room.roomNumber);
+        json.append(",\"type\":");
+        Json.appendQuoted(json, room.type);
+        json.append(",\"price\":").append(Money.plain(room.priceCents));
+        if (today != null) {
+            json.append(",\"availableTonight\":").append(service.repository().availability().isFreeOn(room, today));
+        }
+        json.append('}');
+    }
+
+    // Leaves the object open for more fields
+    private static void appendGuest(StringBuilder json, Guest guest) {
+        json.append("{\"guestId\":").append(guest.id);
+        json.append(",\"name\":");
+        Json.appendQuoted(json, guest.name);
+        json.append(",\"phone\":");
+        Json.appendQuoted(json, guest.phone);
+        json.append(",\"bookings\":").append(guest.bookingCount());
+    }
+
+    private static void appendEvent(StringBuilder json, BookingService service, ChangeEvent event, LocalDate today) {
+        json.append("{\"sequence\":").append(event.sequence);
+        json.append(",\"type\":");
+        Json.appendQuoted(json, event.kind.name().toLowerCase(Locale.ROOT));
+        json.append(",\"time\":\"").append(Instant.ofEpochMilli(event.timeMillis)).append('"');
+        if (event.reservation != null) {
+            json.append(",\"booking\":");
+            appendReservation(json, event.reservation);
+        } else {
+            json.append(",\"room\":");
+            appendRoom(json, service, event.room, event.kind == ChangeEvent.Kind.ROOM_REMOVED ? null : today);
+        }
+        json.append('}');
+    }
+
+    private static void appendHold(StringBuilder json, Hold hold) {
+        json.append("{\"holdId\":");
+        Json.appendQuoted(json, hold.holdId);
+        json.append(",\"status\":");
+        Json.appendQuoted(json, hold.state.name().toLowerCase(Locale.ROOT));
+        json.append(",\"name\":");
+        Json.appendQuoted(json, hold.customerName);
+        json.append(",\"phone\":");
+        Json.appendQuoted(json, hold.customerPhone);
+        json.append(",\"roomNumber\":");
+        Json.appendQuoted(json, hold.room.roomNumber);
+        json.append(",\"checkIn\":\"").append(hold.checkIn).append('"');
+        json.append(",\"checkOut\":\"").append(hold.checkOut).append('"');
+        json.append(",\"nights\":").append(hold.nights);
+        json.append(",\"totalCost\":").append(Money.plain(hold.totalCents));
+        json.append(",\"expiresAt\":\"").append(Instant.ofEpochMilli(hold.expiresAtMillis)).append('"');
+        json.append('}');
+    }
+
+    private static void appendReservation(StringBuilder json, Reservation res) {
+        json.append("{\"bookingId\":");
+        Json.appendQuoted(json, res.bookingId);
+        json.append(",\"name\":");
+        Json.appendQuoted(json, res.customerName);
+        json.append(",\"phone\":");
+        Json.appendQuoted(json, res.customerPhone);
+        json.append(",\"roomNumber\":");
+        Json.appendQuoted(json, res.room.roomNumber);
+        json.append(",\"roomType\":");
+        Json.appendQuoted(json, res.room.type);
+        json.append(",\"checkIn\":\"").append(res.checkIn).append('"');
+        json.append(",\"checkOut\":\"").append(res.checkOut).append('"');
+        json.append(",\"nights\":").append(res.nights);
+        json.append(",\"totalCost\":").append(Money.plain(res.totalCents));
+        json.append('}');
+    }
+
+    // PLUMBING
+    private interface Route {
+        Response handle(HttpExchange exchange, BookingService service, String id) throws BookingException;
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+        final String contentType;
+
+        Response(int status, String body) {
+            this(status, body, "application/json; charset=utf-8");
+        }
+
+        Response(int status, String body, String contentType) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+        }
+
+        static Response error(int status, String title, String message) {
+            return new Response(status, "{\"error\":" + Json.quote(title) + ",\"message\":" + Json.quote(message) + "}");
+        }
+
+        static Response methodNotAllowed() {
+            return error(405, "Method Not Allowed", "Unsupported method for this resource");
+        }
+    }
+
+    // Top-level resources belong to the default property
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        handle(exchange, route, portfolio.defaultProperty(), resourceId(exchange));
+    }
+
+    private void handle(HttpExchange exchange, Route route, BookingService service, String id) throws IOException {
+        Response response;
+        try {
+            response = route.handle(exchange, service, id);
+        } catch (BookingException e) {
+            response = Response.error(status(e.getReason()), e.getTitle(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, "Invalid Input", e.getMessage());
+        } catch (RuntimeException e) {
+            Log.error(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " failed", e);
+            response = Response.error(500, "Error", "Internal server error");
+        }
+        respond(exchange, response);
+    }
+
+    private static void respond(HttpExchange exchange, Response response) throws IOException {
+        byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static int status(BookingException.Reason reason) {
+        switch (reason) {
+            case NOT_FOUND: return 404;
+            case CONFLICT: return 409;
+            default: return 400;
+        }
+    }
+
+    // "/bookings/BK7" -> "BK7", "/bookings" -> null
+    private static String resourceId(HttpExchange exchange) {
+        String context = exchange.getHttpContext().getPath();
+        String path = exchange.getRequestURI().getPath();
+        String rest = path.length() > context.length() ? path.substring(context.length()) : "";
+        if (rest.startsWith("/")) {
+            rest = rest.substring(1);
+        }
+        return rest.isEmpty() ? null : decode(rest);
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> values = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return values;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                values.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+            }
+        }
+        return values;
+    }
+
+    private static Map<String, String> body(HttpExchange exchange) {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, n);
+            }
+            return Json.parseObject(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read request body");
+        }
+    }
+
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static LocalDate date(String s) {
+        try {
+            return LocalDate.parse(s);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Please enter a valid check-in date (YYYY-MM-DD)!");
+        }
+    }
+
+    // ?nights= of a free-room search, refused like a booking's when the stay is empty or outside
+    // the availability index, where every room would look free
+    private static int stayNights(BookingService service, Map<String, String> query, LocalDate checkIn) throws BookingException {
+        int nights = query.containsKey("nights") ? integer(query.get("nights"), "nights") : 1;
+        service.checkSearch(checkIn, nights);
+        return nights;
+    }
+
+    private static int integer(String s, String field) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Please enter a valid number for " + field + "!");
+        }
+    }
+
+    // Amounts are parsed exactly into cents
+    private static long money(String s, String field) {
+        try {
+            return Money.parse(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Please enter a valid " + field + "!");
+        }
+    }
+}
@@ -0,0 +1,24 @@
+// A booking rule was violated. The message is meant to be shown to the user as-is.
+class BookingException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    // What kind of rule failed, so non-Swing callers can map it to their own status codes
+    enum Reason { INVALID, NOT_FOUND, CONFLICT }
+
+    private final Reason reason;
+    private final String title;
+
+    BookingException(Reason reason, String title, String message) {
+        super(message);
+        this.reason = reason;
+        this.title = title;
+    }
+
+    Reason getReason() {
+        return reason;
+    }
+
+    String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,29 @@
+// Receives every state change made through BookingService.
+// The record methods are called while the room's lock is held, so per-room order is preserved;
+// they return a sequence number that awaitDurable() blocks on after the lock is released.
+// They are called before the change is applied: a record method that throws (the record
+// cannot be encoded, or the journal is closed or broken) leaves the change unmade.
+interface BookingJournal {
+    long roomAdded(Room room);
+
+    long roomRemoved(Room room);
+
+    long booked(Reservation reservation);
+
+    long cancelled(Reservation reservation);
+
+    // The reservation moved from the live store to the archive
+    long archived(Reservation reservation);
+
+    void awaitDurable(long sequence);
+
+    // Journal used when persistence is off
+    BookingJournal NONE = new BookingJournal() {
+        public long roomAdded(Room room) { return 0; }
+        public long roomRemoved(Room room) { return 0; }
+        public long booked(Reservation reservation) { return 0; }
+        public long cancelled(Reservation reservation) { return 0; }
+        public long archived(Reservation reservation) { return 0; }
+        public void awaitDurable(long sequence) { }
+    };
+}
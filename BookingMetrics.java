@@ -0,0 +1,199 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters, latency histograms and gauges for the booking operations. BookingService times
+// its own operations; the UI adds table refreshes and reports. Everything recorded here is
+// lock-free (adders and atomic arrays), so instrumented paths do not contend on metrics.
+//
+// Change events are counted by kind as a subscriber of the property's EventBus.
+//
+// Read through JMX (JmxMetrics), GET /metrics on the API, or the Metrics button in the Admin tab.
+class BookingMetrics implements EventBus.Subscriber {
+    // One instrumented operation: how often it ran, how often it failed, and how long it took
+    static final class Operation {
+        final String name;
+        final LongAdder failures = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        // start is a System.nanoTime() reading taken before the operation
+        void succeeded(long start) {
+            latency.recordNanos(System.nanoTime() - start);
+        }
+
+        void failed(long start) {
+            failures.increment();
+            latency.recordNanos(System.nanoTime() - start);
+        }
+
+        long count() {
+            return latency.count();
+        }
+    }
+
+    final Operation book = new Operation("book");
+    final Operation cancel = new Operation("cancel");
+    final Operation addRoom = new Operation("room_add");
+    final Operation removeRoom = new Operation("room_remove");
+    final Operation archive = new Operation("archive");
+    final Operation tableRefresh = new Operation("table_refresh");
+    final Operation report = new Operation("report");
+    final Operation fullReport = new Operation("full_report");
+    final Operation hold = new Operation("hold");
+    final Operation holdConfirm = new Operation("hold_confirm");
+    final LongAdder holdsExpired = new LongAdder();
+    // Delivered change events, by ChangeEvent.Kind ordinal
+    private final LongAdder[] events = new LongAdder[ChangeEvent.Kind.values().length];
+
+    private final Operation[] operations = {book, cancel, addRoom, removeRoom, archive, tableRefresh, report, fullReport,
+        hold, holdConfirm};
+    private final RoomRepository repository;
+    private final BookingService service;
+
+    BookingMetrics(BookingService service) {
+        this.service = service;
+        this.repository = service.repository();
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onEvents(List<ChangeEvent> batch) {
+        for (ChangeEvent event : batch) {
+            events[event.kind.ordinal()].increment();
+        }
+    }
+
+    Operation[] operations() {
+        return operations.clone();
+    }
+
+    // GAUGES
+    int rooms() {
+        return repository.roomCount();
+    }
+
+    int reservations() {
+        return repository.reservationCount();
+    }
+
+    int occupiedTonight() {
+        return repository.occupiedCount(service.today());
+    }
+
+    int activeHolds() {
+        return service.holds().size();
+    }
+
+    // Share of rooms booked tonight, 0-100
+    double occupancyPercent() {
+        int rooms = rooms();
+        return rooms == 0 ? 0 : occupiedTonight() * 100.0 / rooms;
+    }
+
+    // Flat name -> value view shared by JMX and the text dump: latencies in microseconds
+    Map<String, Number> snapshot() {
+        Map<String, Number> values = new LinkedHashMap<>();
+        for (Operation op : operations) {
+            values.put(op.name + "_count", op.count());
+            values.put(op.name + "_failures", op.failures.sum());
+            values.put(op.name + "_mean_us", op.latency.meanNanos() / 1000.0);
+            values.put(op.name + "_p50_us", op.latency.quantileNanos(0.5) / 1000.0);
+            values.put(op.name + "_p99_us", op.latency.quantileNanos(0.99) / 1000.0);
+            values.put(op.name + "_p999_us", op.latency.quantileNanos(0.999) / 1000.0);
+            values.put(op.name + "_max_us", op.latency.maxNanos() / 1000.0);
+        }
+        values.put("rooms", rooms());
+        values.put("reservations", reservations());
+        values.put("occupied_tonight", occupiedTonight());
+        values.put("occupancy_percent", occupancyPercent());
+        values.put("holds_active", activeHolds());
+        values.put("holds_expired", holdsExpired.sum());
+        for (ChangeEvent.Kind kind : ChangeEvent.Kind.values()) {
+            values.put("events_" + kind.name().toLowerCase(Locale.ROOT), events[kind.ordinal()].sum());
+        }
+        values.put("events_published", service.events().published());
+        values.put("events_overruns", service.events().overruns());
+        return values;
+    }
+
+    // PROMETHEUS
+    // Cumulative histogram bounds, in seconds
+    private static final double[] BUCKET_SECONDS = {
+        0.00001, 0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    // Prometheus text exposition format (version 0.0.4)
+    String prometheusText() {
+        long[] bounds = new long[BUCKET_SECONDS.length];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = (long) (BUCKET_SECONDS[i] * 1e9);
+        }
+        StringBuilder out = new StringBuilder(8192);
+        out.append("# HELP hotel_operation_seconds Time taken by booking operations\n");
+        out.append("# TYPE hotel_operation_seconds histogram\n");
+        for (Operation op : operations) {
+            long[] cumulative = op.latency.countsAtOrBelow(bounds);
+            for (int i = 0; i < bounds.length; i++) {
+                out.append("hotel_operation_seconds_bucket{op=\"").append(op.name).append("\",le=\"")
+                    .append(number(BUCKET_SECONDS[i])).append("\"} ").append(cumulative[i]).append('\n');
+            }
+            out.append("hotel_operation_seconds_bucket{op=\"").append(op.name).append("\",le=\"+Inf\"} ")
+                .append(op.count()).append('\n');
+            out.append("hotel_operation_seconds_sum{op=\"").append(op.name).append("\"} ")
+                .append(number(op.latency.sumNanos() / 1e9)).append('\n');
+            out.append("hotel_operation_seconds_count{op=\"").append(op.name).append("\"} ")
+                .append(op.count()).append('\n');
+        }
+        out.append("# HELP hotel_operation_failures_total Operations rejected or failed\n");
+        out.append("# TYPE hotel_operation_failures_total counter\n");
+        for (Operation op : operations) {
+            out.append("hotel_operation_failures_total{op=\"").append(op.name).append("\"} ")
+                .append(op.failures.sum()).append('\n');
+        }
+        gauge(out, "hotel_rooms", "Rooms in the inventory", rooms());
+        gauge(out, "hotel_reservations", "Live reservations", reservations());
+        gauge(out, "hotel_rooms_occupied_tonight", "Rooms booked for tonight", occupiedTonight());
+        gauge(out, "hotel_occupancy_ratio", "Share of rooms booked for tonight", occupancyPercent() / 100.0);
+        gauge(out, "hotel_holds", "Rooms held awaiting confirmation", activeHolds());
+        out.append("# HELP hotel_holds_expired_total Holds released because their time ran out\n");
+        out.append("# TYPE hotel_holds_expired_total counter\n");
+        out.append("hotel_holds_expired_total ").append(holdsExpired.sum()).append('\n');
+        out.append("# HELP hotel_events_total Change events delivered, by kind\n");
+        out.append("# TYPE hotel_events_total counter\n");
+        for (ChangeEvent.Kind kind : ChangeEvent.Kind.values()) {
+            out.append("hotel_events_total{kind=\"").append(kind.name().toLowerCase(Locale.ROOT)).append("\"} ")
+                .append(events[kind.ordinal()].sum()).append('\n');
+        }
+        out.append("# HELP hotel_event_overruns_total Events skipped by subscribers that fell a whole ring behind\n");
+        out.append("# TYPE hotel_event_overruns_total counter\n");
+        out.append("hotel_event_overruns_total ").append(service.events().overruns()).append('\n');
+        return out.toString();
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(number(value)).append('\n');
+    }
+
+    // Plain decimal without exponent or trailing zeros
+    private static String number(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        String text = String.format(Locale.ROOT, "%.9f", value);
+        int end = text.length();
+        while (text.charAt(end - 1) == '0') {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+}
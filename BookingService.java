@@ -0,0 +1,633 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Booking rules and state changes, safe to call from several threads at once.
+// Every change to a room (booking it, cancelling one of its bookings, adding or removing it)
+// runs under that room's lock stripe, so two clients can never double-book a room while
+// bookings on rooms in different stripes proceed in parallel.
+class BookingService {
+    private static final int STRIPES = 256;
+    private static final long MAX_HOLD_MILLIS = TimeUnit.HOURS.toMillis(24);
+    // One thread expires the holds of every property, however many there are
+    private static final TimerWheel HOLD_TIMERS = new TimerWheel(100, TimeUnit.MILLISECONDS);
+
+    private final RoomRepository repository;
+    private final Clock clock;
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final AtomicLong nextBookingId = new AtomicLong(1);
+    private final AtomicLong nextHoldId = new AtomicLong(1);
+    // Active holds by numeric ID
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+    private volatile BookingJournal journal = BookingJournal.NONE;
+    private volatile ReservationArchive archive;
+    // Where the pricing rules are kept; null when running without a data directory
+    private volatile Path pricingFile;
+    private final BookingMetrics metrics;
+    // Published under the room's lock, so each room's events are in the order of its changes
+    private final EventBus events = new EventBus();
+
+    BookingService(RoomRepository repository) {
+        this(repository, Clock.systemDefaultZone());
+    }
+
+    BookingService(RoomRepository repository, Clock clock) {
+        this.repository = repository;
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        metrics = new BookingMetrics(this);
+        events.subscribe("metrics", 1024, metrics);
+    }
+
+    RoomRepository repository() {
+        return repository;
+    }
+
+    // Rooms added and removed, bookings made and cancelled (not archived, and not replayed
+    // on startup); the journal is written before an event is published, but not always synced
+    EventBus events() {
+        return events;
+    }
+
+    // Latency and failure counts of the calls below; batched calls (imports) are not timed one by one
+    BookingMetrics metrics() {
+        return metrics;
+    }
+
+    void setJournal(BookingJournal journal) {
+        this.journal = journal;
+    }
+
+    void setArchive(ReservationArchive archive) {
+        this.archive = archive;
+    }
+
+    // Null when running without a data directory
+    ReservationArchive archive() {
+        return archive;
+    }
+
+    // Loads the rules saved in the file, if there is one, and saves later changes to it
+    void setPricingFile(Path file) throws IOException {
+        if (Files.exists(file)) {
+            try {
+                repository.rates().setRules(PricingRules.parse(Files.readAllLines(file, StandardCharsets.UTF_8)));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": " + e.getMessage(), e);
+            }
+        }
+        this.pricingFile = file;
+    }
+
+    // The rules in their text form, one per line
+    List<String> pricingRules() {
+        return PricingRules.format(repository.rates().rules());
+    }
+
+    // Replaces every pricing rule; quotes use the new rules once this returns, bookings
+    // already made keep their price
+    synchronized void updatePricing(List<String> lines) throws BookingException, IOException {
+        List<PricingRule> rules;
+        try {
+            rules = PricingRules.parse(lines);
+        } catch (IllegalArgumentException e) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Pricing Rule", e.getMessage());
+        }
+        Path file = pricingFile;
+        if (file != null) {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, PricingRules.format(rules), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        repository.rates().setRules(rules);
+    }
+
+    // Used by recovery so new bookings continue after the highest restored ID
+    void ensureNextBookingIdAbove(long id) {
+        nextBookingId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    long peekNextBookingId() {
+        return nextBookingId.get();
+    }
+
+    // Runs the action while holding every room lock, so no change is half-applied while it runs
+    void runExclusive(Runnable action) {
+        int locked = 0;
+        try {
+            for (; locked < STRIPES; locked++) {
+                stripes[locked].lock();
+            }
+            action.run();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    // Totals shown in the report, shared by the GUI and the HTTP API
+    ReportSummary summary() {
+        long start = System.nanoTime();
+        LocalDate today = today();
+        int bookedTonight = repository.occupiedCount(today);
+        RunningTotals totals = repository.totals();
+        ReservationArchive history = archive;
+        ReportSummary summary = new ReportSummary(repository.roomCount(), bookedTonight, repository.reservationCount(), totals.revenueCents(),
+            history == null ? 0 : history.size(), history == null ? 0 : history.totalCostCents(),
+            totals.byType());
+        metrics.report.succeeded(start);
+        return summary;
+    }
+
+    // Full report computed from scratch on the common fork/join pool, also shared by the GUI and the API
+    ReportEngine.Result fullReport(int top) {
+        long start = System.nanoTime();
+        try {
+            ReportEngine.Result result = new ReportEngine(repository).run(today(), top);
+            metrics.fullReport.succeeded(start);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.fullReport.failed(start);
+            throw e;
+        }
+    }
+
+    LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    // Moves the availability and rate horizon up to today once a day has passed, so that a
+    // server left running keeps selling HORIZON_DAYS ahead. Checked before stays are looked
+    // at; must not be called while holding a room lock.
+    void advanceHorizon() {
+        LocalDate today = today();
+        if (today.isAfter(repository.availability().firstDay())) {
+            runExclusive(() -> repository.advanceHorizon(today));
+        }
+    }
+
+    // Changes made through a batch wait for the journal once, in finish(), instead of once each.
+    // Used by bulk import; one batch per calling thread.
+    static final class Batch {
+        private long lastSequence;
+
+        private void logged(long sequence) {
+            lastSequence = Math.max(lastSequence, sequence);
+        }
+    }
+
+    // Returns once every change made through the batch is durable
+    void finish(Batch batch) {
+        journal.awaitDurable(batch.lastSequence);
+    }
+
+    // BOOKINGS
+    Reservation book(String name, String phone, String roomNumber, LocalDate checkIn, int nights) throws BookingException {
+        long start = System.nanoTime();
+        try {
+            Batch batch = new Batch();
+            Reservation reservation = book(name, phone, roomNumber, checkIn, nights, batch);
+            finish(batch);
+            metrics.book.succeeded(start);
+            return reservation;
+        } catch (BookingException | RuntimeException e) {
+            metrics.book.failed(start);
+            throw e;
+        }
+    }
+
+    // Same rules as above; the booking is durable after finish(batch)
+    Reservation book(String name, String phone, String roomNumber, LocalDate checkIn, int nights, Batch batch) throws BookingException {
+        LocalDate checkOut = checkStay(name, phone, roomNumber, checkIn, nights);
+        Reservation reservation;
+        ReentrantLock lock = lockFor(roomNumber);
+        lock.lock();
+        try {
+            Room room = freeRoom(roomNumber, checkIn, checkOut);
+            // Priced before it counts towards occupancy
+            reservation = repository.newReservation(nextBookingId.getAndIncrement(),
+                name, phone, room, checkIn, nights, repository.rates().quote(room, checkIn, nights));
+            // Logged first: if the journal refuses the record, nothing has changed
+            batch.logged(journal.booked(reservation));
+            repository.addReservation(reservation);
+            events.publish(ChangeEvent.Kind.BOOKING_CREATED, room, reservation);
+        } finally {
+            lock.unlock();
+        }
+        return reservation;
+    }
+
+    // Takes over a booking recorded elsewhere, as it was recorded: the stay may already have
+    // started (a guest in house) and the total is kept rather than priced again. Only the fields
+    // and the room's other bookings are checked. Used by import when onboarding a property.
+    Reservation restore(String name, String phone, String roomNumber, LocalDate checkIn, int nights,
+                        long totalCents, Batch batch) throws BookingException {
+        if (isBlank(name) || isBlank(phone) || isBlank(roomNumber) || checkIn == null) {
+            throw new BookingException(BookingException.Reason.INVALID, "Missing Information", "Please fill in all fields!");
+        }
+        if (nights <= 0) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input", "Number of nights must be greater than 0!");
+        }
+        if (totalCents < 0) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input", "Total cost cannot be negative!");
+        }
+        LocalDate checkOut = checkIn.plusDays(nights);
+        advanceHorizon();
+        if (checkOut.isAfter(repository.availability().lastDay())) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input",
+                "Bookings can only be made up to " + repository.availability().lastDay() + "!");
+        }
+        Reservation reservation;
+        ReentrantLock lock = lockFor(roomNumber);
+        lock.lock();
+        try {
+            Room room = freeRoom(roomNumber, checkIn, checkOut);
+            reservation = repository.newReservation(nextBookingId.getAndIncrement(), name, phone, room, checkIn, nights, totalCents);
+            batch.logged(journal.booked(reservation));
+            repository.addReservation(reservation);
+            events.publish(ChangeEvent.Kind.BOOKING_CREATED, room, reservation);
+        } finally {
+            lock.unlock();
+        }
+        return reservation;
+    }
+
+    // Returns the checkout date
+    private LocalDate checkStay(String name, String phone, String roomNumber, LocalDate checkIn, int nights) throws BookingException {
+        if (isBlank(name) || isBlank(phone) || isBlank(roomNumber) || checkIn == null) {
+            throw new BookingException(BookingException.Reason.INVALID, "Missing Information", "Please fill in all fields!");
+        }
+        if (checkIn.isBefore(today())) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input", "Check-in date cannot be in the past!");
+        }
+        if (nights <= 0) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input", "Number of nights must be greater than 0!");
+        }
+        LocalDate checkOut = checkIn.plusDays(nights);
+        advanceHorizon();
+        if (!repository.availability().inHorizon(checkIn, checkOut)) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input",
+                "Bookings can only be made up to " + repository.availability().lastDay() + "!");
+        }
+        return checkOut;
+    }
+
+    // Checks a stay that is searched or priced rather than booked: outside the horizon every
+    // room would look free. Returns the checkout date; must not be called holding a room lock.
+    LocalDate checkSearch(LocalDate checkIn, int nights) throws BookingException {
+        if (checkIn.isBefore(today())) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input", "Check-in date cannot be in the past!");
+        }
+        if (nights <= 0) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input", "Number of nights must be greater than 0!");
+        }
+        LocalDate checkOut = checkIn.plusDays(nights);
+        advanceHorizon();
+        AvailabilityIndex availability = repository.availability();
+        if (!availability.inHorizon(checkIn, checkOut)) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input",
+                "Availability is only known from " + availability.firstDay() + " up to " + availability.lastDay() + "!");
+        }
+        return checkOut;
+    }
+
+    // Caller holds the room's lock
+    private Room freeRoom(String roomNumber, LocalDate checkIn, LocalDate checkOut) throws BookingException {
+        Room room = repository.findRoom(roomNumber);
+        if (room == null) {
+            throw new BookingException(BookingException.Reason.NOT_FOUND, "Error", "Room not found! Please check the room number.");
+        }
+        if (!repository.isFree(room, checkIn, checkOut)) {
+            throw new BookingException(BookingException.Reason.CONFLICT, "Room Unavailable", "Sorry, this room is already booked for those dates!");
+        }
+        return room;
+    }
+
+    // HOLDS
+    // Takes the room off sale for the stay for ttlMillis at today's price; confirmHold turns
+    // it into a booking, and otherwise it is released when the time is up
+    Hold hold(String name, String phone, String roomNumber, LocalDate checkIn, int nights, long ttlMillis) throws BookingException {
+        long start = System.nanoTime();
+        try {
+            Hold hold = doHold(name, phone, roomNumber, checkIn, nights, ttlMillis);
+            metrics.hold.succeeded(start);
+            return hold;
+        } catch (BookingException | RuntimeException e) {
+            metrics.hold.failed(start);
+            throw e;
+        }
+    }
+
+    private Hold doHold(String name, String phone, String roomNumber, LocalDate checkIn, int nights, long ttlMillis) throws BookingException {
+        LocalDate checkOut = checkStay(name, phone, roomNumber, checkIn, nights);
+        if (ttlMillis < 1000 || ttlMillis > MAX_HOLD_MILLIS) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Input", "Hold time must be between 1 second and 24 hours!");
+        }
+        Hold hold;
+        ReentrantLock lock = lockFor(roomNumber);
+        lock.lock();
+        try {
+            Room room = freeRoom(roomNumber, checkIn, checkOut);
+            hold = new Hold(nextHoldId.getAndIncrement(), name, phone, room, checkIn, nights,
+                repository.rates().quote(room, checkIn, nights), clock.millis() + ttlMillis, this);
+            repository.holdNights(hold);
+            holds.put(hold.id, hold);
+        } finally {
+            lock.unlock();
+        }
+        HOLD_TIMERS.schedule(hold, ttlMillis, TimeUnit.MILLISECONDS);
+        return hold;
+    }
+
+    // Null if there is no active hold with that ID
+    Hold findHold(String holdId) {
+        long id = Hold.idOf(holdId);
+        return id < 0 ? null : holds.get(id);
+    }
+
+    Collection<Hold> holds() {
+        return Collections.unmodifiableCollection(holds.values());
+    }
+
+    // Books the held room at the held price
+    Reservation confirmHold(String holdId) throws BookingException {
+        long start = System.nanoTime();
+        try {
+            Reservation reservation = doConfirmHold(holdId);
+            metrics.holdConfirm.succeeded(start);
+            return reservation;
+        } catch (BookingException | RuntimeException e) {
+            metrics.holdConfirm.failed(start);
+            throw e;
+        }
+    }
+
+    private Reservation doConfirmHold(String holdId) throws BookingException {
+        Hold hold = activeHold(holdId);
+        Reservation reservation;
+        long sequence;
+        ReentrantLock lock = lockFor(hold.room.roomNumber);
+        lock.lock();
+        try {
+            stillActive(hold);
+            reservation = repository.newReservation(nextBookingId.getAndIncrement(), hold.customerName, hold.customerPhone,
+                hold.room, hold.checkIn, hold.nights, hold.totalCents);
+            // Logged before the hold ends, so a refused record leaves the hold active
+            sequence = journal.booked(reservation);
+            endHold(hold, Hold.State.CONFIRMED);
+            repository.addReservation(reservation);
+            events.publish(ChangeEvent.Kind.BOOKING_CREATED, reservation.room, reservation);
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable(sequence);
+        return reservation;
+    }
+
+    Hold releaseHold(String holdId) throws BookingException {
+        Hold hold = activeHold(holdId);
+        ReentrantLock lock = lockFor(hold.room.roomNumber);
+        lock.lock();
+        try {
+            stillActive(hold);
+            endHold(hold, Hold.State.RELEASED);
+        } finally {
+            lock.unlock();
+        }
+        return hold;
+    }
+
+    // Called by the hold's timer; a hold confirmed or released meanwhile is left alone
+    void expireHold(Hold hold) {
+        ReentrantLock lock = lockFor(hold.room.roomNumber);
+        lock.lock();
+        try {
+            if (hold.state == Hold.State.ACTIVE) {
+                endHold(hold, Hold.State.EXPIRED);
+                metrics.holdsExpired.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Hold activeHold(String holdId) throws BookingException {
+        Hold hold = findHold(holdId);
+        if (hold == null) {
+            throw new BookingException(BookingException.Reason.NOT_FOUND, "Hold Not Found", "This hold has expired or does not exist!");
+        }
+        return hold;
+    }
+
+    // The hold may have ended while the caller waited for the room's lock
+    private static void stillActive(Hold hold) throws BookingException {
+        if (hold.state != Hold.State.ACTIVE) {
+            throw new BookingException(BookingException.Reason.NOT_FOUND, "Hold Not Found", "This hold has expired or does not exist!");
+        }
+    }
+
+    // Caller holds the room's lock
+    private void endHold(Hold hold, Hold.State end) {
+        hold.state = end;
+        repository.releaseNights(hold);
+        holds.remove(hold.id);
+        if (end != Hold.State.EXPIRED) {
+            HOLD_TIMERS.cancel(hold);
+        }
+    }
+
+    Reservation cancel(String bookingId) throws BookingException {
+        long start = System.nanoTime();
+        try {
+            Reservation result = doCancel(bookingId);
+            metrics.cancel.succeeded(start);
+            return result;
+        } catch (BookingException | RuntimeException e) {
+            metrics.cancel.failed(start);
+            throw e;
+        }
+    }
+
+    private Reservation doCancel(String bookingId) throws BookingException {
+        Reservation reservation = repository.findReservation(bookingId);
+        if (reservation == null) {
+            throw new BookingException(BookingException.Reason.NOT_FOUND, "Error", "Booking not found!");
+        }
+        long sequence;
+        ReentrantLock lock = lockFor(reservation.room.roomNumber);
+        lock.lock();
+        try {
+            // Another client may have cancelled it while we waited for the lock
+            if (repository.findReservation(bookingId) != reservation) {
+                throw new BookingException(BookingException.Reason.NOT_FOUND, "Error", "Booking not found!");
+            }
+            sequence = journal.cancelled(reservation);
+            repository.removeReservation(bookingId);
+            events.publish(ChangeEvent.Kind.BOOKING_CANCELLED, reservation.room, reservation);
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable(sequence);
+        return reservation;
+    }
+
+    // Moves bookings that have checked out (checkout on or before today) into the archive.
+    // The batch is written to the archive first, then logged and removed from the live store,
+    // and only then committed in the archive; see ReservationArchive.reconcile for crash handling.
+    int archiveCompleted() throws BookingException, IOException {
+        long start = System.nanoTime();
+        try {
+            int result = doArchiveCompleted();
+            metrics.archive.succeeded(start);
+            return result;
+        } catch (BookingException | IOException | RuntimeException e) {
+            metrics.archive.failed(start);
+            throw e;
+        }
+    }
+
+    private int doArchiveCompleted() throws BookingException, IOException {
+        ReservationArchive target = archive;
+        if (target == null) {
+            throw new BookingException(BookingException.Reason.INVALID, "Archive Unavailable",
+                "Archiving needs a data directory (it is off with --in-memory)!");
+        }
+        synchronized (target) {
+            LocalDate today = today();
+            List<Reservation> completed = new ArrayList<>();
+            long[] lastSequence = new long[1];
+            IOException[] failure = new IOException[1];
+            // Holding every room lock keeps cancellations from racing with the move
+            runExclusive(() -> {
+                for (Reservation res : repository.reservations()) {
+                    if (!res.checkOut.isAfter(today)) {
+                        completed.add(res);
+                    }
+                }
+                try {
+                    target.writePending(completed);
+                } catch (IOException e) {
+                    failure[0] = e;
+                    return;
+                }
+                for (Reservation res : completed) {
+                    lastSequence[0] = journal.archived(res);
+                    repository.removeReservation(res.bookingId);
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            journal.awaitDurable(lastSequence[0]);
+            target.commitPending();
+            return completed.size();
+        }
+    }
+
+    // ROOMS
+    Room addRoom(String roomNumber, String type, long priceCents) throws BookingException {
+        long start = System.nanoTime();
+        try {
+            Batch batch = new Batch();
+            Room room = addRoom(roomNumber, type, priceCents, batch);
+            finish(batch);
+            metrics.addRoom.succeeded(start);
+            return room;
+        } catch (BookingException | RuntimeException e) {
+            metrics.addRoom.failed(start);
+            throw e;
+        }
+    }
+
+    // Same rules as above; the room is durable after finish(batch)
+    Room addRoom(String roomNumber, String type, long priceCents, Batch batch) throws BookingException {
+        if (isBlank(roomNumber) || isBlank(type)) {
+            throw new BookingException(BookingException.Reason.INVALID, "Missing Information", "Please fill in all fields!");
+        }
+        if (priceCents <= 0) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Price", "Price must be greater than 0!");
+        }
+        Room room = new Room(roomNumber, type, priceCents);
+        ReentrantLock lock = lockFor(roomNumber);
+        lock.lock();
+        try {
+            // Room numbers are only added under their lock, so this stays true until addRoom below
+            if (repository.containsRoom(roomNumber)) {
+                throw new BookingException(BookingException.Reason.CONFLICT, "Duplicate Room", "Room number already exists!");
+            }
+            batch.logged(journal.roomAdded(room));
+            repository.addRoom(room);
+            events.publish(ChangeEvent.Kind.ROOM_ADDED, room, null);
+        } finally {
+            lock.unlock();
+        }
+        return room;
+    }
+
+    Room removeRoom(String roomNumber) throws BookingException {
+        long start = System.nanoTime();
+        try {
+            Room result = doRemoveRoom(roomNumber);
+            metrics.removeRoom.succeeded(start);
+            return result;
+        } catch (BookingException | RuntimeException e) {
+            metrics.removeRoom.failed(start);
+            throw e;
+        }
+    }
+
+    private Room doRemoveRoom(String roomNumber) throws BookingException {
+        Room room;
+        long sequence;
+        ReentrantLock lock = lockFor(roomNumber);
+        lock.lock();
+        try {
+            checkRoomRemovable(roomNumber);
+            room = repository.findRoom(roomNumber);
+            sequence = journal.roomRemoved(room);
+            repository.removeRoom(roomNumber);
+            events.publish(ChangeEvent.Kind.ROOM_REMOVED, room, null);
+        } finally {
+            lock.unlock();
+        }
+        journal.awaitDurable(sequence);
+        return room;
+    }
+
+    // Lets the UI reject a removal before asking for confirmation; removeRoom checks again
+    void checkRoomRemovable(String roomNumber) throws BookingException {
+        Room room = repository.findRoom(roomNumber);
+        if (room == null) {
+            throw new BookingException(BookingException.Reason.NOT_FOUND, "Error", "Room not found!");
+        }
+        if (repository.availability().hasBookingsFrom(room, today())) {
+            throw new BookingException(BookingException.Reason.CONFLICT, "Room Occupied", "Cannot remove a room that has current or upcoming bookings!");
+        }
+    }
+
+    private ReentrantLock lockFor(String roomNumber) {
+        int h = roomNumber.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+}
@@ -0,0 +1,416 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+// Bulk import and export of rooms and bookings, one record per line, as CSV or JSON lines:
+//
+//   room,101,Single,50.00
+//   booking,Jane Doe,555-0100,101,2025-07-01,3
+//
+//   {"record":"room","roomNumber":"101","type":"Single","price":50.00}
+//   {"record":"booking","name":"Jane Doe","phone":"555-0100","roomNumber":"101","checkIn":"2025-07-01","nights":3}
+//
+// Blank lines and lines starting with # are skipped; CSV fields may be quoted ("Doe, Jane").
+// Rooms must come before the bookings that use them. Exported booking lines also carry the
+// booking ID and total cost.
+//
+// An import in Mode.NEW_BOOKINGS books every line like the booking form: check-in must not
+// be in the past and the stay is priced by today's rules, so it suits bookings taken elsewhere
+// that are yet to come. Mode.RESTORE takes an export back as it was recorded, for moving or
+// onboarding a property: stays that have started or ended are kept, each keeps its total
+// cost (which it must then have), and only overlaps with the room's other bookings are
+// refused. Either way each booking gets a new ID.
+//
+// Import is a pipeline: a parser thread reads and parses lines into batches, and the calling
+// thread validates and inserts each batch through BookingService, which applies the same rules
+// as the forms and waits for the journal once per batch. The queue between the two holds a few
+// batches at most, so memory use does not depend on the size of the input.
+class BulkTransfer {
+    enum Format {
+        CSV, JSON_LINES;
+
+        // By file extension: .json/.jsonl/.ndjson are JSON lines, anything else CSV
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            return name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON_LINES : CSV;
+        }
+    }
+
+    enum Mode { NEW_BOOKINGS, RESTORE }
+
+    static final int BATCH_SIZE = 4096;
+    // Only the first rejections are kept with their messages; the rest are counted
+    static final int MAX_ERRORS = 100;
+
+    private static final int QUEUED_BATCHES = 4;
+
+    private final BookingService service;
+
+    BulkTransfer(BookingService service) {
+        this.service = service;
+    }
+
+    // What an import did; rejected lines are reported by line number
+    static class ImportResult {
+        int roomsAdded;
+        int bookingsAdded;
+        int rejected;
+        final List<String> errors = new ArrayList<>();
+
+        private void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("Line " + line + ": " + message);
+            }
+        }
+    }
+
+    // One parsed line, or the reason it could not be parsed
+    private static final class Line {
+        long number;
+        boolean room;
+        String roomNumber;
+        String type;
+        long priceCents;
+        String name;
+        String phone;
+        LocalDate checkIn;
+        int nights;
+        // -1 when the line has none
+        long totalCents = -1;
+        String error;
+    }
+
+    // IMPORT
+    // progress gets 0-100 based on how much of the file has been read
+    ImportResult importFile(Path file, Mode mode, IntConsumer progress) throws IOException {
+        long size = Math.max(1, Files.size(file));
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(in, Format.of(file), mode, read -> progress.accept((int) Math.min(99, read * 100 / size)));
+        }
+    }
+
+    ImportResult importFrom(Reader in, Format format, Mode mode) throws IOException {
+        return importFrom(in, format, mode, read -> { });
+    }
+
+    private ImportResult importFrom(Reader in, Format format, Mode mode, LongConsumer charsRead) throws IOException {
+        BlockingQueue<List<Line>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+        IOException[] failure = new IOException[1];
+        Thread parser = new Thread(() -> parse(in, format, queue, failure, charsRead), "bulk-import-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        ImportResult result = new ImportResult();
+        try {
+            while (true) {
+                List<Line> lines = queue.take();
+                if (lines.isEmpty()) {
+                    break;
+                }
+                insert(lines, mode, result);
+            }
+            parser.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted");
+        } finally {
+            parser.interrupt();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return result;
+    }
+
+    private void insert(List<Line> lines, Mode mode, ImportResult result) {
+        BookingService.Batch batch = new BookingService.Batch();
+        for (Line line : lines) {
+            if (line.error != null) {
+                result.reject(line.number, line.error);
+                continue;
+            }
+            try {
+                if (line.room) {
+                    service.addRoom(line.roomNumber, line.type, line.priceCents, batch);
+                    result.roomsAdded++;
+                } else if (mode == Mode.NEW_BOOKINGS) {
+                    service.book(line.name, line.phone, line.roomNumber, line.checkIn, line.nights, batch);
+                    result.bookingsAdded++;
+                } else if (line.totalCents < 0) {
+                    result.reject(line.number, "A restored booking needs its totalCost");
+                } else {
+                    service.restore(line.name, line.phone, line.roomNumber, line.checkIn, line.nights, line.totalCents, batch);
+                    result.bookingsAdded++;
+                }
+            } catch (BookingException e) {
+                result.reject(line.number, e.getMessage());
+            }
+        }
+        service.finish(batch);
+    }
+
+    // Runs on the parser thread; an empty batch marks the end of the input
+    private static void parse(Reader in, Format format, BlockingQueue<List<Line>> queue,
+                              IOException[] failure, LongConsumer charsRead) {
+        try {
+            BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+            List<Line> batch = new ArrayList<>(BATCH_SIZE);
+            long number = 0;
+            long read = 0;
+            String text;
+            try {
+                while ((text = reader.readLine()) != null) {
+                    number++;
+                    read += text.length() + 1;
+                    String trimmed = text.trim();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                        continue;
+                    }
+                    batch.add(format == Format.CSV ? parseCsv(trimmed, number) : parseJson(trimmed, number));
+                    if (batch.size() == BATCH_SIZE) {
+                        queue.put(batch);
+                        charsRead.accept(read);
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+            } catch (IOException e) {
+                failure[0] = e;
+            } catch (RuntimeException e) {
+                failure[0] = new IOException("Could not read the import: " + e, e);
+            }
+            if (!batch.isEmpty()) {
+                queue.put(batch);
+            }
+            queue.put(Collections.<Line>emptyList());
+        } catch (InterruptedException e) {
+            // The importer gave up; nobody is waiting for the rest
+        }
+    }
+
+    private static Line parseCsv(String text, long number) {
+        Line line = new Line();
+        line.number = number;
+        List<String> fields = splitCsv(text);
+        String kind = fields.get(0).trim();
+        try {
+            if (kind.equalsIgnoreCase("room")) {
+                if (fields.size() < 4) {
+                    line.error = "A room needs roomNumber,type,price";
+                    return line;
+                }
+                line.room = true;
+                line.roomNumber = fields.get(1).trim();
+                line.type = fields.get(2).trim();
+                line.priceCents = Money.parse(fields.get(3));
+            } else if (kind.equalsIgnoreCase("booking")) {
+                if (fields.size() < 6) {
+                    line.error = "A booking needs name,phone,roomNumber,checkIn,nights";
+                    return line;
+                }
+                line.name = fields.get(1).trim();
+                line.phone = fields.get(2).trim();
+                line.roomNumber = fields.get(3).trim();
+                line.checkIn = parseDate(fields.get(4).trim());
+                line.nights = Integer.parseInt(fields.get(5).trim());
+                // Field 6 is the exported booking ID, which is not kept
+                if (fields.size() > 7 && !fields.get(7).trim().isEmpty()) {
+                    line.totalCents = Money.parse(fields.get(7));
+                }
+            } else {
+                line.error = "Unknown record type '" + kind + "' (expected room or booking)";
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            line.error = invalidValue(line.room);
+        }
+        return line;
+    }
+
+    private static Line parseJson(String text, long number) {
+        Line line = new Line();
+        line.number = number;
+        Map<String, String> values;
+        try {
+            values = Json.parseObject(text);
+        } catch (IllegalArgumentException e) {
+            line.error = "Not a JSON object: " + e.getMessage();
+            return line;
+        }
+        String kind = values.get("record");
+        try {
+            if ("room".equals(kind)) {
+                line.room = true;
+                line.roomNumber = values.get("roomNumber");
+                line.type = values.get("type");
+                String price = values.get("price");
+                line.priceCents = price == null ? 0 : Money.parse(price);
+            } else if ("booking".equals(kind)) {
+                line.name = values.get("name");
+                line.phone = values.get("phone");
+                line.roomNumber = values.get("roomNumber");
+                String checkIn = values.get("checkIn");
+                line.checkIn = checkIn == null ? null : parseDate(checkIn);
+                String nights = values.get("nights");
+                line.nights = nights == null ? 0 : Integer.parseInt(nights);
+                String total = values.get("totalCost");
+                line.totalCents = total == null ? -1 : Money.parse(total);
+            } else {
+                line.error = "Unknown record type " + Json.quote(kind) + " (expected \"room\" or \"booking\")";
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            line.error = invalidValue(line.room);
+        }
+        return line;
+    }
+
+    private static String invalidValue(boolean room) {
+        return room ? "Please enter a valid price!" : "Please enter a valid check-in date (YYYY-MM-DD) and number of nights!";
+    }
+
+    // YYYY-MM-DD without going through DateTimeFormatter, which dominates parsing otherwise
+    static LocalDate parseDate(String text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return LocalDate.parse(text);
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return LocalDate.parse(text);
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Splits one CSV line; fields may be quoted, with "" for a quote inside a quoted field
+    static List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // EXPORT
+    // Writes every room, then every live booking in ID order; returns the number of lines written
+    long exportTo(Writer out, Format format) throws IOException {
+        RoomRepository repository = service.repository();
+        StringBuilder line = new StringBuilder(128);
+        long written = 0;
+        if (format == Format.CSV) {
+            out.write("# room,roomNumber,type,price\n");
+            out.write("# booking,name,phone,roomNumber,checkIn,nights,bookingId,totalCost\n");
+        }
+        for (Room room : repository.rooms()) {
+            line.setLength(0);
+            if (format == Format.CSV) {
+                line.append("room,");
+                appendCsv(line, room.roomNumber).append(',');
+                appendCsv(line, room.type).append(',').append(Money.plain(room.priceCents));
+            } else {
+                line.append("{\"record\":\"room\",\"roomNumber\":");
+                Json.appendQuoted(line, room.roomNumber);
+                line.append(",\"type\":");
+                Json.appendQuoted(line, room.type);
+                line.append(",\"price\":").append(Money.plain(room.priceCents)).append('}');
+            }
+            out.append(line).append('\n');
+            written++;
+        }
+        for (Reservation res : repository.reservations()) {
+            line.setLength(0);
+            if (format == Format.CSV) {
+                line.append("booking,");
+                appendCsv(line, res.customerName).append(',');
+                appendCsv(line, res.customerPhone).append(',');
+                appendCsv(line, res.room.roomNumber).append(',');
+                line.append(res.checkIn).append(',').append(res.nights).append(',')
+                    .append(res.bookingId).append(',').append(Money.plain(res.totalCents));
+            } else {
+                line.append("{\"record\":\"booking\",\"name\":");
+                Json.appendQuoted(line, res.customerName);
+                line.append(",\"phone\":");
+                Json.appendQuoted(line, res.customerPhone);
+                line.append(",\"roomNumber\":");
+                Json.appendQuoted(line, res.room.roomNumber);
+                line.append(",\"checkIn\":\"").append(res.checkIn).append('"');
+                line.append(",\"nights\":").append(res.nights);
+                line.append(",\"bookingId\":\"").append(res.bookingId).append('"');
+                line.append(",\"totalCost\":").append(Money.plain(res.totalCents)).append('}');
+            }
+            out.append(line).append('\n');
+            written++;
+        }
+        out.flush();
+        return written;
+    }
+
+    long exportFile(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return exportTo(out, Format.of(file));
+        }
+    }
+
+    private static StringBuilder appendCsv(StringBuilder out, String value) {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0;
+        if (!quote) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        return out.append('"');
+    }
+}
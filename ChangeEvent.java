@@ -0,0 +1,22 @@
+// One change to a property's rooms or bookings, as published on its EventBus. Events are
+// immutable and carry the same Room and Reservation objects the repository holds, so
+// subscribers can match them against table rows by identity.
+final class ChangeEvent {
+    enum Kind { ROOM_ADDED, ROOM_REMOVED, BOOKING_CREATED, BOOKING_CANCELLED }
+
+    // Position on the bus, consecutive from 0
+    final long sequence;
+    final Kind kind;
+    final Room room;
+    // Null for room events
+    final Reservation reservation;
+    final long timeMillis;
+
+    ChangeEvent(long sequence, Kind kind, Room room, Reservation reservation, long timeMillis) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.room = room;
+        this.reservation = reservation;
+        this.timeMillis = timeMillis;
+    }
+}
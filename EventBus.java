@@ -0,0 +1,216 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Change events of one property on a bounded ring buffer, in the style of the LMAX Disruptor.
+// Publishers claim a sequence number and write the event into its slot; nothing is locked and
+// nothing waits for readers. Every reader keeps its own position and takes whatever has been
+// published since, in batches, so a busy reader catches up in a few large steps.
+//
+// A reader that falls a whole ring behind is not waited for: the events it missed are
+// overwritten, it skips ahead to the newest ones and is told how many it lost, and it is
+// expected to reload from the repository. A slow subscriber therefore costs itself a reload,
+// never the booking path a delay.
+class EventBus {
+    static final int DEFAULT_CAPACITY = 1 << 14;
+
+    // Receives events on its own thread, in sequence order
+    interface Subscriber {
+        // Consecutive events, oldest first
+        void onEvents(List<ChangeEvent> events);
+
+        // Events were lost because the subscriber fell behind; whatever it derives from them
+        // should be rebuilt from the repository
+        default void onOverrun(long missed) {
+        }
+    }
+
+    private final int mask;
+    private final AtomicReferenceArray<ChangeEvent> ring;
+    // Next sequence to hand out
+    private final AtomicLong next = new AtomicLong();
+    // Readers parked in poll; publishers only touch the monitor when there are some
+    private final Object signal = new Object();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder overruns = new LongAdder();
+
+    EventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Capacity is rounded up to a power of two
+    EventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.ring = new AtomicReferenceArray<>(size);
+    }
+
+    // PUBLISHING
+    // Callers that need events in the order of their changes publish while holding the lock
+    // that orders the changes (BookingService publishes under the room's lock)
+    long publish(ChangeEvent.Kind kind, Room room, Reservation reservation) {
+        long sequence = next.getAndIncrement();
+        ChangeEvent event = new ChangeEvent(sequence, kind, room, reservation, System.currentTimeMillis());
+        int index = (int) sequence & mask;
+        while (true) {
+            ChangeEvent old = ring.get(index);
+            // A publisher a whole ring ahead got here first; this event is already lost
+            if (old != null && old.sequence > sequence) {
+                break;
+            }
+            if (ring.compareAndSet(index, old, event)) {
+                break;
+            }
+        }
+        if (waiting.get() > 0) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+        return sequence;
+    }
+
+    // Events published so far (claimed, strictly)
+    long published() {
+        return next.get();
+    }
+
+    // Events skipped by readers that fell behind, over all readers
+    long overruns() {
+        return overruns.sum();
+    }
+
+    // READING
+    // Reads from the next event published
+    Reader reader() {
+        return new Reader(next.get());
+    }
+
+    // Reads from the event after the given sequence; if that has already been overwritten the
+    // reader reports an overrun and starts from the newest
+    Reader reader(long after) {
+        return new Reader(Math.max(0, Math.min(after + 1, next.get())));
+    }
+
+    // One position on the bus; used by a single thread
+    final class Reader {
+        private long position;
+        private long missed;
+
+        private Reader(long position) {
+            this.position = position;
+        }
+
+        // Up to max events, waiting up to the timeout for the first; empty on timeout. A batch
+        // ends where events were lost, so the events returned all precede the gap reported by
+        // the next takeMissed().
+        List<ChangeEvent> poll(int max, long timeout, TimeUnit unit) throws InterruptedException {
+            List<ChangeEvent> batch = new ArrayList<>();
+            drain(batch, max);
+            if (!batch.isEmpty() || missed > 0 || timeout <= 0) {
+                return batch;
+            }
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (signal) {
+                waiting.incrementAndGet();
+                try {
+                    // Publishers check waiting after writing, so one of us sees the other
+                    while (!available()) {
+                        long left = deadline - System.nanoTime();
+                        if (left <= 0) {
+                            return batch;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(signal, left);
+                    }
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+            drain(batch, max);
+            return batch;
+        }
+
+        // Up to max events that are already published, without waiting
+        List<ChangeEvent> poll(int max) {
+            List<ChangeEvent> batch = new ArrayList<>();
+            drain(batch, max);
+            return batch;
+        }
+
+        // Events lost since the last call
+        long takeMissed() {
+            long result = missed;
+            missed = 0;
+            return result;
+        }
+
+        private boolean available() {
+            ChangeEvent event = ring.get((int) position & mask);
+            return event != null && event.sequence >= position;
+        }
+
+        private void drain(List<ChangeEvent> batch, int max) {
+            while (batch.size() < max) {
+                ChangeEvent event = ring.get((int) position & mask);
+                if (event == null || event.sequence < position) {
+                    return;
+                }
+                if (event.sequence > position) {
+                    // Lapped: skip to the newest events
+                    long newest = next.get();
+                    missed += newest - position;
+                    overruns.add(newest - position);
+                    position = newest;
+                    return;
+                }
+                batch.add(event);
+                position++;
+            }
+        }
+    }
+
+    // SUBSCRIBERS
+    // Delivers events from now on to the subscriber on a daemon thread of its own, at most
+    // maxBatch at a time
+    Subscription subscribe(String name, int maxBatch, Subscriber subscriber) {
+        Reader reader = reader();
+        Thread thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    List<ChangeEvent> batch = reader.poll(maxBatch, 1, TimeUnit.MINUTES);
+                    if (!batch.isEmpty()) {
+                        subscriber.onEvents(batch);
+                    }
+                    long missed = reader.takeMissed();
+                    if (missed > 0) {
+                        subscriber.onOverrun(missed);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    Log.error("Subscriber " + name + " failed", e);
+                }
+            }
+        }, "events-" + name);
+        thread.setDaemon(true);
+        thread.start();
+        return new Subscription(thread);
+    }
+
+    static final class Subscription {
+        private final Thread thread;
+
+        private Subscription(Thread thread) {
+            this.thread = thread;
+        }
+
+        // Stops delivery; a batch being delivered is finished first
+        void cancel() {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.Arrays;
+
+// A customer of one property, identified by normalized phone number (see GuestDirectory).
+// Reservations share the guest's name and phone strings instead of keeping copies, and the
+// guest keeps the IDs of its live reservations.
+class Guest {
+    final int id;
+    // As first booked; later bookings under another spelling are kept in names
+    final String name;
+    final String phone;
+    final String phoneKey;
+
+    private String[] names;
+    private long[] bookings = new long[2];
+    private int bookingCount;
+
+    Guest(int id, String name, String phone, String phoneKey) {
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+        this.phoneKey = phoneKey;
+        this.names = new String[]{name};
+    }
+
+    // The guest's copy of the name, or null if this spelling has not been seen
+    synchronized String knownName(String spelling) {
+        for (String n : names) {
+            if (n.equals(spelling)) {
+                return n;
+            }
+        }
+        return null;
+    }
+
+    // False if the spelling was already known
+    synchronized boolean addName(String spelling) {
+        if (knownName(spelling) != null) {
+            return false;
+        }
+        names = Arrays.copyOf(names, names.length + 1);
+        names[names.length - 1] = spelling;
+        return true;
+    }
+
+    synchronized String[] names() {
+        return names.clone();
+    }
+
+    synchronized void addBooking(long bookingId) {
+        if (bookingCount == bookings.length) {
+            bookings = Arrays.copyOf(bookings, bookingCount * 2);
+        }
+        bookings[bookingCount++] = bookingId;
+    }
+
+    // Linear in the guest's own bookings, which are few
+    synchronized void removeBooking(long bookingId) {
+        for (int i = bookingCount - 1; i >= 0; i--) {
+            if (bookings[i] == bookingId) {
+                System.arraycopy(bookings, i + 1, bookings, i, bookingCount - i - 1);
+                bookingCount--;
+                return;
+            }
+        }
+    }
+
+    synchronized long[] bookingIds() {
+        return Arrays.copyOf(bookings, bookingCount);
+    }
+
+    synchronized int bookingCount() {
+        return bookingCount;
+    }
+}
@@ -0,0 +1,231 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Deduplicated guests of one property. Reservations with the same phone number (compared by
+// digits only, so "555-0100" and "(555) 0100" match) belong to one Guest with an integer ID,
+// and share its name and phone strings, so repeat guests cost one set of strings.
+//
+// Type-ahead search: the distinct words of guests' names (each with the IDs of the guests using
+// it) and the phone numbers are kept in PrefixIndexes, so a query term is a range scan over
+// the words or numbers starting with it. Lookups stay logarithmic however many bookings there
+// are, and filing a booking under a known guest is a hash lookup.
+//
+// Guests are built from live reservations, so after a restart only guests with a live
+// booking are listed; a guest whose last booking is cancelled is kept until the next restart.
+class GuestDirectory {
+    // Upper bound on words and postings looked at per search, so a one-letter query stays fast
+    private static final int MAX_SCAN = 20000;
+
+    private final Map<String, Guest> byPhone = new ConcurrentHashMap<>();
+    private final Map<String, Postings> byNameToken = new ConcurrentHashMap<>();
+    private final PrefixIndex<Postings> nameTokens = new PrefixIndex<>();
+    private final PrefixIndex<Guest> phoneKeys = new PrefixIndex<>();
+    // By ID; guarded by this
+    private Guest[] guests = new Guest[1024];
+    private int guestCount;
+
+    // Guest IDs that have a token, in the order they were added
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        // Repeats come from the same guest indexing a token twice, right after each other
+        synchronized void add(int id) {
+            for (int i = size - 1; i >= 0 && i >= size - 4; i--) {
+                if (ids[i] == id) {
+                    return;
+                }
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        synchronized int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    // The guest with this phone number, created on first sight, with this spelling of the name
+    // among its names. Called before the reservation is built, so that it can be built with
+    // the guest's strings; a booking refused after this leaves the guest without bookings.
+    Guest guestOf(String name, String phone) {
+        String key = normalizePhone(phone);
+        Guest guest = byPhone.get(key);
+        if (guest == null) {
+            guest = byPhone.computeIfAbsent(key, k -> newGuest(name, phone, k));
+        }
+        if (guest.addName(name)) {
+            indexName(name, guest.id);
+        }
+        return guest;
+    }
+
+    // Files a reservation being stored under its guest
+    void register(Reservation res) {
+        res.guest.addBooking(res.id);
+    }
+
+    void unregister(Reservation res) {
+        res.guest.removeBooking(res.id);
+    }
+
+    private synchronized Guest newGuest(String name, String phone, String phoneKey) {
+        if (guestCount == guests.length) {
+            guests = Arrays.copyOf(guests, guestCount * 2);
+        }
+        Guest guest = new Guest(guestCount, name, phone, phoneKey);
+        guests[guestCount++] = guest;
+        indexName(name, guest.id);
+        phoneKeys.add(phoneKey, guest);
+        return guest;
+    }
+
+    private void indexName(String name, int guestId) {
+        for (String token : tokens(name)) {
+            Postings postings = byNameToken.get(token);
+            if (postings == null) {
+                Postings created = new Postings();
+                postings = byNameToken.putIfAbsent(token, created);
+                if (postings == null) {
+                    postings = created;
+                    nameTokens.add(token, created);
+                }
+            }
+            postings.add(guestId);
+        }
+    }
+
+    // Null if there is no such guest
+    synchronized Guest guest(int id) {
+        return id >= 0 && id < guestCount ? guests[id] : null;
+    }
+
+    Guest findByPhone(String phone) {
+        return phone == null ? null : byPhone.get(normalizePhone(phone));
+    }
+
+    synchronized int size() {
+        return guestCount;
+    }
+
+    // Guests matching every word of the query: each word must start a word of one of the
+    // guest's names (or the phone digits). A query that is all phone characters ("555-01")
+    // is looked up as a phone number prefix instead.
+    List<Guest> search(String query, int limit) {
+        List<Guest> matches = new ArrayList<>();
+        if (limit <= 0) {
+            return matches;
+        }
+        if (isPhoneLike(query)) {
+            return phoneKeys.withPrefix(normalizePhone(query), limit);
+        }
+        String[] terms = tokens(query);
+        if (terms.length == 0) {
+            return matches;
+        }
+        // The longest term has the fewest words starting with it
+        String seed = terms[0];
+        for (String term : terms) {
+            if (term.length() > seed.length()) {
+                seed = term;
+            }
+        }
+        Set<Integer> seen = new HashSet<>();
+        int scanned = 0;
+        for (Postings postings : nameTokens.withPrefix(seed, MAX_SCAN)) {
+            for (int id : postings.toArray()) {
+                if (++scanned > MAX_SCAN || matches.size() >= limit) {
+                    return matches;
+                }
+                if (seen.add(id)) {
+                    Guest guest = guest(id);
+                    if (guest != null && matchesAll(guest, terms)) {
+                        matches.add(guest);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static boolean matchesAll(Guest guest, String[] terms) {
+        String[] names = guest.names();
+        for (String term : terms) {
+            boolean found = guest.phoneKey.startsWith(term);
+            for (int i = 0; i < names.length && !found; i++) {
+                found = hasWordStartingWith(names[i], term);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same as checking tokens(text), without building them
+    private static boolean hasWordStartingWith(String text, String term) {
+        for (int i = 0; i + term.length() <= text.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+            if (wordStart && text.regionMatches(true, i, term, 0, term.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Digits only; a phone without digits is compared as trimmed lower-case text
+    static String normalizePhone(String phone) {
+        boolean digitsOnly = !phone.isEmpty();
+        for (int i = 0; i < phone.length() && digitsOnly; i++) {
+            digitsOnly = phone.charAt(i) >= '0' && phone.charAt(i) <= '9';
+        }
+        if (digitsOnly) {
+            return phone;
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.length() > 0 ? digits.toString() : phone.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isPhoneLike(String query) {
+        boolean digit = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if ("+-() ./".indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return digit;
+    }
+
+    // Lower-case words of letters and digits
+    static String[] tokens(String text) {
+        List<String> tokens = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+}
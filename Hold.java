@@ -0,0 +1,52 @@
+import java.time.LocalDate;
+
+// A room kept off sale for a stay while the guest pays. The nights are taken in the
+// availability index as if booked, at the price quoted when the hold was made, until the
+// hold is confirmed into a Reservation, released, or runs out (BookingService schedules
+// its expiry on a TimerWheel). Holds live in memory only: a restart releases them.
+class Hold extends TimerWheel.Timer {
+    enum State { ACTIVE, CONFIRMED, RELEASED, EXPIRED }
+
+    final long id;
+    final String holdId;
+    final String customerName;
+    final String customerPhone;
+    final Room room;
+    final LocalDate checkIn;
+    final LocalDate checkOut;
+    final int nights;
+    final long totalCents;
+    // Wall-clock time the hold runs out, for display
+    final long expiresAtMillis;
+    // Changes under the room's lock in BookingService
+    volatile State state = State.ACTIVE;
+    private final BookingService service;
+
+    Hold(long id, String customerName, String customerPhone, Room room, LocalDate checkIn, int nights,
+         long totalCents, long expiresAtMillis, BookingService service) {
+        this.id = id;
+        this.holdId = "HD" + id;
+        this.customerName = customerName;
+        this.customerPhone = customerPhone;
+        this.room = room;
+        this.checkIn = checkIn;
+        this.checkOut = checkIn.plusDays(nights);
+        this.nights = nights;
+        this.totalCents = totalCents;
+        this.expiresAtMillis = expiresAtMillis;
+        this.service = service;
+    }
+
+    @Override
+    void expire() {
+        service.expireHold(this);
+    }
+
+    // "HD42" -> 42, or -1 if the text is not a hold ID
+    static long idOf(String holdId) {
+        if (holdId == null || !holdId.startsWith("HD")) {
+            return -1;
+        }
+        return Reservation.idOf("BK" + holdId.substring(2));
+    }
+}
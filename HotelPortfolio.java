@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+// All hotels of the group, one shard per property. Every property has its own BookingService,
+// RoomRepository, availability index, lock stripes, write-ahead log and archive, so room
+// numbers only need to be unique within a property and bookings in different hotels never
+// touch the same lock or index.
+//
+// Cross-property queries ("any Suite free in the city") fan out to every shard on the
+// fork/join pool and merge the answers; nothing global is locked while they run.
+class HotelPortfolio {
+    // The property that existed before there were several; it keeps the top-level data directory
+    static final String DEFAULT_PROPERTY = "main";
+
+    private static final Pattern PROPERTY_ID = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+
+    // Creates (or reopens) the storage of one property
+    interface Storage {
+        BookingService open(String propertyId) throws IOException;
+    }
+
+    // A free room and the hotel it belongs to
+    static class PropertyRoom {
+        final String propertyId;
+        final Room room;
+
+        PropertyRoom(String propertyId, Room room) {
+            this.propertyId = propertyId;
+            this.room = room;
+        }
+    }
+
+    // Cheapest first, then by hotel and room number, so results do not depend on shard timing
+    private static final Comparator<PropertyRoom> BY_PRICE = (a, b) -> {
+        int c = Long.compare(a.room.priceCents, b.room.priceCents);
+        if (c == 0) c = a.propertyId.compareTo(b.propertyId);
+        if (c == 0) c = a.room.roomNumber.compareTo(b.room.roomNumber);
+        return c;
+    };
+
+    private final ConcurrentSkipListMap<String, BookingService> properties = new ConcurrentSkipListMap<>();
+    private final Storage storage;
+    private final ForkJoinPool pool;
+
+    HotelPortfolio(Storage storage) {
+        this(storage, ForkJoinPool.commonPool());
+    }
+
+    HotelPortfolio(Storage storage, ForkJoinPool pool) {
+        this.storage = storage;
+        this.pool = pool;
+    }
+
+    // Null if there is no such property
+    BookingService property(String propertyId) {
+        return propertyId == null ? null : properties.get(propertyId);
+    }
+
+    BookingService require(String propertyId) throws BookingException {
+        BookingService service = property(propertyId);
+        if (service == null) {
+            throw new BookingException(BookingException.Reason.NOT_FOUND, "Unknown Property",
+                "There is no property \"" + propertyId + "\"!");
+        }
+        return service;
+    }
+
+    BookingService defaultProperty() {
+        return properties.get(DEFAULT_PROPERTY);
+    }
+
+    // Sorted by ID
+    NavigableSet<String> propertyIds() {
+        return properties.keySet();
+    }
+
+    BookingService addProperty(String propertyId) throws BookingException, IOException {
+        if (propertyId == null || !PROPERTY_ID.matcher(propertyId).matches()) {
+            throw new BookingException(BookingException.Reason.INVALID, "Invalid Property",
+                "Property IDs are 1-32 letters, digits, '-' or '_'!");
+        }
+        // Opening replays the property's log, so it is done once and outside any shard
+        synchronized (this) {
+            if (properties.containsKey(propertyId)) {
+                throw new BookingException(BookingException.Reason.CONFLICT, "Duplicate Property",
+                    "Property \"" + propertyId + "\" already exists!");
+            }
+            BookingService service = storage.open(propertyId);
+            properties.put(propertyId, service);
+            return service;
+        }
+    }
+
+    // FAN-OUT QUERIES
+    // Rooms free for the whole stay in every property; type null means any type. The stay is
+    // checked against every property's horizon first, as a search of one property would be.
+    List<PropertyRoom> freeRooms(String type, LocalDate from, int nights) throws BookingException {
+        LocalDate to = null;
+        for (BookingService service : properties.values()) {
+            to = service.checkSearch(from, nights);
+        }
+        LocalDate checkOut = to;
+        List<List<PropertyRoom>> parts = fanOut(entry -> {
+            RoomRepository repository = entry.getValue().repository();
+            List<PropertyRoom> free = new ArrayList<>();
+            for (String t : type == null ? repository.roomTypes() : Collections.singleton(type)) {
+                for (Room room : repository.freeRooms(t, from, checkOut)) {
+                    free.add(new PropertyRoom(entry.getKey(), room));
+                }
+            }
+            return free;
+        });
+        List<PropertyRoom> merged = new ArrayList<>();
+        for (List<PropertyRoom> part : parts) {
+            merged.addAll(part);
+        }
+        merged.sort(BY_PRICE);
+        return merged;
+    }
+
+    // Report summary of every property, by ID
+    Map<String, ReportSummary> summaries() {
+        List<Map.Entry<String, ReportSummary>> parts = fanOut(entry ->
+            new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().summary()));
+        Map<String, ReportSummary> summaries = new TreeMap<>();
+        for (Map.Entry<String, ReportSummary> part : parts) {
+            summaries.put(part.getKey(), part.getValue());
+        }
+        return summaries;
+    }
+
+    // The group as a whole: every count and amount summed, room types merged by name
+    static ReportSummary combine(Iterable<ReportSummary> summaries) {
+        int rooms = 0;
+        int bookedTonight = 0;
+        int bookings = 0;
+        long revenueCents = 0;
+        long archivedBookings = 0;
+        long archivedRevenueCents = 0;
+        TreeMap<String, long[]> byType = new TreeMap<>();
+        for (ReportSummary summary : summaries) {
+            rooms += summary.totalRooms;
+            bookedTonight += summary.bookedTonight;
+            bookings += summary.totalBookings;
+            revenueCents += summary.totalRevenueCents;
+            archivedBookings += summary.archivedBookings;
+            archivedRevenueCents += summary.archivedRevenueCents;
+            for (ReportSummary.TypeSummary line : summary.byType) {
+                long[] totals = byType.computeIfAbsent(line.type, t -> new long[3]);
+                totals[0] += line.rooms;
+                totals[1] += line.bookings;
+                totals[2] += line.revenueCents;
+            }
+        }
+        List<ReportSummary.TypeSummary> lines = new ArrayList<>(byType.size());
+        for (Map.Entry<String, long[]> entry : byType.entrySet()) {
+            long[] totals = entry.getValue();
+            lines.add(new ReportSummary.TypeSummary(entry.getKey(), (int) totals[0], (int) totals[1], totals[2]));
+        }
+        return new ReportSummary(rooms, bookedTonight, bookings, revenueCents, archivedBookings, archivedRevenueCents, lines);
+    }
+
+    // Runs the query on every property in parallel; results come back in property ID order
+    private <T> List<T> fanOut(Function<Map.Entry<String, BookingService>, T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (Map.Entry<String, BookingService> entry : properties.entrySet()) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(entry), pool));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+}
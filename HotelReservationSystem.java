@@ -1,570 +1,1619 @@
-import java.awt.*;
-import java.util.ArrayList;
-import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
-
-public class HotelReservationSystem extends JFrame {
-    // Data storage
-    private ArrayList<Room> rooms = new ArrayList<>();
-    private ArrayList<Reservation> reservations = new ArrayList<>();
-    
-    // UI Components
-    private JTabbedPane tabbedPane;
-    private DefaultTableModel roomTableModel, reservationTableModel;
-    private JTable roomTable, reservationTable;
-
-    public HotelReservationSystem() {
-        setupSampleRooms();
-        setupUI();
-        
-        setTitle("Hotel Reservation System");
-        setSize(900, 600);
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setLocationRelativeTo(null);
-    }
-
-    private void setupSampleRooms() {
-        // Add some sample rooms
-        rooms.add(new Room("101", "Single", 50.0));
-        rooms.add(new Room("102", "Single", 50.0));
-        rooms.add(new Room("201", "Double", 80.0));
-        rooms.add(new Room("202", "Double", 80.0));
-        rooms.add(new Room("301", "Suite", 120.0));
-    }
-
-    private void setupUI() {
-        tabbedPane = new JTabbedPane();
-        tabbedPane.setFont(new Font("Arial", Font.PLAIN, 14));
-        
-        // Add tabs
-        tabbedPane.addTab("📋 View Rooms", createViewRoomsPanel());
-        tabbedPane.addTab("✅ Book Room", createBookRoomPanel());
-        tabbedPane.addTab("📝 My Bookings", createMyBookingsPanel());
-        tabbedPane.addTab("⚙️ Admin", createAdminPanel());
-        
-        add(tabbedPane);
-    }
-
-    // TAB 1: VIEW ROOMS
-    private JPanel createViewRoomsPanel() {
-        JPanel panel = new JPanel(new BorderLayout(10, 10));
-        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-
-        JLabel title = new JLabel("Available Rooms", SwingConstants.CENTER);
-        title.setFont(new Font("Arial", Font.BOLD, 20));
-        
-        // Create table
-        String[] columns = {"Room Number", "Type", "Price per Night", "Status"};
-        roomTableModel = new DefaultTableModel(columns, 0);
-        roomTable = new JTable(roomTableModel);
-        roomTable.setFont(new Font("Arial", Font.PLAIN, 14));
-        roomTable.setRowHeight(25);
-        JScrollPane scrollPane = new JScrollPane(roomTable);
-
-        JButton refreshBtn = new JButton("🔄 Refresh");
-        refreshBtn.setFont(new Font("Arial", Font.BOLD, 14));
-        refreshBtn.addActionListener(e -> updateRoomTable());
-
-        panel.add(title, BorderLayout.NORTH);
-        panel.add(scrollPane, BorderLayout.CENTER);
-        panel.add(refreshBtn, BorderLayout.SOUTH);
-
-        updateRoomTable();
-        return panel;
-    }
-
-    // TAB 2: BOOK ROOM
-    private JPanel createBookRoomPanel() {
-        JPanel panel = new JPanel();
-        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
-        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-
-        JLabel title = new JLabel("Book a Room");
-        title.setFont(new Font("Arial", Font.BOLD, 20));
-        title.setAlignmentX(Component.CENTER_ALIGNMENT);
-
-        // Form panel
-        JPanel formPanel = new JPanel(new GridLayout(6, 2, 10, 10));
-        formPanel.setBorder(BorderFactory.createEmptyBorder(20, 50, 20, 50));
-
-        JLabel nameLabel = new JLabel("Your Name:");
-        nameLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        JTextField nameField = new JTextField();
-        nameField.setFont(new Font("Arial", Font.PLAIN, 14));
-
-        JLabel phoneLabel = new JLabel("Phone Number:");
-        phoneLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        JTextField phoneField = new JTextField();
-        phoneField.setFont(new Font("Arial", Font.PLAIN, 14));
-
-        JLabel roomLabel = new JLabel("Room Number:");
-        roomLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        JTextField roomField = new JTextField();
-        roomField.setFont(new Font("Arial", Font.PLAIN, 14));
-
-        JLabel nightsLabel = new JLabel("Number of Nights:");
-        nightsLabel.setFont(new Font("Arial", Font.PLAIN, 14));
-        JTextField nightsField = new JTextField();
-        nightsField.setFont(new Font("Arial", Font.PLAIN, 14));
-
-        formPanel.add(nameLabel);
-        formPanel.add(nameField);
-        formPanel.add(phoneLabel);
-        formPanel.add(phoneField);
-        formPanel.add(roomLabel);
-        formPanel.add(roomField);
-        formPanel.add(nightsLabel);
-        formPanel.add(nightsField);
-
-        JButton bookBtn = new JButton("✅ Book This Room");
-        bookBtn.setFont(new Font("Arial", Font.BOLD, 16));
-        bookBtn.setBackground(new Color(76, 175, 80));
-        bookBtn.setForeground(Color.WHITE);
-        bookBtn.setOpaque(true);
-        bookBtn.setBorderPainted(false);
-        bookBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
-        
-        bookBtn.addActionListener(e -> {
-            String name = nameField.getText().trim();
-            String phone = phoneField.getText().trim();
-            String roomNum = roomField.getText().trim();
-            String nightsStr = nightsField.getText().trim();
-
-            // Check if all fields are filled
-            if (name.isEmpty() || phone.isEmpty() || roomNum.isEmpty() || nightsStr.isEmpty()) {
-                JOptionPane.showMessageDialog(this, 
-                    "Please fill in all fields!", 
-                    "Missing Information", 
-                    JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            // Find the room
-            Room selectedRoom = null;
-            for (Room room : rooms) {
-                if (room.roomNumber.equals(roomNum)) {
-                    selectedRoom = room;
-                    break;
-                }
-            }
-
-            if (selectedRoom == null) {
-                JOptionPane.showMessageDialog(this, 
-                    "Room not found! Please check the room number.", 
-                    "Error", 
-                    JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-
-            if (!selectedRoom.available) {
-                JOptionPane.showMessageDialog(this, 
-                    "Sorry, this room is already booked!", 
-                    "Room Unavailable", 
-                    JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            try {
-                int nights = Integer.parseInt(nightsStr);
-                if (nights <= 0) {
-                    JOptionPane.showMessageDialog(this, 
-                        "Number of nights must be greater than 0!", 
-                        "Invalid Input", 
-                        JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-
-                double total = selectedRoom.price * nights;
-
-                // Create reservation
-                Reservation newBooking = new Reservation(name, phone, selectedRoom, nights, total);
-                reservations.add(newBooking);
-                selectedRoom.available = false;
-
-                JOptionPane.showMessageDialog(this, 
-                    "Booking Successful! 🎉\n\n" +
-                    "Name: " + name + "\n" +
-                    "Room: " + roomNum + " (" + selectedRoom.type + ")\n" +
-                    "Nights: " + nights + "\n" +
-                    "Total Cost: $" + total + "\n\n" +
-                    "Booking ID: " + newBooking.bookingId, 
-                    "Success", 
-                    JOptionPane.INFORMATION_MESSAGE);
-
-                // Clear fields
-                nameField.setText("");
-                phoneField.setText("");
-                roomField.setText("");
-                nightsField.setText("");
-
-                updateRoomTable();
-                updateReservationTable();
-
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(this, 
-                    "Please enter a valid number for nights!", 
-                    "Invalid Input", 
-                    JOptionPane.ERROR_MESSAGE);
-            }
-        });
-
-        panel.add(Box.createVerticalStrut(20));
-        panel.add(title);
-        panel.add(Box.createVerticalStrut(20));
-        panel.add(formPanel);
-        panel.add(Box.createVerticalStrut(20));
-        panel.add(bookBtn);
-
-        return panel;
-    }
-
-    // TAB 3: MY BOOKINGS
-    private JPanel createMyBookingsPanel() {
-        JPanel panel = new JPanel(new BorderLayout(10, 10));
-        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-
-        JLabel title = new JLabel("My Bookings", SwingConstants.CENTER);
-        title.setFont(new Font("Arial", Font.BOLD, 20));
-
-        // Create table
-        String[] columns = {"Booking ID", "Name", "Room", "Nights", "Total Cost"};
-        reservationTableModel = new DefaultTableModel(columns, 0);
-        reservationTable = new JTable(reservationTableModel);
-        reservationTable.setFont(new Font("Arial", Font.PLAIN, 14));
-        reservationTable.setRowHeight(25);
-        JScrollPane scrollPane = new JScrollPane(reservationTable);
-
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
-        
-        JButton refreshBtn = new JButton("🔄 Refresh");
-        refreshBtn.setFont(new Font("Arial", Font.BOLD, 14));
-        refreshBtn.addActionListener(e -> updateReservationTable());
-
-        JButton cancelBtn = new JButton("❌ Cancel Booking");
-        cancelBtn.setFont(new Font("Arial", Font.BOLD, 14));
-        cancelBtn.setBackground(new Color(244, 67, 54));
-        cancelBtn.setForeground(Color.WHITE);
-        cancelBtn.setOpaque(true);
-        cancelBtn.setBorderPainted(false);
-        cancelBtn.addActionListener(e -> {
-            int selectedRow = reservationTable.getSelectedRow();
-            if (selectedRow == -1) {
-                JOptionPane.showMessageDialog(this, 
-                    "Please select a booking to cancel!", 
-                    "No Selection", 
-                    JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            String bookingId = (String) reservationTableModel.getValueAt(selectedRow, 0);
-            
-            int confirm = JOptionPane.showConfirmDialog(this,
-                "Are you sure you want to cancel booking " + bookingId + "?",
-                "Confirm Cancellation",
-                JOptionPane.YES_NO_OPTION);
-
-            if (confirm == JOptionPane.YES_OPTION) {
-                // Find and remove reservation
-                for (int i = 0; i < reservations.size(); i++) {
-                    if (reservations.get(i).bookingId.equals(bookingId)) {
-                        Reservation res = reservations.get(i);
-                        res.room.available = true;
-                        reservations.remove(i);
-                        break;
-                    }
-                }
-
-                JOptionPane.showMessageDialog(this, 
-                    "Booking cancelled successfully!", 
-                    "Cancelled", 
-                    JOptionPane.INFORMATION_MESSAGE);
-
-                updateReservationTable();
-                updateRoomTable();
-            }
-        });
-
-        JButton reportBtn = new JButton("📊 Generate Report");
-        reportBtn.setFont(new Font("Arial", Font.BOLD, 14));
-        reportBtn.setBackground(new Color(33, 150, 243));
-        reportBtn.setForeground(Color.WHITE);
-        reportBtn.setOpaque(true);
-        reportBtn.setBorderPainted(false);
-        reportBtn.addActionListener(e -> generateReport());
-
-        buttonPanel.add(refreshBtn);
-        buttonPanel.add(cancelBtn);
-        buttonPanel.add(reportBtn);
-
-        panel.add(title, BorderLayout.NORTH);
-        panel.add(scrollPane, BorderLayout.CENTER);
-        panel.add(buttonPanel, BorderLayout.SOUTH);
-
-        return panel;
-    }
-
-    // TAB 4: ADMIN PANEL
-    private JPanel createAdminPanel() {
-        JPanel panel = new JPanel();
-        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
-        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-
-        JLabel title = new JLabel("Admin Panel - Manage Rooms");
-        title.setFont(new Font("Arial", Font.BOLD, 20));
-        title.setAlignmentX(Component.CENTER_ALIGNMENT);
-
-        // Add Room Form
-        JPanel addPanel = new JPanel(new GridLayout(4, 2, 10, 10));
-        addPanel.setBorder(BorderFactory.createTitledBorder("Add New Room"));
-
-        JLabel roomNumLabel = new JLabel("Room Number:");
-        JTextField roomNumField = new JTextField();
-
-        JLabel typeLabel = new JLabel("Room Type:");
-        JComboBox<String> typeCombo = new JComboBox<>(new String[]{"Single", "Double", "Suite", "Deluxe"});
-
-        JLabel priceLabel = new JLabel("Price per Night ($):");
-        JTextField priceField = new JTextField();
-
-        addPanel.add(roomNumLabel);
-        addPanel.add(roomNumField);
-        addPanel.add(typeLabel);
-        addPanel.add(typeCombo);
-        addPanel.add(priceLabel);
-        addPanel.add(priceField);
-
-        JButton addBtn = new JButton("➕ Add Room");
-        addBtn.setFont(new Font("Arial", Font.BOLD, 14));
-        addBtn.setBackground(new Color(76, 175, 80));
-        addBtn.setForeground(Color.WHITE);
-        addBtn.setOpaque(true);
-        addBtn.setBorderPainted(false);
-        addBtn.addActionListener(e -> {
-            String roomNum = roomNumField.getText().trim();
-            String type = (String) typeCombo.getSelectedItem();
-            String priceStr = priceField.getText().trim();
-
-            if (roomNum.isEmpty() || priceStr.isEmpty()) {
-                JOptionPane.showMessageDialog(this, 
-                    "Please fill in all fields!", 
-                    "Missing Information", 
-                    JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            // Check if room already exists
-            for (Room room : rooms) {
-                if (room.roomNumber.equals(roomNum)) {
-                    JOptionPane.showMessageDialog(this, 
-                        "Room number already exists!", 
-                        "Duplicate Room", 
-                        JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-            }
-
-            try {
-                double price = Double.parseDouble(priceStr);
-                if (price <= 0) {
-                    JOptionPane.showMessageDialog(this, 
-                        "Price must be greater than 0!", 
-                        "Invalid Price", 
-                        JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-
-                rooms.add(new Room(roomNum, type, price));
-                
-                JOptionPane.showMessageDialog(this, 
-                    "Room added successfully!", 
-                    "Success", 
-                    JOptionPane.INFORMATION_MESSAGE);
-
-                roomNumField.setText("");
-                priceField.setText("");
-                updateRoomTable();
-
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(this, 
-                    "Please enter a valid price!", 
-                    "Invalid Input", 
-                    JOptionPane.ERROR_MESSAGE);
-            }
-        });
-
-        // Remove Room Button
-        JButton removeBtn = new JButton("➖ Remove Selected Room");
-        removeBtn.setFont(new Font("Arial", Font.BOLD, 14));
-        removeBtn.setBackground(new Color(244, 67, 54));
-        removeBtn.setForeground(Color.WHITE);
-        removeBtn.setOpaque(true);
-        removeBtn.setBorderPainted(false);
-        removeBtn.addActionListener(e -> {
-            int selectedRow = roomTable.getSelectedRow();
-            if (selectedRow == -1) {
-                JOptionPane.showMessageDialog(this, 
-                    "Please select a room from the 'View Rooms' tab!", 
-                    "No Selection", 
-                    JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            String roomNum = (String) roomTableModel.getValueAt(selectedRow, 0);
-            
-            // Find the room
-            Room roomToRemove = null;
-            for (Room room : rooms) {
-                if (room.roomNumber.equals(roomNum)) {
-                    roomToRemove = room;
-                    break;
-                }
-            }
-
-            if (roomToRemove != null && !roomToRemove.available) {
-                JOptionPane.showMessageDialog(this, 
-                    "Cannot remove a room that is currently booked!", 
-                    "Room Occupied", 
-                    JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            int confirm = JOptionPane.showConfirmDialog(this,
-                "Are you sure you want to remove room " + roomNum + "?",
-                "Confirm Removal",
-                JOptionPane.YES_NO_OPTION);
-
-            if (confirm == JOptionPane.YES_OPTION) {
-                rooms.remove(roomToRemove);
-                JOptionPane.showMessageDialog(this, 
-                    "Room removed successfully!", 
-                    "Success", 
-                    JOptionPane.INFORMATION_MESSAGE);
-                updateRoomTable();
-            }
-        });
-
-        panel.add(title);
-        panel.add(Box.createVerticalStrut(20));
-        panel.add(addPanel);
-        panel.add(Box.createVerticalStrut(10));
-        panel.add(addBtn);
-        panel.add(Box.createVerticalStrut(20));
-        panel.add(removeBtn);
-
-        return panel;
-    }
-
-    private void updateRoomTable() {
-        roomTableModel.setRowCount(0);
-        for (Room room : rooms) {
-            roomTableModel.addRow(new Object[]{
-                room.roomNumber,
-                room.type,
-                "$" + room.price,
-                room.available ? "✅ Available" : "❌ Booked"
-            });
-        }
-    }
-
-    private void updateReservationTable() {
-        reservationTableModel.setRowCount(0);
-        for (Reservation res : reservations) {
-            reservationTableModel.addRow(new Object[]{
-                res.bookingId,
-                res.customerName,
-                res.room.roomNumber + " (" + res.room.type + ")",
-                res.nights,
-                "$" + res.totalCost
-            });
-        }
-    }
-
-    private void generateReport() {
-        StringBuilder report = new StringBuilder();
-        report.append("===== HOTEL BOOKING REPORT =====\n\n");
-        
-        report.append("📊 SUMMARY:\n");
-        report.append("Total Rooms: ").append(rooms.size()).append("\n");
-        
-        int availableCount = 0;
-        for (Room room : rooms) {
-            if (room.available) availableCount++;
-        }
-        report.append("Available Rooms: ").append(availableCount).append("\n");
-        report.append("Booked Rooms: ").append(rooms.size() - availableCount).append("\n");
-        report.append("Total Bookings: ").append(reservations.size()).append("\n\n");
-        
-        double totalRevenue = 0;
-        for (Reservation res : reservations) {
-            totalRevenue += res.totalCost;
-        }
-        report.append("Total Revenue: $").append(totalRevenue).append("\n\n");
-        
-        report.append("📋 BOOKING DETAILS:\n");
-        report.append("----------------------------------------\n");
-        for (Reservation res : reservations) {
-            report.append("Booking ID: ").append(res.bookingId).append("\n");
-            report.append("Customer: ").append(res.customerName).append("\n");
-            report.append("Phone: ").append(res.customerPhone).append("\n");
-            report.append("Room: ").append(res.room.roomNumber).append(" (").append(res.room.type).append(")\n");
-            report.append("Nights: ").append(res.nights).append("\n");
-            report.append("Total: $").append(res.totalCost).append("\n");
-            report.append("----------------------------------------\n");
-        }
-
-        JTextArea textArea = new JTextArea(report.toString());
-        textArea.setEditable(false);
-        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        scrollPane.setPreferredSize(new Dimension(500, 400));
-        
-        JOptionPane.showMessageDialog(this, scrollPane, 
-            "Booking Report", JOptionPane.INFORMATION_MESSAGE);
-    }
-
-    // Simple Room class
-    static class Room {
-        String roomNumber;
-        String type;
-        double price;
-        boolean available;
-
-        Room(String roomNumber, String type, double price) {
-            this.roomNumber = roomNumber;
-            this.type = type;
-            this.price = price;
-            this.available = true;
-        }
-    }
-
-    // Simple Reservation class
-    static class Reservation {
-        static int nextId = 1;
-        String bookingId;
-        String customerName;
-        String customerPhone;
-        Room room;
-        int nights;
-        double totalCost;
-
-        Reservation(String customerName, String customerPhone, Room room, int nights, double totalCost) {
-            this.bookingId = "BK" + nextId++;
-            this.customerName = customerName;
-            this.customerPhone = customerPhone;
-            this.room = room;
-            this.nights = nights;
-            this.totalCost = totalCost;
-        }
-    }
-
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> {
-            try {
-                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            new HotelReservationSystem().setVisible(true);
-        });
-    }
+import java.awt.*;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
+import javax.swing.text.JTextComponent;
+
+// One window per property; every window works on its own property's shard
+public class HotelReservationSystem extends JFrame {
+    private static final long serialVersionUID = 1L;
+
+    // Data storage
+    private final HotelPortfolio portfolio;
+    private final String propertyId;
+    private final RoomRepository repository;
+    private final BookingService bookingService;
+    // Service calls, lookups and reports run here instead of on the Event Dispatch Thread
+    private final BackgroundTasks tasks = new BackgroundTasks();
+    private final Runnable roomRefresh;
+    // View Rooms lists this filter, a page at a time as the table is scrolled
+    private static final int ROOM_PAGE = 200;
+    private static final long HOLD_MILLIS = 15 * 60 * 1000;
+    private volatile RoomCatalog.Query roomQuery;
+    private boolean loadingRoomPage;
+    private final Runnable reservationRefresh;
+    // My Bookings shows only these guests' bookings when set (name or phone, as typed)
+    private volatile String guestFilter = "";
+    
+    // UI Components
+    private JTabbedPane tabbedPane;
+    // Builders of the tabs not built yet, by tab index
+    private final List<Supplier<JPanel>> tabBuilders = new ArrayList<>();
+    // Created up front so change events have somewhere to go before the tabs are built
+    private final RoomTableModel roomTableModel;
+    private final ReservationTableModel reservationTableModel;
+    private JTable roomTable, reservationTable;
+    private final EventBus.Subscription tableUpdates;
+    // Sequence of the last change event applied to the tables; only touched on the EDT
+    private long appliedThrough = -1;
+    // Run once the window has been painted for the first time
+    private Runnable onFirstFrame;
+
+    public HotelReservationSystem(HotelPortfolio portfolio, String propertyId) {
+        this.portfolio = portfolio;
+        this.propertyId = propertyId;
+        this.bookingService = portfolio.property(propertyId);
+        this.repository = bookingService.repository();
+        this.roomQuery = RoomCatalog.Query.all(bookingService.today());
+        this.roomTableModel = new RoomTableModel(repository.availability(), bookingService::today);
+        this.reservationTableModel = new ReservationTableModel();
+        // Copies are taken on a worker; the models are only touched on the EDT. Each copy
+        // notes how many events had been published when it was taken, so the events the EDT
+        // applied while it was being taken can be applied again on top of it.
+        this.roomRefresh = tasks.coalescing(() -> {
+            RoomCatalog.Query query = roomQuery;
+            long published = bookingService.events().published();
+            return new Loaded<>(published, new AbstractMap.SimpleImmutableEntry<>(query, repository.queryRooms(query, null, ROOM_PAGE)));
+        }, firstPage -> {
+            long start = System.nanoTime();
+            roomTableModel.reload(firstPage.rows.getKey(), firstPage.rows.getValue(), ROOM_PAGE);
+            replayEvents(firstPage.published, true, false);
+            bookingService.metrics().tableRefresh.succeeded(start);
+        });
+        this.reservationRefresh = tasks.coalescing(() -> {
+            String filter = guestFilter;
+            long published = bookingService.events().published();
+            return new Loaded<>(published, loadReservations(filter));
+        }, reservations -> {
+            long start = System.nanoTime();
+            reservationTableModel.reload(reservations.rows);
+            replayEvents(reservations.published, false, true);
+            bookingService.metrics().tableRefresh.succeeded(start);
+        });
+        // Subscribed before the first load, so every change is either in the load or arrives as
+        // an event after it; events that overtake a load are replayed onto it (replayEvents)
+        this.tableUpdates = subscribeTables();
+        setupUI();
+        
+        boolean main = propertyId.equals(HotelPortfolio.DEFAULT_PROPERTY);
+        setTitle(main ? "Hotel Reservation System" : "Hotel Reservation System - " + propertyId);
+        setSize(900, 600);
+        // Closing another property's window leaves the application running
+        setDefaultCloseOperation(main ? JFrame.EXIT_ON_CLOSE : JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+    }
+
+    // Opens every property, restoring saved data from --data-dir (default hotel-data) unless
+    // --in-memory is given. The default property lives in the data directory itself and every
+    // other one in properties/<id> below it. Sample rooms are only added to the default
+    // property, on the very first run. Directories there that are not a property ID
+    // (lost+found, a backup copy) are skipped with a warning.
+    static HotelPortfolio openPortfolio(String[] args) throws IOException {
+        boolean inMemory = Arrays.asList(args).contains("--in-memory");
+        Path dataDir = Paths.get(optionValue(args, "--data-dir", "hotel-data"));
+        HotelPortfolio portfolio = new HotelPortfolio(id -> inMemory ? openInMemory(id) : openProperty(id,
+            id.equals(HotelPortfolio.DEFAULT_PROPERTY) ? dataDir : dataDir.resolve("properties").resolve(id)));
+        try {
+            portfolio.addProperty(HotelPortfolio.DEFAULT_PROPERTY);
+            Path propertiesDir = dataDir.resolve("properties");
+            if (!inMemory && Files.isDirectory(propertiesDir)) {
+                try (DirectoryStream<Path> dirs = Files.newDirectoryStream(propertiesDir, Files::isDirectory)) {
+                    for (Path dir : dirs) {
+                        try {
+                            portfolio.addProperty(dir.getFileName().toString());
+                        } catch (BookingException e) {
+                            System.err.println("Skipping " + dir + ": " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (BookingException e) {
+            throw new IOException("Unusable property directory: " + e.getMessage(), e);
+        }
+        return portfolio;
+    }
+
+    private static BookingService openInMemory(String propertyId) {
+        BookingService service = newService(propertyId);
+        if (propertyId.equals(HotelPortfolio.DEFAULT_PROPERTY)) {
+            addSampleRooms(service);
+        }
+        return service;
+    }
+
+    private static BookingService newService(String propertyId) {
+        BookingService service = new BookingService(new RoomRepository());
+        try {
+            JmxMetrics.register(service.metrics(), propertyId);
+        } catch (JMException e) {
+            System.err.println("Booking metrics are not available over JMX: " + e.getMessage());
+        }
+        return service;
+    }
+
+    private static BookingService openProperty(String propertyId, Path dataDir) throws IOException {
+        BookingService service = newService(propertyId);
+        long start = System.nanoTime();
+        WriteAheadLog log = WriteAheadLog.open(dataDir, service);
+        System.out.println("Recovered " + service.repository().roomCount() + " rooms and "
+            + service.repository().reservationCount() + " reservations from " + dataDir
+            + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+        ReservationArchive archive = ReservationArchive.open(dataDir.resolve("archive"));
+        int settled = archive.reconcile(service.repository());
+        if (settled > 0) {
+            System.out.println("Settled " + settled + " archived bookings from an interrupted run");
+        }
+        service.setArchive(archive);
+        service.setPricingFile(dataDir.resolve("pricing.txt"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                log.close();
+                archive.close();
+            } catch (IOException e) {
+                Log.error("Closing the data files failed", e);
+            }
+        }));
+        if (log.isFresh() && propertyId.equals(HotelPortfolio.DEFAULT_PROPERTY)) {
+            addSampleRooms(service);
+        }
+        return service;
+    }
+
+    // "--name value" or "--name=value"
+    static String optionValue(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(name) && i + 1 < args.length) {
+                return args[i + 1];
+            }
+            if (args[i].startsWith(name + "=")) {
+                return args[i].substring(name.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    // Shared with the headless API so both start with the same inventory
+    static void addSampleRooms(BookingService service) {
+        try {
+            service.addRoom("101", "Single", 5000);
+            service.addRoom("102", "Single", 5000);
+            service.addRoom("201", "Double", 8000);
+            service.addRoom("202", "Double", 8000);
+            service.addRoom("301", "Suite", 12000);
+        } catch (BookingException e) {
+            Log.error("Adding the sample rooms failed", e);
+        }
+    }
+
+    private void setupUI() {
+        tabbedPane = new JTabbedPane();
+        tabbedPane.setFont(Styles.TEXT);
+        
+        // Add tabs; each is built, and loads its data, the first time it is selected
+        addLazyTab("📋 View Rooms", this::createViewRoomsPanel);
+        addLazyTab("✅ Book Room", this::createBookRoomPanel);
+        addLazyTab("📝 My Bookings", this::createMyBookingsPanel);
+        addLazyTab("⚙️ Admin", this::createAdminPanel);
+        tabbedPane.addChangeListener(e -> buildTab(tabbedPane.getSelectedIndex()));
+        buildTab(0);
+        
+        add(tabbedPane);
+    }
+
+    private void addLazyTab(String title, Supplier<JPanel> builder) {
+        tabbedPane.addTab(title, new JPanel());
+        tabBuilders.add(builder);
+    }
+
+    private void buildTab(int index) {
+        Supplier<JPanel> builder = index < 0 ? null : tabBuilders.get(index);
+        if (builder != null) {
+            tabBuilders.set(index, null);
+            tabbedPane.setComponentAt(index, builder.get());
+        }
+    }
+
+    // TAB 1: VIEW ROOMS
+    private JPanel createViewRoomsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel title = new JLabel("Available Rooms", SwingConstants.CENTER);
+        title.setFont(Styles.TITLE);
+
+        // Filters and sort order; every change reloads the first page from the room indexes
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 5));
+        JComboBox<String> typeBox = new JComboBox<>(new String[]{"All Types"});
+        for (String type : repository.roomTypes()) {
+            typeBox.addItem(type);
+        }
+        // Types added since are picked up when the list is opened
+        typeBox.addPopupMenuListener(new PopupMenuListener() {
+            @Override
+            public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
+                for (String type : repository.roomTypes()) {
+                    if (((DefaultComboBoxModel<String>) typeBox.getModel()).getIndexOf(type) < 0) {
+                        typeBox.addItem(type);
+                    }
+                }
+            }
+
+            @Override
+            public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
+            }
+
+            @Override
+            public void popupMenuCanceled(PopupMenuEvent e) {
+            }
+        });
+        JTextField minPriceField = new JTextField(5);
+        JTextField maxPriceField = new JTextField(5);
+        JComboBox<RoomCatalog.Status> statusBox = new JComboBox<>(RoomCatalog.Status.values());
+        JComboBox<RoomCatalog.Sort> sortBox = new JComboBox<>(RoomCatalog.Sort.values());
+
+        Runnable applyFilter = () -> {
+            String type = typeBox.getSelectedIndex() > 0 ? (String) typeBox.getSelectedItem() : null;
+            long minCents = priceBound(minPriceField, 0);
+            long maxCents = priceBound(maxPriceField, Long.MAX_VALUE);
+            LocalDate today = bookingService.today();
+            roomQuery = new RoomCatalog.Query(type, minCents, maxCents, (RoomCatalog.Status) statusBox.getSelectedItem(),
+                today, today.plusDays(1), (RoomCatalog.Sort) sortBox.getSelectedItem());
+            updateRoomTable();
+        };
+        typeBox.addActionListener(e -> applyFilter.run());
+        statusBox.addActionListener(e -> applyFilter.run());
+        sortBox.addActionListener(e -> applyFilter.run());
+        Timer priceDelay = new Timer(300, e -> applyFilter.run());
+        priceDelay.setRepeats(false);
+        restartOnEdit(minPriceField, priceDelay);
+        restartOnEdit(maxPriceField, priceDelay);
+
+        filterPanel.add(new JLabel("Type:"));
+        filterPanel.add(typeBox);
+        filterPanel.add(new JLabel("Price from $"));
+        filterPanel.add(minPriceField);
+        filterPanel.add(new JLabel("to $"));
+        filterPanel.add(maxPriceField);
+        filterPanel.add(new JLabel("Tonight:"));
+        filterPanel.add(statusBox);
+        filterPanel.add(new JLabel("Sort by:"));
+        filterPanel.add(sortBox);
+        for (Component component : filterPanel.getComponents()) {
+            component.setFont(Styles.TEXT);
+        }
+
+        JPanel header = new JPanel(new BorderLayout(5, 5));
+        header.add(title, BorderLayout.NORTH);
+        header.add(filterPanel, BorderLayout.SOUTH);
+        
+        // Create table
+        roomTable = new JTable(roomTableModel);
+        roomTable.setFont(Styles.TEXT);
+        roomTable.setRowHeight(25);
+        roomTable.getColumnModel().getColumn(2).setCellRenderer(new TableRenderers.Amount());
+        roomTable.getColumnModel().getColumn(3).setCellRenderer(new TableRenderers.Status());
+        JScrollPane scrollPane = new JScrollPane(roomTable);
+        // The next page is fetched when the last loaded rows come into view
+        BoundedRangeModel scroll = scrollPane.getVerticalScrollBar().getModel();
+        scroll.addChangeListener(e -> {
+            if (scroll.getValue() + scroll.getExtent() >= scroll.getMaximum() - 20 * roomTable.getRowHeight()) {
+                loadMoreRooms();
+            }
+        });
+
+        JButton refreshBtn = new JButton("🔄 Refresh");
+        refreshBtn.setFont(Styles.BUTTON);
+        refreshBtn.addActionListener(e -> applyFilter.run());
+
+        panel.add(header, BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(refreshBtn, BorderLayout.SOUTH);
+
+        updateRoomTable();
+        return panel;
+    }
+
+    // A price field as cents; empty or unreadable means no bound (and turns the text red)
+    private static long priceBound(JTextField field, long none) {
+        String text = field.getText().trim();
+        field.setForeground(Color.BLACK);
+        if (text.isEmpty()) {
+            return none;
+        }
+        try {
+            return Math.max(0, Money.parse(text));
+        } catch (NumberFormatException ex) {
+            field.setForeground(Color.RED);
+            return none;
+        }
+    }
+
+    private void loadMoreRooms() {
+        Room after = roomTableModel.lastRow();
+        if (loadingRoomPage || after == null || roomTableModel.isComplete()) {
+            return;
+        }
+        loadingRoomPage = true;
+        RoomCatalog.Query query = roomTableModel.query();
+        tasks.submit(() -> repository.queryRooms(query, after, ROOM_PAGE), page -> {
+            loadingRoomPage = false;
+            // Dropped if the listing was reloaded or its last row removed meanwhile; try again from the new end
+            if (roomTableModel.query() == query && roomTableModel.lastRow() == after) {
+                roomTableModel.appendPage(page, ROOM_PAGE);
+            } else {
+                loadMoreRooms();
+            }
+        }, ex -> {
+            loadingRoomPage = false;
+            showTaskError(ex);
+        });
+    }
+
+    // Restarts the timer on every edit, so it fires once typing pauses
+    private static void restartOnEdit(JTextComponent field, Timer delay) {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                delay.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                delay.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                delay.restart();
+            }
+        });
+    }
+
+    // TAB 2: BOOK ROOM
+    private JPanel createBookRoomPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel title = new JLabel("Book a Room");
+        title.setFont(Styles.TITLE);
+        title.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        // Form panel
+        JPanel formPanel = new JPanel(new GridLayout(6, 2, 10, 10));
+        formPanel.setBorder(BorderFactory.createEmptyBorder(20, 50, 20, 50));
+
+        JLabel nameLabel = new JLabel("Your Name:");
+        nameLabel.setFont(Styles.TEXT);
+        JTextField nameField = new JTextField();
+        nameField.setFont(Styles.TEXT);
+
+        JLabel phoneLabel = new JLabel("Phone Number:");
+        phoneLabel.setFont(Styles.TEXT);
+        JTextField phoneField = new JTextField();
+        phoneField.setFont(Styles.TEXT);
+
+        // Free rooms for the dates entered with the price of the stay, cheapest first; any other
+        // number can still be typed
+        JLabel roomLabel = new JLabel("Room Number:");
+        roomLabel.setFont(Styles.TEXT);
+        JComboBox<String> roomBox = new JComboBox<>();
+        roomBox.setEditable(true);
+        roomBox.setFont(Styles.TEXT);
+        Map<String, String> pickerLabels = new HashMap<>();
+        roomBox.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean selected, boolean focused) {
+                Object label = pickerLabels.getOrDefault(value, value == null ? "" : value.toString());
+                return super.getListCellRendererComponent(list, label, index, selected, focused);
+            }
+        });
+
+        JLabel nightsLabel = new JLabel("Number of Nights:");
+        nightsLabel.setFont(Styles.TEXT);
+        JTextField nightsField = new JTextField();
+        nightsField.setFont(Styles.TEXT);
+
+        JLabel checkInLabel = new JLabel("Check-in Date (YYYY-MM-DD):");
+        checkInLabel.setFont(Styles.TEXT);
+        JTextField checkInField = new JTextField(bookingService.today().toString());
+        checkInField.setFont(Styles.TEXT);
+
+        formPanel.add(nameLabel);
+        formPanel.add(nameField);
+        formPanel.add(phoneLabel);
+        formPanel.add(phoneField);
+        formPanel.add(roomLabel);
+        formPanel.add(roomBox);
+        formPanel.add(checkInLabel);
+        formPanel.add(checkInField);
+        formPanel.add(nightsLabel);
+        formPanel.add(nightsField);
+
+        // Lists the rooms free for the stay typed in; blank fields mean tonight and one night, as
+        // in the API. While the stay is half typed or cannot be searched, nothing is offered
+        // rather than a guess; booking reports why.
+        Runnable refreshPicker = () -> {
+            String checkInText = checkInField.getText().trim();
+            String nightsText = nightsField.getText().trim();
+            LocalDate checkIn;
+            int nights;
+            try {
+                checkIn = checkInText.isEmpty() ? bookingService.today() : LocalDate.parse(checkInText);
+                nights = nightsText.isEmpty() ? 1 : Integer.parseInt(nightsText);
+            } catch (DateTimeParseException | NumberFormatException ex) {
+                checkIn = null;
+                nights = 0;
+            }
+            LocalDate from = checkIn;
+            int stay = nights;
+            tasks.submit(() -> {
+                try {
+                    if (from != null) {
+                        RoomCatalog.Query query = new RoomCatalog.Query(null, 0, Long.MAX_VALUE, RoomCatalog.Status.FREE,
+                            from, bookingService.checkSearch(from, stay), RoomCatalog.Sort.PRICE);
+                        List<Room> free = repository.queryRooms(query, null, ROOM_PAGE);
+                        return new AbstractMap.SimpleImmutableEntry<>(free, repository.rates().quote(free, from, stay));
+                    }
+                } catch (BookingException ex) {
+                    // Falls through to an empty picker
+                }
+                return new AbstractMap.SimpleImmutableEntry<>(Collections.<Room>emptyList(), new long[0]);
+            }, quoted -> {
+                List<Room> free = quoted.getKey();
+                long[] totals = quoted.getValue();
+                Integer[] order = new Integer[free.size()];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> Long.compare(totals[a], totals[b]));
+                Object typed = roomBox.getEditor().getItem();
+                DefaultComboBoxModel<String> choices = new DefaultComboBoxModel<>();
+                pickerLabels.clear();
+                for (int i : order) {
+                    Room room = free.get(i);
+                    pickerLabels.put(room.roomNumber, room.roomNumber + " - " + room.type + ", "
+                        + Money.format(totals[i]) + (stay == 1 ? " for 1 night" : " for " + stay + " nights"));
+                    choices.addElement(room.roomNumber);
+                }
+                roomBox.setModel(choices);
+                roomBox.setSelectedItem(typed);
+            }, this::showTaskError);
+        };
+        Timer pickerDelay = new Timer(300, e -> refreshPicker.run());
+        pickerDelay.setRepeats(false);
+        restartOnEdit(checkInField, pickerDelay);
+        restartOnEdit(nightsField, pickerDelay);
+        refreshPicker.run();
+
+        // Shared by direct bookings and confirmed holds; the tables follow the change events
+        Consumer<Reservation> booked = newBooking -> {
+            Room selectedRoom = newBooking.room;
+            JOptionPane.showMessageDialog(this, 
+                "Booking Successful! 🎉\n\n" +
+                "Name: " + newBooking.customerName + "\n" +
+                "Room: " + selectedRoom.roomNumber + " (" + selectedRoom.type + ")\n" +
+                "Dates: " + newBooking.checkIn + " to " + newBooking.checkOut + "\n" +
+                "Nights: " + newBooking.nights + "\n" +
+                "Total Cost: " + Money.format(newBooking.totalCents) + "\n\n" +
+                "Booking ID: " + newBooking.bookingId, 
+                "Success", 
+                JOptionPane.INFORMATION_MESSAGE);
+
+            // Clear fields
+            nameField.setText("");
+            phoneField.setText("");
+            roomBox.setSelectedItem("");
+            refreshPicker.run();
+            nightsField.setText("");
+        };
+
+        JButton bookBtn = new JButton("✅ Book This Room");
+        bookBtn.setFont(Styles.BUTTON_LARGE);
+        Styles.filled(bookBtn, Styles.GREEN);
+        bookBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+        
+        bookBtn.addActionListener(e -> {
+            String name = nameField.getText().trim();
+            String phone = phoneField.getText().trim();
+            String roomNum = String.valueOf(roomBox.getEditor().getItem()).trim();
+            String checkInStr = checkInField.getText().trim();
+            String nightsStr = nightsField.getText().trim();
+
+            // Check if all fields are filled
+            if (name.isEmpty() || phone.isEmpty() || roomNum.isEmpty() || checkInStr.isEmpty() || nightsStr.isEmpty()) {
+                JOptionPane.showMessageDialog(this, 
+                    "Please fill in all fields!", 
+                    "Missing Information", 
+                    JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            LocalDate checkIn = parseCheckIn(checkInStr);
+            if (checkIn == null) {
+                return;
+            }
+
+            int nights;
+            try {
+                nights = Integer.parseInt(nightsStr);
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, 
+                    "Please enter a valid number for nights!", 
+                    "Invalid Input", 
+                    JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // Validation, availability check and reservation happen atomically in the service;
+            // the button stays disabled until the booking has been written
+            bookBtn.setEnabled(false);
+            tasks.submit(() -> bookingService.book(name, phone, roomNum, checkIn, nights), newBooking -> {
+                bookBtn.setEnabled(true);
+                booked.accept(newBooking);
+            }, ex -> {
+                bookBtn.setEnabled(true);
+                showTaskError(ex);
+            });
+        });
+
+        // Takes the room off sale while the guest decides or pays; closing the dialog keeps
+        // the hold until it runs out
+        JButton holdBtn = new JButton("⏳ Hold for 15 Minutes");
+        holdBtn.setFont(Styles.BUTTON);
+        holdBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+        holdBtn.addActionListener(e -> {
+            LocalDate checkIn = parseCheckIn(checkInField.getText().trim());
+            if (checkIn == null) {
+                return;
+            }
+            int nights;
+            try {
+                nights = Integer.parseInt(nightsField.getText().trim());
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, 
+                    "Please enter a valid number for nights!", 
+                    "Invalid Input", 
+                    JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            String name = nameField.getText().trim();
+            String phone = phoneField.getText().trim();
+            String roomNum = String.valueOf(roomBox.getEditor().getItem()).trim();
+            holdBtn.setEnabled(false);
+            tasks.submit(() -> bookingService.hold(name, phone, roomNum, checkIn, nights, HOLD_MILLIS), hold -> {
+                holdBtn.setEnabled(true);
+                roomTableModel.changed(hold.room);
+                refreshPicker.run();
+                LocalTime until = Instant.ofEpochMilli(hold.expiresAtMillis).atZone(ZoneId.systemDefault())
+                    .toLocalTime().truncatedTo(ChronoUnit.MINUTES);
+                Object[] options = {"✅ Confirm Booking", "❌ Release Hold", "Keep Hold"};
+                int choice = JOptionPane.showOptionDialog(this, 
+                    "Room " + hold.room.roomNumber + " (" + hold.room.type + ") is held for " + hold.customerName + "\n" +
+                    "Dates: " + hold.checkIn + " to " + hold.checkOut + "\n" +
+                    "Total Cost: " + Money.format(hold.totalCents) + "\n\n" +
+                    "Hold ID: " + hold.holdId + ", held until " + until, 
+                    "Room Held", 
+                    JOptionPane.DEFAULT_OPTION, 
+                    JOptionPane.INFORMATION_MESSAGE, 
+                    null, options, options[0]);
+                if (choice == 0) {
+                    tasks.submit(() -> bookingService.confirmHold(hold.holdId), booked, this::showTaskError);
+                } else if (choice == 1) {
+                    tasks.submit(() -> bookingService.releaseHold(hold.holdId), released -> {
+                        roomTableModel.changed(released.room);
+                        refreshPicker.run();
+                    }, this::showTaskError);
+                }
+            }, ex -> {
+                holdBtn.setEnabled(true);
+                showTaskError(ex);
+            });
+        });
+
+        JButton findBtn = new JButton("🔍 Find Free Rooms");
+        findBtn.setFont(Styles.BUTTON);
+        findBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+        findBtn.addActionListener(e -> {
+            LocalDate checkIn = parseCheckIn(checkInField.getText().trim());
+            if (checkIn == null) {
+                return;
+            }
+            int nights;
+            try {
+                nights = Integer.parseInt(nightsField.getText().trim());
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, 
+                    "Please enter a valid number for nights!", 
+                    "Invalid Input", 
+                    JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            findBtn.setEnabled(false);
+            tasks.submit(() -> freeRoomsMessage(checkIn, nights), message -> {
+                findBtn.setEnabled(true);
+                JOptionPane.showMessageDialog(this, message, 
+                    "Free Rooms", JOptionPane.INFORMATION_MESSAGE);
+            }, ex -> {
+                findBtn.setEnabled(true);
+                showTaskError(ex);
+            });
+        });
+
+        panel.add(Box.createVerticalStrut(20));
+        panel.add(title);
+        panel.add(Box.createVerticalStrut(20));
+        panel.add(formPanel);
+        panel.add(Box.createVerticalStrut(20));
+        panel.add(bookBtn);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(holdBtn);
+        JButton findAllBtn = new JButton("🏙️ Search All Properties");
+        findAllBtn.setFont(Styles.BUTTON);
+        findAllBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+        findAllBtn.addActionListener(e -> {
+            LocalDate checkIn = parseCheckIn(checkInField.getText().trim());
+            if (checkIn == null) {
+                return;
+            }
+            int nights;
+            try {
+                nights = Integer.parseInt(nightsField.getText().trim());
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, 
+                    "Please enter a valid number for nights!", 
+                    "Invalid Input", 
+                    JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            findAllBtn.setEnabled(false);
+            tasks.submit(() -> portfolioFreeRoomsMessage(checkIn, nights), message -> {
+                findAllBtn.setEnabled(true);
+                JTextArea textArea = new JTextArea(message);
+                textArea.setFont(Styles.MONOSPACED);
+                textArea.setEditable(false);
+                JScrollPane scrollPane = new JScrollPane(textArea);
+                scrollPane.setPreferredSize(new Dimension(500, 300));
+                JOptionPane.showMessageDialog(this, scrollPane, 
+                    "Free Rooms in All Properties", JOptionPane.INFORMATION_MESSAGE);
+            }, ex -> {
+                findAllBtn.setEnabled(true);
+                showTaskError(ex);
+            });
+        });
+
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(findBtn);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(findAllBtn);
+
+        return panel;
+    }
+
+    private LocalDate parseCheckIn(String text) {
+        LocalDate checkIn;
+        try {
+            checkIn = LocalDate.parse(text);
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, 
+                "Please enter a valid check-in date (YYYY-MM-DD)!", 
+                "Invalid Input", 
+                JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+        if (checkIn.isBefore(bookingService.today())) {
+            JOptionPane.showMessageDialog(this, 
+                "Check-in date cannot be in the past!", 
+                "Invalid Input", 
+                JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+        return checkIn;
+    }
+
+    private void showBookingError(BookingException ex) {
+        String title = ex.getTitle();
+        boolean warning = title.equals("Missing Information") || title.equals("Room Unavailable") || title.equals("Room Occupied");
+        JOptionPane.showMessageDialog(this, 
+            ex.getMessage(), 
+            title, 
+            warning ? JOptionPane.WARNING_MESSAGE : JOptionPane.ERROR_MESSAGE);
+    }
+
+    // Errors coming back from background work
+    private void showTaskError(Exception ex) {
+        if (ex instanceof BookingException) {
+            showBookingError((BookingException) ex);
+            return;
+        }
+        Log.error("Background task failed", ex);
+        JOptionPane.showMessageDialog(this, 
+            "Something went wrong: " + ex.getMessage(), 
+            "Error", 
+            JOptionPane.ERROR_MESSAGE);
+    }
+
+    // Runs on a worker thread; the stay is checked like a booking's, so nights outside the
+    // horizon are refused rather than listed as free
+    private String freeRoomsMessage(LocalDate checkIn, int nights) throws BookingException {
+        LocalDate checkOut = bookingService.checkSearch(checkIn, nights);
+        StringBuilder message = new StringBuilder();
+        message.append("Free from ").append(checkIn).append(" to ").append(checkOut).append(":\n\n");
+        for (String type : repository.roomTypes()) {
+            List<Room> free = repository.freeRooms(type, checkIn, checkOut);
+            message.append(type).append(": ");
+            if (free.isEmpty()) {
+                message.append("none");
+            }
+            for (int i = 0; i < free.size(); i++) {
+                if (i > 0) message.append(", ");
+                message.append(free.get(i).roomNumber);
+            }
+            message.append("\n");
+        }
+        return message.toString();
+    }
+
+    // Runs on a worker thread; every property is searched in parallel, cheapest rooms first
+    private String portfolioFreeRoomsMessage(LocalDate checkIn, int nights) throws BookingException {
+        List<HotelPortfolio.PropertyRoom> free = portfolio.freeRooms(null, checkIn, nights);
+        LocalDate checkOut = checkIn.plusDays(nights);
+        StringBuilder message = new StringBuilder();
+        message.append("Free from ").append(checkIn).append(" to ").append(checkOut)
+            .append(" in ").append(portfolio.propertyIds().size()).append(" properties:\n\n");
+        if (free.isEmpty()) {
+            message.append("none\n");
+        }
+        for (HotelPortfolio.PropertyRoom match : free) {
+            message.append(String.format("%-12s %-8s %-8s %s per night%n", match.propertyId, match.room.roomNumber,
+                match.room.type, Money.format(match.room.priceCents)));
+        }
+        return message.toString();
+    }
+
+    // TAB 3: MY BOOKINGS
+    private JPanel createMyBookingsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel title = new JLabel("My Bookings", SwingConstants.CENTER);
+        title.setFont(Styles.TITLE);
+
+        // Type-ahead guest filter: the table reloads shortly after typing stops
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 5));
+        JLabel filterLabel = new JLabel("🔍 Guest name or phone:");
+        filterLabel.setFont(Styles.TEXT);
+        JTextField filterField = new JTextField(20);
+        Timer filterDelay = new Timer(150, e -> {
+            guestFilter = filterField.getText().trim();
+            updateReservationTable();
+        });
+        filterDelay.setRepeats(false);
+        restartOnEdit(filterField, filterDelay);
+        filterPanel.add(filterLabel);
+        filterPanel.add(filterField);
+
+        JPanel header = new JPanel(new BorderLayout(5, 5));
+        header.add(title, BorderLayout.NORTH);
+        header.add(filterPanel, BorderLayout.SOUTH);
+
+        // Create table
+        reservationTable = new JTable(reservationTableModel);
+        reservationTable.setFont(Styles.TEXT);
+        reservationTable.setRowHeight(25);
+        reservationTable.getColumnModel().getColumn(2).setCellRenderer(new TableRenderers.RoomLabel());
+        reservationTable.getColumnModel().getColumn(6).setCellRenderer(new TableRenderers.Amount());
+        JScrollPane scrollPane = new JScrollPane(reservationTable);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        
+        JButton refreshBtn = new JButton("🔄 Refresh");
+        refreshBtn.setFont(Styles.BUTTON);
+        refreshBtn.addActionListener(e -> updateReservationTable());
+
+        JButton cancelBtn = new JButton("❌ Cancel Booking");
+        cancelBtn.setFont(Styles.BUTTON);
+        Styles.filled(cancelBtn, Styles.RED);
+        cancelBtn.addActionListener(e -> {
+            int selectedRow = reservationTable.getSelectedRow();
+            if (selectedRow == -1) {
+                JOptionPane.showMessageDialog(this, 
+                    "Please select a booking to cancel!", 
+                    "No Selection", 
+                    JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            String bookingId = reservationTableModel.rowAt(selectedRow).bookingId;
+            
+            int confirm = JOptionPane.showConfirmDialog(this,
+                "Are you sure you want to cancel booking " + bookingId + "?",
+                "Confirm Cancellation",
+                JOptionPane.YES_NO_OPTION);
+
+            if (confirm == JOptionPane.YES_OPTION) {
+                // Remove reservation; its nights are released in the availability index
+                cancelBtn.setEnabled(false);
+                tasks.submit(() -> bookingService.cancel(bookingId), cancelled -> {
+                    cancelBtn.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, 
+                        "Booking cancelled successfully!", 
+                        "Cancelled", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                }, ex -> {
+                    cancelBtn.setEnabled(true);
+                    showTaskError(ex);
+                    updateReservationTable();
+                });
+            }
+        });
+
+        JButton reportBtn = new JButton("📊 Generate Report");
+        reportBtn.setFont(Styles.BUTTON);
+        Styles.filled(reportBtn, Styles.BLUE);
+        reportBtn.addActionListener(e -> {
+            reportBtn.setEnabled(false);
+            // Every live booking, whatever My Bookings is filtered on
+            tasks.submit(() -> new AbstractMap.SimpleImmutableEntry<>(bookingService.summary(),
+                    loadReservations("")), report -> {
+                reportBtn.setEnabled(true);
+                showReport(report.getKey(), report.getValue());
+            }, ex -> {
+                reportBtn.setEnabled(true);
+                showTaskError(ex);
+            });
+        });
+
+        JButton archiveBtn = new JButton("📦 Archive Past Stays");
+        archiveBtn.setFont(Styles.BUTTON);
+        archiveBtn.addActionListener(e -> {
+            archiveBtn.setEnabled(false);
+            tasks.submit(bookingService::archiveCompleted, archived -> {
+                archiveBtn.setEnabled(true);
+                updateReservationTable();
+                JOptionPane.showMessageDialog(this, 
+                    "Archived " + archived + " completed booking(s).", 
+                    "Archived", 
+                    JOptionPane.INFORMATION_MESSAGE);
+            }, ex -> {
+                archiveBtn.setEnabled(true);
+                if (ex instanceof IOException) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Could not write the archive: " + ex.getMessage(), 
+                        "Error", 
+                        JOptionPane.ERROR_MESSAGE);
+                } else {
+                    showTaskError(ex);
+                }
+            });
+        });
+
+        JButton historyBtn = new JButton("📜 History");
+        historyBtn.setFont(Styles.BUTTON);
+        historyBtn.addActionListener(e -> showHistory());
+
+        buttonPanel.add(refreshBtn);
+        buttonPanel.add(cancelBtn);
+        buttonPanel.add(reportBtn);
+        buttonPanel.add(archiveBtn);
+        buttonPanel.add(historyBtn);
+
+        panel.add(header, BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+
+        updateReservationTable();
+        return panel;
+    }
+
+    // Runs on a worker thread. With a filter, only the bookings of matching guests (at most
+    // 200 guests) are loaded, found through the guest directory instead of a full scan.
+    private List<Reservation> loadReservations(String filter) {
+        if (filter.isEmpty()) {
+            return new ArrayList<>(repository.reservations());
+        }
+        List<Reservation> matching = new ArrayList<>();
+        for (Guest guest : repository.guests().search(filter, 200)) {
+            matching.addAll(repository.reservationsOf(guest));
+        }
+        // The table model keeps rows in booking-ID order
+        matching.sort((a, b) -> Long.compare(a.id, b.id));
+        return matching;
+    }
+
+    // TAB 4: ADMIN PANEL
+    private JPanel createAdminPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel title = new JLabel("Admin Panel - Manage Rooms");
+        title.setFont(Styles.TITLE);
+        title.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        // Add Room Form
+        JPanel addPanel = new JPanel(new GridLayout(4, 2, 10, 10));
+        addPanel.setBorder(BorderFactory.createTitledBorder("Add New Room"));
+
+        JLabel roomNumLabel = new JLabel("Room Number:");
+        JTextField roomNumField = new JTextField();
+
+        JLabel typeLabel = new JLabel("Room Type:");
+        JComboBox<String> typeCombo = new JComboBox<>(new String[]{"Single", "Double", "Suite", "Deluxe"});
+
+        JLabel priceLabel = new JLabel("Price per Night ($):");
+        JTextField priceField = new JTextField();
+
+        addPanel.add(roomNumLabel);
+        addPanel.add(roomNumField);
+        addPanel.add(typeLabel);
+        addPanel.add(typeCombo);
+        addPanel.add(priceLabel);
+        addPanel.add(priceField);
+
+        JButton addBtn = new JButton("➕ Add Room");
+        addBtn.setFont(Styles.BUTTON);
+        Styles.filled(addBtn, Styles.GREEN);
+        addBtn.addActionListener(e -> {
+            String roomNum = roomNumField.getText().trim();
+            String type = (String) typeCombo.getSelectedItem();
+            String priceStr = priceField.getText().trim();
+
+            if (roomNum.isEmpty() || priceStr.isEmpty()) {
+                JOptionPane.showMessageDialog(this, 
+                    "Please fill in all fields!", 
+                    "Missing Information", 
+                    JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            long price;
+            try {
+                price = Money.parse(priceStr);
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, 
+                    "Please enter a valid price!", 
+                    "Invalid Input", 
+                    JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // Duplicate and price checks happen in the service
+            addBtn.setEnabled(false);
+            tasks.submit(() -> bookingService.addRoom(roomNum, type, price), room -> {
+                addBtn.setEnabled(true);
+                JOptionPane.showMessageDialog(this, 
+                    "Room added successfully!", 
+                    "Success", 
+                    JOptionPane.INFORMATION_MESSAGE);
+
+                roomNumField.setText("");
+                priceField.setText("");
+            }, ex -> {
+                addBtn.setEnabled(true);
+                showTaskError(ex);
+            });
+        });
+
+        // Remove Room Button
+        JButton removeBtn = new JButton("➖ Remove Selected Room");
+        removeBtn.setFont(Styles.BUTTON);
+        Styles.filled(removeBtn, Styles.RED);
+        removeBtn.addActionListener(e -> {
+            int selectedRow = roomTable.getSelectedRow();
+            if (selectedRow == -1) {
+                JOptionPane.showMessageDialog(this, 
+                    "Please select a room from the 'View Rooms' tab!", 
+                    "No Selection", 
+                    JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+
+            String roomNum = roomTableModel.rowAt(selectedRow).roomNumber;
+            
+            removeBtn.setEnabled(false);
+            tasks.submit(() -> {
+                bookingService.checkRoomRemovable(roomNum);
+                return roomNum;
+            }, removable -> {
+                int confirm = JOptionPane.showConfirmDialog(this,
+                    "Are you sure you want to remove room " + roomNum + "?",
+                    "Confirm Removal",
+                    JOptionPane.YES_NO_OPTION);
+
+                if (confirm != JOptionPane.YES_OPTION) {
+                    removeBtn.setEnabled(true);
+                    return;
+                }
+                tasks.submit(() -> bookingService.removeRoom(roomNum), removed -> {
+                    removeBtn.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, 
+                        "Room removed successfully!", 
+                        "Success", 
+                        JOptionPane.INFORMATION_MESSAGE);
+                }, ex -> {
+                    removeBtn.setEnabled(true);
+                    showTaskError(ex);
+                });
+            }, ex -> {
+                removeBtn.setEnabled(true);
+                showTaskError(ex);
+            });
+        });
+
+        // Bulk import / export of rooms and bookings (CSV or JSON lines)
+        JPanel bulkPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        bulkPanel.setBorder(BorderFactory.createTitledBorder("Bulk Import / Export (.csv or .jsonl)"));
+
+        JButton importBtn = new JButton("📥 Import...");
+        importBtn.setFont(Styles.BUTTON);
+        importBtn.addActionListener(e -> importRecords(importBtn));
+
+        JButton exportBtn = new JButton("📤 Export...");
+        exportBtn.setFont(Styles.BUTTON);
+        exportBtn.addActionListener(e -> exportRecords(exportBtn));
+
+        JButton metricsBtn = new JButton("📈 Metrics");
+        metricsBtn.setFont(Styles.BUTTON);
+        metricsBtn.addActionListener(e -> showMetrics());
+
+        JButton pricingBtn = new JButton("💲 Pricing...");
+        pricingBtn.setFont(Styles.BUTTON);
+        pricingBtn.addActionListener(e -> editPricing(pricingBtn));
+
+        bulkPanel.add(importBtn);
+        bulkPanel.add(exportBtn);
+        bulkPanel.add(metricsBtn);
+        bulkPanel.add(pricingBtn);
+
+        // Other properties open in windows of their own
+        JPanel propertyPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
+        propertyPanel.setBorder(BorderFactory.createTitledBorder("Properties (this window: " + propertyId + ")"));
+
+        JComboBox<String> propertyCombo = new JComboBox<>(portfolio.propertyIds().toArray(new String[0]));
+        propertyCombo.setSelectedItem(propertyId);
+
+        JButton openPropertyBtn = new JButton("🏨 Open");
+        openPropertyBtn.setFont(Styles.BUTTON);
+        openPropertyBtn.addActionListener(e -> openPropertyWindow((String) propertyCombo.getSelectedItem()));
+
+        JButton newPropertyBtn = new JButton("➕ New Property...");
+        newPropertyBtn.setFont(Styles.BUTTON);
+        newPropertyBtn.addActionListener(e -> {
+            String id = JOptionPane.showInputDialog(this, 
+                "Property ID (letters, digits, '-' or '_'):", 
+                "New Property", 
+                JOptionPane.QUESTION_MESSAGE);
+            if (id == null) {
+                return;
+            }
+            String newId = id.trim();
+            newPropertyBtn.setEnabled(false);
+            tasks.submit(() -> portfolio.addProperty(newId), service -> {
+                newPropertyBtn.setEnabled(true);
+                propertyCombo.addItem(newId);
+                openPropertyWindow(newId);
+            }, ex -> {
+                newPropertyBtn.setEnabled(true);
+                showTaskError(ex);
+            });
+        });
+
+        propertyPanel.add(propertyCombo);
+        propertyPanel.add(openPropertyBtn);
+        propertyPanel.add(newPropertyBtn);
+
+        panel.add(title);
+        panel.add(Box.createVerticalStrut(20));
+        panel.add(addPanel);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(addBtn);
+        panel.add(Box.createVerticalStrut(20));
+        panel.add(removeBtn);
+        panel.add(Box.createVerticalStrut(20));
+        panel.add(bulkPanel);
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(propertyPanel);
+
+        return panel;
+    }
+
+    // Same numbers as GET /metrics and the JMX bean; latencies in microseconds
+    private void showMetrics() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("%-14s %8s %6s %10s %10s %10s %10s%n", "Operation", "Count", "Fail", "p50 µs", "p99 µs", "p99.9 µs", "Max µs"));
+        for (BookingMetrics.Operation op : bookingService.metrics().operations()) {
+            text.append(String.format("%-14s %8d %6d %10.1f %10.1f %10.1f %10.1f%n", op.name, op.count(), op.failures.sum(),
+                op.latency.quantileNanos(0.5) / 1000.0, op.latency.quantileNanos(0.99) / 1000.0,
+                op.latency.quantileNanos(0.999) / 1000.0, op.latency.maxNanos() / 1000.0));
+        }
+        BookingMetrics metrics = bookingService.metrics();
+        text.append(String.format("%nRooms: %d%nReservations: %d%nBooked Tonight: %d (%.1f%%)%n", 
+            metrics.rooms(), metrics.reservations(), metrics.occupiedTonight(), metrics.occupancyPercent()));
+
+        JTextArea textArea = new JTextArea(text.toString());
+        textArea.setFont(Styles.MONOSPACED);
+        textArea.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(640, 260));
+        JOptionPane.showMessageDialog(this, scrollPane, "Booking Metrics", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // Rules are edited as text, one per line (see PricingRules); the dialog reopens with the
+    // text kept if a line is rejected
+    private void editPricing(JButton pricingBtn) {
+        editPricing(pricingBtn, String.join("\n", bookingService.pricingRules()));
+    }
+
+    private void editPricing(JButton pricingBtn, String text) {
+        JTextArea textArea = new JTextArea(text, 10, 40);
+        textArea.setFont(Styles.MONOSPACED);
+        JLabel help = new JLabel("<html>One rule per line; rules multiply:<br>"
+            + "season 06-15 08-31 +20% &nbsp; days FRI,SAT +15%<br>"
+            + "surge 80% +10% &nbsp; stay 7 -10%</html>");
+        JPanel content = new JPanel(new BorderLayout(5, 5));
+        content.add(help, BorderLayout.NORTH);
+        content.add(new JScrollPane(textArea), BorderLayout.CENTER);
+        int choice = JOptionPane.showConfirmDialog(this, content, 
+            "Pricing Rules", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        String edited = textArea.getText();
+        pricingBtn.setEnabled(false);
+        tasks.submit(() -> {
+            bookingService.updatePricing(Arrays.asList(edited.split("\n")));
+            return edited;
+        }, saved -> pricingBtn.setEnabled(true), ex -> {
+            pricingBtn.setEnabled(true);
+            showTaskError(ex);
+            if (ex instanceof BookingException) {
+                editPricing(pricingBtn, edited);
+            }
+        });
+    }
+
+    private void openPropertyWindow(String id) {
+        if (id == null || id.equals(propertyId)) {
+            return;
+        }
+        HotelReservationSystem window = new HotelReservationSystem(portfolio, id);
+        window.setLocation(getX() + 40, getY() + 40);
+        window.setVisible(true);
+    }
+
+    private void importRecords(JButton importBtn) {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        Object[] modes = {"New Bookings", "Restore as Recorded", "Cancel"};
+        int choice = JOptionPane.showOptionDialog(this,
+            "New Bookings checks and prices each booking like the booking form.\n"
+                + "Restore as Recorded keeps exported bookings as they were, including guests\n"
+                + "already in house and their totals, and only refuses overlaps.",
+            "Import", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, modes, modes[0]);
+        if (choice != 0 && choice != 1) {
+            return;
+        }
+        BulkTransfer.Mode mode = choice == 0 ? BulkTransfer.Mode.NEW_BOOKINGS : BulkTransfer.Mode.RESTORE;
+        importBtn.setEnabled(false);
+        tasks.submitWithProgress(this, "Importing " + file.getFileName() + "...", 
+            progress -> new BulkTransfer(bookingService).importFile(file, mode, progress), result -> {
+            importBtn.setEnabled(true);
+            updateRoomTable();
+            updateReservationTable();
+
+            StringBuilder message = new StringBuilder();
+            message.append("Rooms added: ").append(result.roomsAdded).append("\n");
+            message.append("Bookings added: ").append(result.bookingsAdded).append("\n");
+            message.append("Lines rejected: ").append(result.rejected).append("\n");
+            int shown = Math.min(10, result.errors.size());
+            for (int i = 0; i < shown; i++) {
+                message.append("\n").append(result.errors.get(i));
+            }
+            if (result.rejected > shown) {
+                message.append("\n...");
+            }
+            JOptionPane.showMessageDialog(this, 
+                message.toString(), 
+                "Import Finished", 
+                result.rejected == 0 ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+        }, ex -> {
+            importBtn.setEnabled(true);
+            updateRoomTable();
+            updateReservationTable();
+            showTaskError(ex);
+        });
+    }
+
+    private void exportRecords(JButton exportBtn) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("hotel-export.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        exportBtn.setEnabled(false);
+        tasks.submit(() -> new BulkTransfer(bookingService).exportFile(file), written -> {
+            exportBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(this, 
+                "Exported " + written + " record(s) to " + file, 
+                "Export Finished", 
+                JOptionPane.INFORMATION_MESSAGE);
+        }, ex -> {
+            exportBtn.setEnabled(true);
+            showTaskError(ex);
+        });
+    }
+
+    // CHANGE EVENTS
+    // Applies a batch of the property's change events to the tables, whoever made the changes
+    // (this window, another one, the API or an import); runs on the EDT
+    private void applyEvents(List<ChangeEvent> batch) {
+        boolean reloadReservations = false;
+        for (ChangeEvent event : batch) {
+            reloadReservations |= applyEvent(event, true, true);
+            appliedThrough = event.sequence;
+        }
+        if (reloadReservations) {
+            updateReservationTable();
+        }
+    }
+
+    // Patches the chosen tables for one event; true if the reservation table needs a reload
+    // instead, because a new booking may or may not match the guest filter
+    private boolean applyEvent(ChangeEvent event, boolean rooms, boolean reservations) {
+        switch (event.kind) {
+            case ROOM_ADDED:
+                if (rooms) roomTableModel.added(event.room);
+                break;
+            case ROOM_REMOVED:
+                if (rooms) roomTableModel.removed(event.room);
+                break;
+            case BOOKING_CREATED:
+                if (rooms) roomTableModel.changed(event.room);
+                if (reservations) {
+                    if (!guestFilter.isEmpty()) {
+                        return true;
+                    }
+                    reservationTableModel.added(event.reservation);
+                }
+                break;
+            case BOOKING_CANCELLED:
+                if (rooms) roomTableModel.changed(event.room);
+                if (reservations) reservationTableModel.removed(event.reservation);
+                break;
+        }
+        return false;
+    }
+
+    // A reload replaces the rows with a copy taken on a worker, undoing the events applied on
+    // the EDT since. Those events, from the first one the copy may lack up to the last one
+    // applied, are read back from the bus and applied again; each event leaves its row as the
+    // change left it, so applying one the copy already has does no harm.
+    private void replayEvents(long published, boolean rooms, boolean reservations) {
+        long count = appliedThrough - published + 1;
+        if (count <= 0) {
+            return;
+        }
+        EventBus.Reader reader = bookingService.events().reader(published - 1);
+        List<ChangeEvent> overtaken = reader.poll((int) Math.min(count, Integer.MAX_VALUE));
+        if (reader.takeMissed() > 0) {
+            // Overwritten on the bus already; load again rather than show a stale table
+            if (rooms) updateRoomTable();
+            if (reservations) updateReservationTable();
+            return;
+        }
+        for (ChangeEvent event : overtaken) {
+            // With a guest filter, a booking made during the load asked for a reload of its own
+            applyEvent(event, rooms, reservations);
+        }
+    }
+
+    // Waits for the EDT, so a busy UI falls behind on the bus and reloads rather than queueing
+    // events without bound
+    private EventBus.Subscription subscribeTables() {
+        return bookingService.events().subscribe("tables-" + propertyId, 1024, new EventBus.Subscriber() {
+            @Override
+            public void onEvents(List<ChangeEvent> events) {
+                try {
+                    SwingUtilities.invokeAndWait(() -> applyEvents(events));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (InvocationTargetException e) {
+                    Log.error("Applying changes failed", e.getCause());
+                }
+            }
+
+            @Override
+            public void onOverrun(long missed) {
+                SwingUtilities.invokeLater(() -> {
+                    updateRoomTable();
+                    updateReservationTable();
+                });
+            }
+        });
+    }
+
+    @Override
+    public void dispose() {
+        tableUpdates.cancel();
+        super.dispose();
+    }
+
+    // A copy of the rows and the number of events published before it was taken
+    private static final class Loaded<T> {
+        final long published;
+        final T rows;
+
+        Loaded(long published, T rows) {
+            this.published = published;
+            this.rows = rows;
+        }
+    }
+
+    // Full refreshes; single changes come in as change events.
+    // Repeated requests while a refresh is running are folded into one more reload.
+    private void updateRoomTable() {
+        roomRefresh.run();
+    }
+
+    private void updateReservationTable() {
+        reservationRefresh.run();
+    }
+
+    private void showHistory() {
+        ReservationArchive archive = bookingService.archive();
+        if (archive == null) {
+            JOptionPane.showMessageDialog(this, 
+                "There is no archive when running with --in-memory.", 
+                "Archive Unavailable", 
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        JTable historyTable = new JTable(new ArchiveTableModel(archive));
+        historyTable.setFont(Styles.TEXT);
+        historyTable.setRowHeight(25);
+        JScrollPane scrollPane = new JScrollPane(historyTable);
+        scrollPane.setPreferredSize(new Dimension(800, 400));
+
+        JOptionPane.showMessageDialog(this, scrollPane, 
+            "Booking History (" + archive.size() + " archived)", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    // The summary comes from running totals, so it is ready at once. Booking details are not
+    // turned into text for the dialog: the table below renders only the rows in view, and
+    // "Save Details" streams every booking to a file.
+    private void showReport(ReportSummary summary, List<Reservation> reservations) {
+        StringBuilder report = new StringBuilder();
+        report.append("===== HOTEL BOOKING REPORT =====\n\n");
+        
+        report.append("📊 SUMMARY:\n");
+        report.append("Total Rooms: ").append(summary.totalRooms).append("\n");
+        report.append("Available Tonight: ").append(summary.availableTonight()).append("\n");
+        report.append("Booked Tonight: ").append(summary.bookedTonight).append("\n");
+        report.append("Total Bookings: ").append(summary.totalBookings).append("\n\n");
+        report.append("Total Revenue: ").append(Money.format(summary.totalRevenueCents)).append("\n\n");
+        report.append("Archived Bookings: ").append(summary.archivedBookings).append("\n");
+        report.append("Archived Revenue: ").append(Money.format(summary.archivedRevenueCents)).append("\n\n");
+
+        report.append("🏨 BY ROOM TYPE:\n");
+        for (ReportSummary.TypeSummary line : summary.byType) {
+            report.append(line.type).append(": ").append(line.rooms).append(" rooms, ")
+                .append(line.bookings).append(" bookings, ").append(Money.format(line.revenueCents)).append("\n");
+        }
+
+        JTextArea textArea = new JTextArea(report.toString());
+        textArea.setEditable(false);
+        textArea.setFont(Styles.MONOSPACED);
+        JScrollPane summaryPane = new JScrollPane(textArea);
+        summaryPane.setPreferredSize(new Dimension(600, 220));
+
+        // A model of its own: the My Bookings one follows the guest filter
+        ReservationTableModel detailModel = new ReservationTableModel();
+        detailModel.reload(reservations);
+        JTable detailTable = new JTable(detailModel);
+        detailTable.setFont(Styles.SMALL);
+        detailTable.getColumnModel().getColumn(2).setCellRenderer(new TableRenderers.RoomLabel());
+        detailTable.getColumnModel().getColumn(6).setCellRenderer(new TableRenderers.Amount());
+        JScrollPane detailPane = new JScrollPane(detailTable);
+        detailPane.setBorder(BorderFactory.createTitledBorder("📋 Booking Details"));
+        detailPane.setPreferredSize(new Dimension(600, 250));
+
+        JPanel reportPanel = new JPanel(new BorderLayout(10, 10));
+        JButton saveBtn = new JButton("💾 Save Details...");
+        saveBtn.setFont(Styles.BUTTON);
+        saveBtn.addActionListener(e -> saveReportDetails(reportPanel, saveBtn));
+
+        JButton fullReportBtn = new JButton("📈 Save Full Report...");
+        fullReportBtn.setFont(Styles.BUTTON);
+        fullReportBtn.addActionListener(e -> saveFullReport(reportPanel, fullReportBtn));
+
+        JPanel saveButtons = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        saveButtons.add(saveBtn);
+        saveButtons.add(fullReportBtn);
+
+        reportPanel.add(summaryPane, BorderLayout.NORTH);
+        reportPanel.add(detailPane, BorderLayout.CENTER);
+        reportPanel.add(saveButtons, BorderLayout.SOUTH);
+        
+        JOptionPane.showMessageDialog(this, reportPanel, 
+            "Booking Report", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void saveReportDetails(Component parent, JButton saveBtn) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("booking-details.txt"));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        saveBtn.setEnabled(false);
+        tasks.submitWithProgress(parent, "Saving booking details...", progress -> writeReportDetails(file, progress), written -> {
+            saveBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(parent, 
+                "Saved " + written + " booking(s) to " + file, 
+                "Saved", 
+                JOptionPane.INFORMATION_MESSAGE);
+        }, ex -> {
+            saveBtn.setEnabled(true);
+            showTaskError(ex);
+        });
+    }
+
+    // Per-type breakdown and top customers, computed in parallel; the file extension picks
+    // the format (.csv, .json, otherwise text)
+    private void saveFullReport(Component parent, JButton fullReportBtn) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("portfolio-report.txt"));
+        if (chooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        fullReportBtn.setEnabled(false);
+        tasks.submit(() -> {
+            ReportEngine.Result result = bookingService.fullReport(ReportEngine.DEFAULT_TOP);
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                ReportEngine.write(result, ReportEngine.formatOf(file.getFileName().toString()), out);
+            }
+            return result;
+        }, result -> {
+            fullReportBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(parent, 
+                "Saved the report for " + result.bookings + " booking(s) to " + file, 
+                "Saved", 
+                JOptionPane.INFORMATION_MESSAGE);
+        }, ex -> {
+            fullReportBtn.setEnabled(true);
+            showTaskError(ex);
+        });
+    }
+
+    // Runs on a worker thread
+    private int writeReportDetails(Path file, IntConsumer progress) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return writeReportDetails(out, repository.reservations(), progress);
+        }
+    }
+
+    // Writes one booking at a time so memory use does not grow with the number of bookings.
+    // Also used by the benchmarks.
+    static int writeReportDetails(Writer out, Collection<Reservation> reservations, IntConsumer progress) throws IOException {
+        int total = Math.max(1, reservations.size());
+        int written = 0;
+        out.write("📋 BOOKING DETAILS:\n");
+        out.write("----------------------------------------\n");
+        for (Reservation res : reservations) {
+            out.write("Booking ID: " + res.bookingId + "\n");
+            out.write("Customer: " + res.customerName + "\n");
+            out.write("Phone: " + res.customerPhone + "\n");
+            out.write("Room: " + res.room.roomNumber + " (" + res.room.type + ")\n");
+            out.write("Dates: " + res.checkIn + " to " + res.checkOut + "\n");
+            out.write("Nights: " + res.nights + "\n");
+            out.write("Total: " + Money.format(res.totalCents) + "\n");
+            out.write("----------------------------------------\n");
+            if (++written % 1024 == 0) {
+                progress.accept(Math.min(99, (int) (written * 100L / total)));
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (onFirstFrame != null) {
+            SwingUtilities.invokeLater(onFirstFrame);
+            onFirstFrame = null;
+        }
+    }
+
+    // Milliseconds since the JVM started, class loading and all
+    static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    // Look and feel, fonts and the Swing classes the first window needs; run on the EDT while
+    // the data is still being recovered
+    private static void prepareUI() {
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        // One of each component loads their classes and UI delegates; the metrics load the fonts
+        JLabel label = new JLabel();
+        for (Font font : new Font[]{Styles.TITLE, Styles.TEXT, Styles.BUTTON}) {
+            label.getFontMetrics(font).stringWidth("Hotel");
+        }
+        new JTabbedPane();
+        new JScrollPane(new JTable());
+        new JComboBox<String>();
+        new JTextField();
+        new JButton();
+    }
+
+    public static void main(String[] args) throws Exception {
+        // --headless [--port N] serves the booking API instead of opening the window
+        if (Arrays.asList(args).contains("--headless")) {
+            BookingApiServer.run(args);
+            return;
+        }
+        // --load-test drives traffic at a property and checks the results (see LoadGenerator)
+        if (Arrays.asList(args).contains("--load-test")) {
+            System.exit(LoadGenerator.run(args));
+        }
+        // --exit-after-startup quits once the window is up: for timing startup, and for the
+        // training run of a class data sharing archive (see README)
+        boolean exitAfterStartup = Arrays.asList(args).contains("--exit-after-startup");
+        SwingUtilities.invokeLater(HotelReservationSystem::prepareUI);
+        long loadStart = System.nanoTime();
+        HotelPortfolio portfolio = openPortfolio(args);
+        long loadMillis = (System.nanoTime() - loadStart) / 1_000_000;
+        SwingUtilities.invokeLater(() -> {
+            HotelReservationSystem window = new HotelReservationSystem(portfolio, HotelPortfolio.DEFAULT_PROPERTY);
+            window.onFirstFrame = () -> {
+                System.out.println("First frame " + uptimeMillis() + " ms after JVM start (data loaded in "
+                    + loadMillis + " ms)");
+                if (exitAfterStartup) {
+                    window.dispatchEvent(new WindowEvent(window, WindowEvent.WINDOW_CLOSING));
+                }
+            };
+            window.setVisible(true);
+        });
+    }
 }
\ No newline at end of file
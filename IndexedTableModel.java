@@ -0,0 +1,86 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+// Table model that keeps only references to its rows and reads cell values on demand.
+// Changes are reported per row (inserted/updated/deleted) so JTable repaints just what changed.
+// Must be used from the Event Dispatch Thread, like any Swing model.
+abstract class IndexedTableModel<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] columns;
+    final List<T> rows = new ArrayList<>();
+
+    IndexedTableModel(String... columns) {
+        this.columns = columns;
+    }
+
+    // Value for one cell of a row; formatting is left to the column's renderer
+    abstract Object valueOf(T row, int column);
+
+    // Row holding the item, or -1. Models whose rows are sorted override this with a binary search.
+    int indexOf(T item) {
+        return rows.indexOf(item);
+    }
+
+    // Where a new item goes; rows are appended unless a model keeps them sorted
+    int insertionPoint(T item) {
+        return rows.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return valueOf(rows.get(row), column);
+    }
+
+    T rowAt(int row) {
+        return rows.get(row);
+    }
+
+    // Replaces every row; used for full refreshes and bulk changes
+    void reload(Collection<? extends T> items) {
+        rows.clear();
+        rows.addAll(items);
+        fireTableDataChanged();
+    }
+
+    void added(T item) {
+        if (indexOf(item) >= 0) {
+            return;
+        }
+        int row = insertionPoint(item);
+        rows.add(row, item);
+        fireTableRowsInserted(row, row);
+    }
+
+    void changed(T item) {
+        int row = indexOf(item);
+        if (row >= 0) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    void removed(T item) {
+        int row = indexOf(item);
+        if (row >= 0) {
+            rows.remove(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+}
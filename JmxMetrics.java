@@ -0,0 +1,101 @@
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+// Publishes BookingMetrics over JMX as HotelReservationSystem:type=BookingMetrics (plus
+// ,property=<id> for every property but the default one), one read-only attribute per entry
+// of BookingMetrics.snapshot() (book_count, book_p99_us, rooms...).
+// A dynamic MBean, so the attribute list follows the metrics without a separate interface.
+class JmxMetrics implements DynamicMBean {
+    static final String OBJECT_NAME = "HotelReservationSystem:type=BookingMetrics";
+
+    private final BookingMetrics metrics;
+
+    private JmxMetrics(BookingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Registers with the platform MBean server (visible in jconsole / VisualVM); replaces an
+    // earlier registration, e.g. from a previous service in the same JVM
+    static void register(BookingMetrics metrics, String propertyId) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(propertyId.equals(HotelPortfolio.DEFAULT_PROPERTY)
+            ? OBJECT_NAME : OBJECT_NAME + ",property=" + ObjectName.quote(propertyId));
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(new JmxMetrics(metrics), name);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = metrics.snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Number> snapshot = metrics.snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = snapshot.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Booking metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        // There are no operations; this is how the DynamicMBean contract reports an unknown one
+        throw new ReflectionException(new NoSuchMethodException(actionName), "No operation " + actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        Map<String, Number> snapshot = metrics.snapshot();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+        int i = 0;
+        for (Map.Entry<String, Number> entry : snapshot.entrySet()) {
+            String type = entry.getValue() instanceof Double ? "double" : entry.getValue() instanceof Integer ? "int" : "long";
+            attributes[i++] = new MBeanAttributeInfo(entry.getKey(), type, describe(entry.getKey()), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Booking operation metrics", attributes, null, null, null);
+    }
+
+    private static String describe(String attribute) {
+        if (attribute.endsWith("_us")) {
+            return "Latency in microseconds";
+        }
+        if (attribute.endsWith("_count")) {
+            return "Operations recorded";
+        }
+        if (attribute.endsWith("_failures")) {
+            return "Operations rejected or failed";
+        }
+        return "Gauge";
+    }
+}
@@ -0,0 +1,434 @@
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Load generator and soak test: many threads book, cancel, add rooms and run reports against
+// one property for a while, then the books are checked to balance. Run it with
+//
+//   java HotelReservationSystem --load-test [--threads 8] [--duration 60] [--rooms 1000]
+//        [--mix book=60,cancel=25,addRoom=5,report=9,fullReport=1] [--zipf 1.1]
+//        [--check-every 10] [--data-dir DIR]
+//
+// Rooms are picked with a Zipf distribution over a popularity ranking (exponent --zipf, 0
+// for uniform), so a few rooms draw most of the traffic and bookings collide on them as on
+// a busy night. Stays start within 30 days and last 1-7 nights. Without --data-dir the
+// property is in memory; with it, every change goes through the write-ahead log.
+//
+// While traffic runs, the structural invariants are checked every --check-every seconds with
+// all room locks held (a short pause); the ledger is checked once the threads have stopped.
+// The exit status is 1 if any invariant failed or an operation failed unexpectedly, so the
+// run can gate a release.
+class LoadGenerator {
+    enum Op {
+        BOOK("book"), CANCEL("cancel"), ADD_ROOM("addRoom"), REPORT("report"), FULL_REPORT("fullReport");
+
+        final String key;
+
+        Op(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final String[] TYPES = {"Single", "Double", "Suite", "Deluxe"};
+    private static final long[] PRICES = {5000, 8000, 12000, 20000};
+    private static final int GUESTS = 10000;
+    private static final int BOOKING_WINDOW_DAYS = 30;
+    private static final int MAX_NIGHTS = 7;
+
+    // Outcome counts and latency of one operation
+    private static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        // Refused for a business reason, e.g. the room was taken: expected under contention
+        final LongAdder rejected = new LongAdder();
+        // Anything else
+        final LongAdder failed = new LongAdder();
+    }
+
+    private final BookingService service;
+    private final int threads;
+    private final long durationNanos;
+    private final long checkEveryNanos;
+    private final double zipf;
+    private final Op[] opTable;
+    private final String mixText;
+    private final Map<Op, Stats> stats = new EnumMap<>(Op.class);
+    private Room[] rooms;
+    // Cumulative Zipf probabilities by popularity rank
+    private double[] popularity;
+
+    // Ledger of successful changes, compared with the repository at the end
+    private final LongAdder booked = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder roomsAdded = new LongAdder();
+    private final AtomicLong nextRoom = new AtomicLong();
+    // Rooms added during the run are named after it, so a rerun on the same --data-dir does
+    // not collide with the rooms an earlier run left behind
+    private final String roomPrefix = "N" + Long.toString(System.currentTimeMillis(), 36) + "-";
+    private final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+    private int checks;
+    private long elapsedNanos;
+
+    LoadGenerator(BookingService service, int threads, long durationSeconds, long checkEverySeconds,
+                  double zipf, Map<Op, Integer> mix) {
+        this.service = service;
+        this.threads = threads;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.checkEveryNanos = TimeUnit.SECONDS.toNanos(checkEverySeconds);
+        this.zipf = zipf;
+        List<Op> table = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<Op, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                table.add(entry.getKey());
+            }
+            if (text.length() > 0) text.append(',');
+            text.append(entry.getKey().key).append('=').append(entry.getValue());
+        }
+        this.opTable = table.toArray(new Op[0]);
+        this.mixText = text.toString();
+        for (Op op : Op.values()) {
+            stats.put(op, new Stats());
+        }
+    }
+
+    // Entry point for --load-test; returns the exit status
+    static int run(String[] args) throws IOException {
+        int threads = Integer.parseInt(HotelReservationSystem.optionValue(args, "--threads", "8"));
+        long duration = Long.parseLong(HotelReservationSystem.optionValue(args, "--duration", "60"));
+        long checkEvery = Long.parseLong(HotelReservationSystem.optionValue(args, "--check-every", "10"));
+        int roomCount = Integer.parseInt(HotelReservationSystem.optionValue(args, "--rooms", "1000"));
+        double zipf = Double.parseDouble(HotelReservationSystem.optionValue(args, "--zipf", "1.1"));
+        Map<Op, Integer> mix = parseMix(HotelReservationSystem.optionValue(args, "--mix",
+            "book=60,cancel=25,addRoom=5,report=9,fullReport=1"));
+        if (threads <= 0 || duration <= 0 || checkEvery <= 0 || roomCount <= 0 || zipf < 0) {
+            throw new IllegalArgumentException("--threads, --duration, --check-every and --rooms must be positive and --zipf at least 0");
+        }
+
+        // Never the real hotel-data by accident: in memory unless a directory is named
+        boolean inMemory = HotelReservationSystem.optionValue(args, "--data-dir", null) == null;
+        String[] portfolioArgs = inMemory ? new String[]{"--in-memory"} : args;
+        BookingService service = HotelReservationSystem.openPortfolio(portfolioArgs).defaultProperty();
+
+        LoadGenerator generator = new LoadGenerator(service, threads, duration, checkEvery, zipf, mix);
+        generator.seed(roomCount);
+        System.out.printf(Locale.ROOT, "Load test: %d threads for %d s on %d rooms (%s), zipf %s, mix %s%n",
+            threads, duration, generator.rooms.length, inMemory ? "in memory" : "write-ahead log", zipf, generator.mixText);
+        boolean clean = generator.drive();
+        generator.printReport();
+        return clean ? 0 : 1;
+    }
+
+    // "book=60,cancel=25": relative weights; operations not named are not run
+    static Map<Op, Integer> parseMix(String text) {
+        Map<Op, Integer> mix = new EnumMap<>(Op.class);
+        for (String part : text.split(",")) {
+            String[] pair = part.trim().split("=");
+            Op op = null;
+            for (Op candidate : Op.values()) {
+                if (candidate.key.equalsIgnoreCase(pair[0].trim())) {
+                    op = candidate;
+                }
+            }
+            if (op == null || pair.length != 2) {
+                throw new IllegalArgumentException("--mix: expected op=weight with op one of book, cancel, addRoom, report, fullReport, not \"" + part + "\"");
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0 || weight > 1000) {
+                throw new IllegalArgumentException("--mix: weights must be 0-1000");
+            }
+            mix.put(op, weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("--mix: at least one weight must be above 0");
+        }
+        return mix;
+    }
+
+    // SETUP
+    // Adds the rooms in one batch and ranks them by popularity in random order, so the popular
+    // rooms are spread over types and lock stripes
+    void seed(int count) {
+        BookingService.Batch batch = new BookingService.Batch();
+        List<Room> added = new ArrayList<>(service.repository().rooms());
+        for (int i = 0; i < count; i++) {
+            String number = "L" + (i + 1);
+            try {
+                added.add(service.addRoom(number, TYPES[i % TYPES.length], PRICES[i % PRICES.length], batch));
+            } catch (BookingException e) {
+                // Left from an earlier run in the same data directory
+                Room existing = service.repository().findRoom(number);
+                if (existing != null) {
+                    added.add(existing);
+                }
+            }
+        }
+        service.finish(batch);
+        Collections.shuffle(added);
+        rooms = added.toArray(new Room[0]);
+        popularity = new double[rooms.length];
+        double sum = 0;
+        for (int rank = 0; rank < rooms.length; rank++) {
+            sum += 1 / Math.pow(rank + 1, zipf);
+            popularity[rank] = sum;
+        }
+        for (int rank = 0; rank < rooms.length; rank++) {
+            popularity[rank] /= sum;
+        }
+    }
+
+    private Room pickRoom(ThreadLocalRandom random) {
+        int rank = Arrays.binarySearch(popularity, random.nextDouble());
+        return rooms[Math.min(rooms.length - 1, rank >= 0 ? rank : -(rank + 1))];
+    }
+
+    // TRAFFIC
+    // Runs the workers until the duration is up, checking invariants on the way; true if
+    // nothing went wrong
+    boolean drive() {
+        int startReservations = service.repository().reservationCount();
+        int startRooms = service.repository().roomCount();
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> work(deadline), "load-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+        long nextCheck = start + checkEveryNanos;
+        long lastOps = 0;
+        long lastTime = start;
+        while (System.nanoTime() < deadline) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, Math.min(nextCheck, deadline) - System.nanoTime()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long now = System.nanoTime();
+            if (now >= nextCheck && now < deadline) {
+                service.runExclusive(() -> checkStructure(service.today()));
+                long ops = totalOps();
+                System.out.printf(Locale.ROOT, "%5d s  %,10.0f ops/s  book p99 %.2f ms  %d reservations  %d violations%n",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start), (ops - lastOps) * 1e9 / (now - lastTime),
+                    stats.get(Op.BOOK).latency.quantileNanos(0.99) / 1e6, service.repository().reservationCount(),
+                    violations.size());
+                lastOps = ops;
+                lastTime = now;
+                nextCheck += checkEveryNanos;
+            }
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        service.runExclusive(() -> {
+            checkStructure(service.today());
+            checkLedger(startReservations, startRooms);
+        });
+        return violations.isEmpty() && failedOps() == 0;
+    }
+
+    private void work(long deadline) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Bookings made by this thread and not cancelled yet; only this thread cancels them
+        List<String> mine = new ArrayList<>();
+        while (System.nanoTime() < deadline) {
+            Op op = opTable[random.nextInt(opTable.length)];
+            if (op == Op.CANCEL && mine.isEmpty()) {
+                op = Op.BOOK;
+            }
+            Stats s = stats.get(op);
+            // Read for every booking, so a run that goes past midnight books from the new day
+            LocalDate checkIn = service.today().plusDays(random.nextInt(BOOKING_WINDOW_DAYS));
+            long start = System.nanoTime();
+            try {
+                switch (op) {
+                    case BOOK: {
+                        int guest = random.nextInt(GUESTS);
+                        Reservation res = service.book("Guest " + guest, String.format(Locale.ROOT, "555-%07d", guest),
+                            pickRoom(random).roomNumber, checkIn, 1 + random.nextInt(MAX_NIGHTS));
+                        mine.add(res.bookingId);
+                        booked.increment();
+                        break;
+                    }
+                    case CANCEL: {
+                        int pick = random.nextInt(mine.size());
+                        String bookingId = mine.get(pick);
+                        mine.set(pick, mine.get(mine.size() - 1));
+                        mine.remove(mine.size() - 1);
+                        service.cancel(bookingId);
+                        cancelled.increment();
+                        break;
+                    }
+                    case ADD_ROOM: {
+                        int i = random.nextInt(TYPES.length);
+                        service.addRoom(roomPrefix + nextRoom.incrementAndGet(), TYPES[i], PRICES[i]);
+                        roomsAdded.increment();
+                        break;
+                    }
+                    case REPORT:
+                        service.summary();
+                        break;
+                    case FULL_REPORT:
+                        service.fullReport(10);
+                        break;
+                }
+                s.latency.recordNanos(System.nanoTime() - start);
+            } catch (BookingException e) {
+                s.latency.recordNanos(System.nanoTime() - start);
+                // A same-day check-in can also turn into the past at midnight while it is booked
+                if (op == Op.BOOK && (e.getReason() == BookingException.Reason.CONFLICT
+                        || checkIn.isBefore(service.today()))) {
+                    s.rejected.increment();
+                } else {
+                    s.failed.increment();
+                    violation(op.key + " failed: " + e.getTitle() + ": " + e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                s.latency.recordNanos(System.nanoTime() - start);
+                s.failed.increment();
+                violation(op.key + " threw " + e);
+            }
+        }
+    }
+
+    private long totalOps() {
+        long ops = 0;
+        for (Stats s : stats.values()) {
+            ops += s.latency.count();
+        }
+        return ops;
+    }
+
+    // INVARIANTS
+    // Called with every room lock held, so nothing changes underneath
+    private void checkStructure(LocalDate today) {
+        checks++;
+        RoomRepository repository = service.repository();
+        Map<Room, List<Reservation>> byRoom = new HashMap<>();
+        long revenue = 0;
+        int count = 0;
+        int[] covering = new int[BOOKING_WINDOW_DAYS + MAX_NIGHTS];
+        for (Reservation res : repository.reservations()) {
+            count++;
+            revenue += res.totalCents;
+            byRoom.computeIfAbsent(res.room, room -> new ArrayList<>()).add(res);
+            if (repository.findRoom(res.room.roomNumber) != res.room) {
+                violation(res.bookingId + " is for room " + res.room.roomNumber + ", which is not in the inventory");
+            }
+            if (repository.availability().isFreeOn(res.room, res.checkIn)) {
+                violation(res.bookingId + ": room " + res.room.roomNumber + " shows as free on " + res.checkIn);
+            }
+            for (LocalDate night = res.checkIn; night.isBefore(res.checkOut); night = night.plusDays(1)) {
+                long day = night.toEpochDay() - today.toEpochDay();
+                if (day >= 0 && day < covering.length) {
+                    covering[(int) day]++;
+                }
+            }
+        }
+        for (List<Reservation> stays : byRoom.values()) {
+            stays.sort((a, b) -> a.checkIn.compareTo(b.checkIn));
+            for (int i = 1; i < stays.size(); i++) {
+                Reservation before = stays.get(i - 1);
+                Reservation after = stays.get(i);
+                if (after.checkIn.isBefore(before.checkOut)) {
+                    violation("Room " + after.room.roomNumber + " is double-booked: " + before.bookingId + " ("
+                        + before.checkIn + " to " + before.checkOut + ") and " + after.bookingId + " ("
+                        + after.checkIn + " to " + after.checkOut + ")");
+                }
+            }
+        }
+        for (int day = 0; day < covering.length; day++) {
+            int occupied = repository.occupiedCount(today.plusDays(day));
+            if (occupied != covering[day]) {
+                violation("Availability index has " + occupied + " rooms booked on " + today.plusDays(day)
+                    + " but bookings cover " + covering[day]);
+            }
+        }
+        ReportSummary summary = service.summary();
+        if (summary.totalBookings != count || summary.totalRevenueCents != revenue) {
+            violation("Report shows " + summary.totalBookings + " bookings and " + Money.format(summary.totalRevenueCents)
+                + " revenue; the reservations add up to " + count + " and " + Money.format(revenue));
+        }
+        long typeBookings = 0;
+        long typeRevenue = 0;
+        for (ReportSummary.TypeSummary type : summary.byType) {
+            typeBookings += type.bookings;
+            typeRevenue += type.revenueCents;
+        }
+        if (typeBookings != count || typeRevenue != revenue) {
+            violation("Per-type totals add up to " + typeBookings + " bookings and " + Money.format(typeRevenue)
+                + "; the reservations to " + count + " and " + Money.format(revenue));
+        }
+    }
+
+    // After the workers have stopped: every acknowledged change must be in the repository
+    private void checkLedger(int startReservations, int startRooms) {
+        long expected = startReservations + booked.sum() - cancelled.sum();
+        if (service.repository().reservationCount() != expected) {
+            violation(booked.sum() + " bookings and " + cancelled.sum() + " cancellations were acknowledged, so "
+                + expected + " bookings were expected; there are " + service.repository().reservationCount());
+        }
+        long expectedRooms = startRooms + roomsAdded.sum();
+        if (service.repository().roomCount() != expectedRooms) {
+            violation(roomsAdded.sum() + " rooms were added, so " + expectedRooms + " were expected; there are "
+                + service.repository().roomCount());
+        }
+    }
+
+    private void violation(String message) {
+        // The first few are enough to go on; the count says how bad it is
+        if (violations.size() < 1000) {
+            violations.add(message);
+        }
+    }
+
+    // REPORT
+    void printReport() {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-11s %10s %10s %9s %7s %9s %9s %9s %9s%n",
+            "operation", "count", "ops/s", "rejected", "failed", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Op op : Op.values()) {
+            Stats s = stats.get(op);
+            if (s.latency.count() == 0) {
+                continue;
+            }
+            System.out.printf(Locale.ROOT, "%-11s %,10d %,10.0f %,9d %,7d %9.3f %9.3f %9.3f %9.3f%n",
+                op.key, s.latency.count(), s.latency.count() / seconds, s.rejected.sum(), s.failed.sum(),
+                s.latency.quantileNanos(0.5) / 1e6, s.latency.quantileNanos(0.99) / 1e6,
+                s.latency.quantileNanos(0.999) / 1e6, s.latency.maxNanos() / 1e6);
+        }
+        System.out.printf(Locale.ROOT, "%-11s %,10d %,10.0f%n", "total", totalOps(), totalOps() / seconds);
+        System.out.println();
+        System.out.println("Invariants: " + checks + " checks, " + violations.size() + " violation(s)");
+        for (String message : violations.subList(0, Math.min(20, violations.size()))) {
+            System.out.println("  " + message);
+        }
+        System.out.println(violations.isEmpty() && failedOps() == 0 ? "PASS" : "FAIL");
+    }
+
+    private long failedOps() {
+        long failed = 0;
+        for (Stats s : stats.values()) {
+            failed += s.failed.sum();
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,11 @@
+// Failures nobody is waiting on, from server, worker and timer threads: one line on standard
+// error naming what failed and why, so a client that keeps provoking one cannot flood the
+// console with stack traces
+final class Log {
+    private Log() {
+    }
+
+    static void error(String what, Throwable cause) {
+        System.err.println(what + ": " + cause);
+    }
+}
@@ -0,0 +1,91 @@
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Money amounts are whole cents in a long. Sums of longs are exact and come out the same in
+// any order, so totals never drift and parallel aggregation is deterministic; a long holds
+// about 92 quadrillion dollars, far beyond any hotel's revenue.
+// Text is only produced at the edges (tables, dialogs, reports, JSON).
+final class Money {
+    static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    // Symbol and decimal places looked up once per currency, not on every cell paint
+    private static final Map<Currency, Format> FORMATS = new ConcurrentHashMap<>();
+
+    private static final class Format {
+        final String symbol;
+        final int digits;
+        final long unit;
+
+        Format(Currency currency) {
+            symbol = currency.getSymbol(Locale.US);
+            digits = Math.max(0, currency.getDefaultFractionDigits());
+            long u = 1;
+            for (int i = 0; i < digits; i++) {
+                u *= 10;
+            }
+            unit = u;
+        }
+    }
+
+    private Money() {
+    }
+
+    // "80", "80.5" or "80.50" -> 8050. More than two decimal places is rejected rather than rounded.
+    static long parse(String text) {
+        try {
+            return new BigDecimal(text.trim()).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Not a money amount: " + text);
+        }
+    }
+
+    // For amounts stored as double by older data files
+    static long fromDouble(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    // 8050 -> "$80.50", 123456789 -> "$1,234,567.89"
+    static String format(long cents) {
+        return format(cents, DEFAULT_CURRENCY);
+    }
+
+    static String format(long cents, Currency currency) {
+        Format format = FORMATS.get(currency);
+        if (format == null) {
+            format = FORMATS.computeIfAbsent(currency, Format::new);
+        }
+        StringBuilder out = new StringBuilder(24);
+        if (cents < 0) {
+            out.append('-');
+        }
+        out.append(format.symbol);
+        // Amounts are kept in cents; currencies with other minor units are scaled for display
+        long minor = Math.abs(cents);
+        long units = minor / 100;
+        long fraction = minor % 100;
+        String whole = Long.toString(units);
+        int firstGroup = whole.length() % 3 == 0 ? 3 : whole.length() % 3;
+        out.append(whole, 0, firstGroup);
+        for (int i = firstGroup; i < whole.length(); i += 3) {
+            out.append(',').append(whole, i, i + 3);
+        }
+        if (format.digits > 0) {
+            out.append('.');
+            long scaled = fraction * format.unit / 100;
+            String digits = Long.toString(scaled);
+            for (int i = digits.length(); i < format.digits; i++) {
+                out.append('0');
+            }
+            out.append(digits);
+        }
+        return out.toString();
+    }
+
+    // 8050 -> "80.50", for JSON and files meant to be read back
+    static String plain(long cents) {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+}
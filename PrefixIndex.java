@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Maps strings to values and finds every value whose string starts with a prefix; built for
+// many more adds than scans (GuestDirectory files names and phone numbers here).
+//
+// Entries are kept in sorted runs of parallel arrays, ordered by a long code packed from the
+// first 12 characters (base 37: digits and letters, anything else as 0). Strings with a
+// common prefix have codes in one contiguous range, so a scan is a binary search per run and
+// a startsWith check per candidate, and merges compare longs instead of chasing strings.
+// New entries collect in a small unsorted buffer; a full buffer is sorted into a run, and runs
+// of similar size are merged like carries in binary addition, so there are about
+// log2(n / 1024) runs and adding costs a few array copies on average.
+//
+// Keys are expected in lower case (see GuestDirectory.tokens), and each is added once.
+class PrefixIndex<V> {
+    private static final int BUFFER = 1024;
+    private static final int CODE_CHARS = 12;
+
+    private static final class Run {
+        final long[] codes;
+        final String[] keys;
+        final Object[] values;
+
+        Run(int size) {
+            codes = new long[size];
+            keys = new String[size];
+            values = new Object[size];
+        }
+    }
+
+    private final long[] bufferCodes = new long[BUFFER];
+    private final String[] bufferKeys = new String[BUFFER];
+    private final Object[] bufferValues = new Object[BUFFER];
+    private int buffered;
+    // Largest first; each is more than twice the size of the next
+    private final List<Run> runs = new ArrayList<>();
+    private int size;
+
+    synchronized void add(String key, V value) {
+        bufferCodes[buffered] = code(key);
+        bufferKeys[buffered] = key;
+        bufferValues[buffered] = value;
+        buffered++;
+        size++;
+        if (buffered < BUFFER) {
+            return;
+        }
+        Run run = sortedBuffer();
+        while (!runs.isEmpty() && runs.get(runs.size() - 1).codes.length <= run.codes.length * 2) {
+            run = merge(runs.remove(runs.size() - 1), run);
+        }
+        runs.add(run);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // Values of up to limit keys starting with the prefix, in no particular order
+    @SuppressWarnings("unchecked")
+    synchronized List<V> withPrefix(String prefix, int limit) {
+        List<V> found = new ArrayList<>();
+        long low = code(prefix);
+        long high = low + span(prefix.length());
+        for (Run run : runs) {
+            for (int i = lowerBound(run.codes, low); i < run.codes.length && run.codes[i] < high; i++) {
+                if (run.keys[i].startsWith(prefix)) {
+                    if (found.size() >= limit) {
+                        return found;
+                    }
+                    found.add((V) run.values[i]);
+                }
+            }
+        }
+        for (int i = 0; i < buffered && found.size() < limit; i++) {
+            if (bufferKeys[i].startsWith(prefix)) {
+                found.add((V) bufferValues[i]);
+            }
+        }
+        return found;
+    }
+
+    // First CODE_CHARS characters in base 37, padded with zeros
+    static long code(String key) {
+        long code = 0;
+        for (int i = 0; i < CODE_CHARS; i++) {
+            code = code * 37 + (i < key.length() ? digit(key.charAt(i)) : 0);
+        }
+        return code;
+    }
+
+    // Number of codes sharing a prefix of the given length
+    private static long span(int prefixLength) {
+        long span = 1;
+        for (int i = Math.min(prefixLength, CODE_CHARS); i < CODE_CHARS; i++) {
+            span *= 37;
+        }
+        return span;
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return 1 + c - '0';
+        }
+        if (c >= 'a' && c <= 'z') {
+            return 11 + c - 'a';
+        }
+        return 0;
+    }
+
+    private Run sortedBuffer() {
+        Integer[] order = new Integer[BUFFER];
+        for (int i = 0; i < BUFFER; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(bufferCodes[a], bufferCodes[b]));
+        Run run = new Run(BUFFER);
+        for (int i = 0; i < BUFFER; i++) {
+            run.codes[i] = bufferCodes[order[i]];
+            run.keys[i] = bufferKeys[order[i]];
+            run.values[i] = bufferValues[order[i]];
+        }
+        Arrays.fill(bufferKeys, null);
+        Arrays.fill(bufferValues, null);
+        buffered = 0;
+        return run;
+    }
+
+    private static Run merge(Run a, Run b) {
+        Run merged = new Run(a.codes.length + b.codes.length);
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.codes.length; k++) {
+            Run from;
+            int at;
+            if (j >= b.codes.length || (i < a.codes.length && a.codes[i] <= b.codes[j])) {
+                from = a;
+                at = i++;
+            } else {
+                from = b;
+                at = j++;
+            }
+            merged.codes[k] = from.codes[at];
+            merged.keys[k] = from.keys[at];
+            merged.values[k] = from.values[at];
+        }
+        return merged;
+    }
+
+    private static int lowerBound(long[] codes, long key) {
+        int low = 0;
+        int high = codes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (codes[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,21 @@
+import java.time.LocalDate;
+
+// One adjustment to room rates. RateEngine multiplies the factors of every rule together:
+// the night factors into a rate table per room type and date, evaluated once per rule set
+// rather than per quote, and the stay factor onto the sum of the nightly rates.
+// Built-in rules are in PricingRules.
+interface PricingRule {
+    // Multiplier for one night of a room type; occupancy is the share (0-1) of the type's
+    // rooms already booked that night
+    double nightFactor(String type, LocalDate night, double occupancy);
+
+    // True when nightFactor reads occupancy; the rate table is then updated as bookings change
+    default boolean usesOccupancy() {
+        return false;
+    }
+
+    // Multiplier for the whole stay
+    default double stayFactor(String type, int nights) {
+        return 1;
+    }
+}
@@ -0,0 +1,233 @@
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// The built-in pricing rules and their text form, one rule per line:
+//
+//   season 06-15 08-31 +20%    nights from June 15 to August 31 (inclusive; may wrap the new year)
+//   days FRI,SAT +15%          nights starting on these weekdays
+//   surge 80% +10%             nights when at least 80% of the room type is already booked
+//   stay 7 -10%                whole stays of at least 7 nights
+//
+// Blank lines and lines starting with # are ignored. Rules multiply, so a summer Saturday
+// with both rules above is 1.20 x 1.15 of the base price.
+final class PricingRules {
+    private PricingRules() {
+    }
+
+    static final class Season implements PricingRule {
+        final MonthDay from;
+        final MonthDay to;
+        final double percent;
+
+        Season(MonthDay from, MonthDay to, double percent) {
+            this.from = from;
+            this.to = to;
+            this.percent = percent;
+        }
+
+        @Override
+        public double nightFactor(String type, LocalDate night, double occupancy) {
+            MonthDay day = MonthDay.from(night);
+            boolean inside = from.isAfter(to)
+                ? !day.isBefore(from) || !day.isAfter(to)
+                : !day.isBefore(from) && !day.isAfter(to);
+            return inside ? 1 + percent / 100 : 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "season %02d-%02d %02d-%02d %s", from.getMonthValue(), from.getDayOfMonth(),
+                to.getMonthValue(), to.getDayOfMonth(), percent(percent));
+        }
+    }
+
+    static final class Days implements PricingRule {
+        final Set<DayOfWeek> days;
+        final double percent;
+
+        Days(Set<DayOfWeek> days, double percent) {
+            this.days = EnumSet.copyOf(days);
+            this.percent = percent;
+        }
+
+        @Override
+        public double nightFactor(String type, LocalDate night, double occupancy) {
+            return days.contains(night.getDayOfWeek()) ? 1 + percent / 100 : 1;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder names = new StringBuilder();
+            for (DayOfWeek day : days) {
+                if (names.length() > 0) names.append(',');
+                names.append(day.name(), 0, 3);
+            }
+            return "days " + names + " " + percent(percent);
+        }
+    }
+
+    static final class Surge implements PricingRule {
+        // 0-100
+        final double thresholdPercent;
+        final double percent;
+
+        Surge(double thresholdPercent, double percent) {
+            this.thresholdPercent = thresholdPercent;
+            this.percent = percent;
+        }
+
+        @Override
+        public double nightFactor(String type, LocalDate night, double occupancy) {
+            return occupancy * 100 >= thresholdPercent ? 1 + percent / 100 : 1;
+        }
+
+        @Override
+        public boolean usesOccupancy() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "surge " + number(thresholdPercent) + "% " + percent(percent);
+        }
+    }
+
+    static final class LongStay implements PricingRule {
+        final int minNights;
+        final double percent;
+
+        LongStay(int minNights, double percent) {
+            this.minNights = minNights;
+            this.percent = percent;
+        }
+
+        @Override
+        public double nightFactor(String type, LocalDate night, double occupancy) {
+            return 1;
+        }
+
+        @Override
+        public double stayFactor(String type, int nights) {
+            return nights >= minNights ? 1 + percent / 100 : 1;
+        }
+
+        @Override
+        public String toString() {
+            return "stay " + minNights + " " + percent(percent);
+        }
+    }
+
+    // PARSING
+    // Throws IllegalArgumentException naming the first bad line
+    static List<PricingRule> parse(List<String> lines) {
+        List<PricingRule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                rules.add(parseRule(line.split("\\s+")));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage() + " (\"" + line + "\")");
+            }
+        }
+        return rules;
+    }
+
+    private static PricingRule parseRule(String[] words) {
+        switch (words[0].toLowerCase(Locale.ROOT)) {
+            case "season":
+                expect(words, 4, "season MM-DD MM-DD +N%");
+                return new Season(MonthDay.parse("--" + words[1]), MonthDay.parse("--" + words[2]), adjustment(words[3]));
+            case "days":
+                expect(words, 3, "days MON,TUE,... +N%");
+                Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+                for (String name : words[1].split(",")) {
+                    days.add(day(name));
+                }
+                return new Days(days, adjustment(words[2]));
+            case "surge":
+                expect(words, 3, "surge N% +N%");
+                double threshold = percentValue(words[1]);
+                if (threshold < 0 || threshold > 100) {
+                    throw new IllegalArgumentException("occupancy must be 0-100%");
+                }
+                return new Surge(threshold, adjustment(words[2]));
+            case "stay":
+                expect(words, 3, "stay NIGHTS -N%");
+                int nights;
+                try {
+                    nights = Integer.parseInt(words[1]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("not a number of nights: " + words[1]);
+                }
+                return new LongStay(nights, adjustment(words[2]));
+            default:
+                throw new IllegalArgumentException("unknown rule \"" + words[0] + "\"");
+        }
+    }
+
+    static List<String> format(List<PricingRule> rules) {
+        List<String> lines = new ArrayList<>(rules.size());
+        for (PricingRule rule : rules) {
+            lines.add(rule.toString());
+        }
+        return lines;
+    }
+
+    private static void expect(String[] words, int count, String usage) {
+        if (words.length != count) {
+            throw new IllegalArgumentException("expected " + usage);
+        }
+    }
+
+    private static DayOfWeek day(String name) {
+        String prefix = name.trim().toUpperCase(Locale.ROOT);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (prefix.length() >= 3 && day.name().startsWith(prefix)) {
+                return day;
+            }
+        }
+        throw new IllegalArgumentException("not a weekday: " + name);
+    }
+
+    // "+20%", "-10%" or "15": a change of at least -100%
+    private static double adjustment(String text) {
+        double percent = percentValue(text);
+        if (percent < -100) {
+            throw new IllegalArgumentException("cannot take off more than 100%");
+        }
+        return percent;
+    }
+
+    private static double percentValue(String text) {
+        String number = text.endsWith("%") ? text.substring(0, text.length() - 1) : text;
+        double value;
+        try {
+            value = Double.parseDouble(number.startsWith("+") ? number.substring(1) : number);
+        } catch (NumberFormatException e) {
+            value = Double.NaN;
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("not a percentage: " + text);
+        }
+        return value;
+    }
+
+    private static String percent(double value) {
+        return (value >= 0 ? "+" : "") + number(value) + "%";
+    }
+
+    private static String number(double value) {
+        return new BigDecimal(Double.toString(value)).stripTrailingZeros().toPlainString();
+    }
+}
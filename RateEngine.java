@@ -0,0 +1,268 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Nightly rates from pricing rules. For every room type there is a rate table with one
+// factor per night of the booking horizon (in basis points, 10000 = base price), holding
+// the product of every rule's night factor. A quote multiplies the room's base price by the
+// factors of its nights, so quoting never evaluates a rule; a bulk quote also shares the
+// work between rooms of the same type and price.
+//
+// Tables are rebuilt a type at a time, on first use after the rules change. Rules that read
+// occupancy keep the table current as bookings change: RoomRepository reports booked and
+// released nights, and only those nights of that type are recomputed. Without such rules a
+// booking costs two counter updates per night.
+//
+// Nights are kept in the same slots as in AvailabilityIndex (round-robin by date), and the
+// horizon moves forward with it (advanceTo).
+//
+// Nightly prices are rounded to the cent, then the stay factor is applied to their sum.
+class RateEngine {
+    private static final int ONE = 10000;
+
+    // Booked rooms and room count of one type, per night of the horizon (by slot)
+    private static final class Occupancy {
+        final AtomicIntegerArray booked = new AtomicIntegerArray(AvailabilityIndex.HORIZON_DAYS);
+        final AtomicInteger rooms = new AtomicInteger();
+    }
+
+    // Tables for one set of rules; replaced as a whole when the rules change
+    private static final class RuleSet {
+        final List<PricingRule> rules;
+        final boolean usesOccupancy;
+        final Map<String, AtomicIntegerArray> tables = new ConcurrentHashMap<>();
+
+        RuleSet(List<PricingRule> rules) {
+            this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+            boolean occupancy = false;
+            for (PricingRule rule : rules) {
+                occupancy |= rule.usesOccupancy();
+            }
+            this.usesOccupancy = occupancy;
+        }
+    }
+
+    // First day of the horizon; only moves forward, see advanceTo
+    private volatile long baseDay;
+    private final Map<String, Occupancy> occupancy = new ConcurrentHashMap<>();
+    private volatile RuleSet ruleSet = new RuleSet(Collections.<PricingRule>emptyList());
+
+    RateEngine(LocalDate firstDay) {
+        this.baseDay = firstDay.toEpochDay();
+    }
+
+    List<PricingRule> rules() {
+        return ruleSet.rules;
+    }
+
+    // Takes effect for the next quote; bookings already made keep their price
+    void setRules(List<PricingRule> rules) {
+        ruleSet = new RuleSet(rules);
+    }
+
+    // Drops the nights before the given day and opens as many at the far end, like
+    // AvailabilityIndex.advanceTo and under the same locks. Rate tables are by date, so they
+    // are rebuilt on first use.
+    void advanceTo(LocalDate day) {
+        long base = baseDay;
+        long target = day.toEpochDay();
+        if (target <= base) {
+            return;
+        }
+        for (Occupancy counts : occupancy.values()) {
+            for (long passed = base; passed < target && passed < base + AvailabilityIndex.HORIZON_DAYS; passed++) {
+                counts.booked.set(AvailabilityIndex.slotOf(passed), 0);
+            }
+        }
+        baseDay = target;
+        ruleSet = new RuleSet(ruleSet.rules);
+    }
+
+    // OCCUPANCY, called by RoomRepository
+    void roomAdded(Room room) {
+        occupancyOf(room.type).rooms.incrementAndGet();
+        refreshAll(room.type);
+    }
+
+    void roomRemoved(Room room) {
+        occupancyOf(room.type).rooms.decrementAndGet();
+        refreshAll(room.type);
+    }
+
+    void nightsBooked(Room room, LocalDate from, LocalDate to) {
+        changeNights(room.type, from, to, 1);
+    }
+
+    void nightsReleased(Room room, LocalDate from, LocalDate to) {
+        changeNights(room.type, from, to, -1);
+    }
+
+    private void changeNights(String type, LocalDate from, LocalDate to, int delta) {
+        Occupancy counts = occupancyOf(type);
+        long base = baseDay;
+        long start = Math.max(from.toEpochDay(), base);
+        long end = Math.min(to.toEpochDay(), base + AvailabilityIndex.HORIZON_DAYS);
+        for (long night = start; night < end; night++) {
+            counts.booked.addAndGet(AvailabilityIndex.slotOf(night), delta);
+        }
+        RuleSet current = ruleSet;
+        AtomicIntegerArray table = current.usesOccupancy ? current.tables.get(type) : null;
+        if (table != null) {
+            for (long night = start; night < end; night++) {
+                refresh(current, type, table, counts, night);
+            }
+        }
+    }
+
+    // A room more or less changes the type's occupancy on every night
+    private void refreshAll(String type) {
+        RuleSet current = ruleSet;
+        AtomicIntegerArray table = current.usesOccupancy ? current.tables.get(type) : null;
+        if (table != null) {
+            Occupancy counts = occupancyOf(type);
+            long base = baseDay;
+            for (long night = base; night < base + AvailabilityIndex.HORIZON_DAYS; night++) {
+                refresh(current, type, table, counts, night);
+            }
+        }
+    }
+
+    // Recomputes one night until the count it was computed from is still current, so two
+    // bookings of the same night cannot leave the older count's rate behind
+    private void refresh(RuleSet rules, String type, AtomicIntegerArray table, Occupancy counts, long night) {
+        int slot = AvailabilityIndex.slotOf(night);
+        int booked;
+        do {
+            booked = counts.booked.get(slot);
+            table.set(slot, factor(rules, type, night, booked, counts.rooms.get()));
+        } while (counts.booked.get(slot) != booked);
+    }
+
+    // QUOTES
+    // Price of the stay [checkIn, checkIn + nights) in the room, in cents
+    long quote(Room room, LocalDate checkIn, int nights) {
+        return quote(Collections.singletonList(room), checkIn, nights)[0];
+    }
+
+    // Prices of the same stay in each of the rooms, in the same order. Each type's factors
+    // for the stay are read once, and rooms of one type and base price are priced once.
+    long[] quote(List<Room> rooms, LocalDate checkIn, int nights) {
+        RuleSet current = ruleSet;
+        long[] totals = new long[rooms.size()];
+        Map<String, int[]> factorsByType = new HashMap<>();
+        Map<String, Map<Long, Long>> totalsByType = new HashMap<>();
+        for (int i = 0; i < totals.length; i++) {
+            Room room = rooms.get(i);
+            int[] factors = factorsByType.computeIfAbsent(room.type, type -> stayFactors(current, type, checkIn, nights));
+            Map<Long, Long> byPrice = totalsByType.computeIfAbsent(room.type, type -> new HashMap<>());
+            totals[i] = byPrice.computeIfAbsent(room.priceCents, price -> price(price, factors));
+        }
+        return totals;
+    }
+
+    // Rate of one night in the room, in cents
+    long nightlyRate(Room room, LocalDate night) {
+        return scale(room.priceCents, nightFactors(ruleSet, room.type, night, 1)[0]);
+    }
+
+    // Night factors of the stay followed by its stay factor
+    private int[] stayFactors(RuleSet rules, String type, LocalDate checkIn, int nights) {
+        int[] factors = nightFactors(rules, type, checkIn, nights);
+        int[] withStay = Arrays.copyOf(factors, nights + 1);
+        double stay = 1;
+        for (PricingRule rule : rules.rules) {
+            stay *= rule.stayFactor(type, nights);
+        }
+        withStay[nights] = basisPoints(stay);
+        return withStay;
+    }
+
+    private int[] nightFactors(RuleSet rules, String type, LocalDate first, int nights) {
+        int[] factors = new int[nights];
+        if (rules.rules.isEmpty()) {
+            Arrays.fill(factors, ONE);
+            return factors;
+        }
+        AtomicIntegerArray table = rules.tables.get(type);
+        if (table == null) {
+            table = build(rules, type);
+        }
+        long base = baseDay;
+        for (int i = 0; i < nights; i++) {
+            long night = first.toEpochDay() + i;
+            if (night >= base && night < base + AvailabilityIndex.HORIZON_DAYS) {
+                factors[i] = table.get(AvailabilityIndex.slotOf(night));
+            } else {
+                // Outside the horizon nothing is booked, so the rules are asked directly
+                factors[i] = basisPoints(product(rules, type, LocalDate.ofEpochDay(night), 0));
+            }
+        }
+        return factors;
+    }
+
+    // Fills a type's table from the current counts, publishes it, and then brings any night
+    // booked meanwhile up to date
+    private AtomicIntegerArray build(RuleSet rules, String type) {
+        Occupancy counts = occupancyOf(type);
+        AtomicIntegerArray table = new AtomicIntegerArray(AvailabilityIndex.HORIZON_DAYS);
+        long base = baseDay;
+        for (long night = base; night < base + AvailabilityIndex.HORIZON_DAYS; night++) {
+            int slot = AvailabilityIndex.slotOf(night);
+            table.set(slot, factor(rules, type, night, counts.booked.get(slot), counts.rooms.get()));
+        }
+        AtomicIntegerArray existing = rules.tables.putIfAbsent(type, table);
+        if (existing != null) {
+            return existing;
+        }
+        if (rules.usesOccupancy) {
+            for (long night = base; night < base + AvailabilityIndex.HORIZON_DAYS; night++) {
+                refresh(rules, type, table, counts, night);
+            }
+        }
+        return table;
+    }
+
+    private static int factor(RuleSet rules, String type, long night, int booked, int rooms) {
+        double occupied = rooms <= 0 ? 0 : Math.min(1, (double) booked / rooms);
+        return basisPoints(product(rules, type, LocalDate.ofEpochDay(night), occupied));
+    }
+
+    private static double product(RuleSet rules, String type, LocalDate night, double occupied) {
+        double product = 1;
+        for (PricingRule rule : rules.rules) {
+            product *= rule.nightFactor(type, night, occupied);
+        }
+        return product;
+    }
+
+    // Sum of the rounded nightly prices, times the stay factor in the last slot
+    private static long price(long baseCents, int[] factors) {
+        int nights = factors.length - 1;
+        long sum = 0;
+        for (int i = 0; i < nights; i++) {
+            sum += scale(baseCents, factors[i]);
+        }
+        return scale(sum, factors[nights]);
+    }
+
+    // Rounded half up to the cent
+    private static long scale(long cents, int basisPoints) {
+        return (cents * basisPoints + ONE / 2) / ONE;
+    }
+
+    private static int basisPoints(double factor) {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, Math.round(factor * ONE)));
+    }
+
+    private Occupancy occupancyOf(String type) {
+        Occupancy counts = occupancy.get(type);
+        return counts != null ? counts : occupancy.computeIfAbsent(type, t -> new Occupancy());
+    }
+}
@@ -0,0 +1,343 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Full report computed from scratch with fork/join: rooms and reservations are split into
+// ranges (rooms by position in a snapshot, reservations by booking ID), each range is
+// summarized on its own, and partial results are merged pairwise up the task tree.
+//
+// Merging is deterministic: every number is a long sum, which does not depend on how the
+// data was split, and the top customers are ranked by revenue, then bookings, then name and
+// phone, so ties come out the same on any number of cores. ReportSummary's running totals
+// answer the headline numbers instantly; this engine adds what they do not keep (nights sold,
+// occupancy per type, top customers) and doubles as a cross-check of them.
+class ReportEngine {
+    enum Format { TEXT, CSV, JSON }
+
+    static final int DEFAULT_TOP = 10;
+
+    // Reservation IDs per leaf task; the table stores 4096 per page, so a leaf covers 8 pages
+    private static final long RESERVATION_SPLIT = 1 << 15;
+    private static final int ROOM_SPLIT = 1 << 14;
+
+    private final RoomRepository repository;
+    private final ForkJoinPool pool;
+
+    // Runs on the common fork/join pool
+    ReportEngine(RoomRepository repository) {
+        this(repository, ForkJoinPool.commonPool());
+    }
+
+    ReportEngine(RoomRepository repository, ForkJoinPool pool) {
+        this.repository = repository;
+        this.pool = pool;
+    }
+
+    // Numbers for one room type
+    static class TypeStats {
+        long rooms;
+        long bookings;
+        long nights;
+        long revenueCents;
+        long occupiedTonight;
+
+        void add(TypeStats other) {
+            rooms += other.rooms;
+            bookings += other.bookings;
+            nights += other.nights;
+            revenueCents += other.revenueCents;
+            occupiedTonight += other.occupiedTonight;
+        }
+    }
+
+    // Bookings and revenue of one customer, identified by name and phone
+    static class CustomerStats {
+        final String name;
+        final String phone;
+        long bookings;
+        long revenueCents;
+
+        CustomerStats(String name, String phone) {
+            this.name = name;
+            this.phone = phone;
+        }
+    }
+
+    private static final Comparator<CustomerStats> RANKING = (a, b) -> {
+        int c = Long.compare(b.revenueCents, a.revenueCents);
+        if (c == 0) c = Long.compare(b.bookings, a.bookings);
+        if (c == 0) c = a.name.compareTo(b.name);
+        if (c == 0) c = a.phone.compareTo(b.phone);
+        return c;
+    };
+
+    static class Result {
+        final LocalDate day;
+        final TreeMap<String, TypeStats> byType = new TreeMap<>();
+        final List<CustomerStats> topCustomers = new ArrayList<>();
+        long rooms;
+        long bookings;
+        long nights;
+        long revenueCents;
+        long occupiedTonight;
+
+        Result(LocalDate day) {
+            this.day = day;
+        }
+    }
+
+    // Partial result of one range of rooms or reservations
+    private static final class Partial {
+        final Map<String, TypeStats> byType = new HashMap<>();
+        final Map<String, CustomerStats> customers = new HashMap<>();
+
+        TypeStats type(String type) {
+            TypeStats stats = byType.get(type);
+            if (stats == null) {
+                stats = new TypeStats();
+                byType.put(type, stats);
+            }
+            return stats;
+        }
+
+        // Folds the smaller partial into the larger one and returns the larger
+        Partial merge(Partial other) {
+            Partial into = customers.size() >= other.customers.size() ? this : other;
+            Partial from = into == this ? other : this;
+            for (Map.Entry<String, TypeStats> entry : from.byType.entrySet()) {
+                into.type(entry.getKey()).add(entry.getValue());
+            }
+            for (Map.Entry<String, CustomerStats> entry : from.customers.entrySet()) {
+                CustomerStats existing = into.customers.get(entry.getKey());
+                if (existing == null) {
+                    into.customers.put(entry.getKey(), entry.getValue());
+                } else {
+                    existing.bookings += entry.getValue().bookings;
+                    existing.revenueCents += entry.getValue().revenueCents;
+                }
+            }
+            return into;
+        }
+    }
+
+    Result run(LocalDate today, int top) {
+        List<Room> rooms = new ArrayList<>(repository.rooms());
+        long idLimit = repository.reservationIdLimit();
+        Partial roomPart = pool.invoke(new RoomTask(rooms, 0, rooms.size()));
+        Partial reservationPart = pool.invoke(new ReservationTask(today, 0, idLimit));
+        Partial all = roomPart.merge(reservationPart);
+
+        Result result = new Result(today);
+        for (Map.Entry<String, TypeStats> entry : all.byType.entrySet()) {
+            TypeStats stats = entry.getValue();
+            result.byType.put(entry.getKey(), stats);
+            result.rooms += stats.rooms;
+            result.bookings += stats.bookings;
+            result.nights += stats.nights;
+            result.revenueCents += stats.revenueCents;
+            result.occupiedTonight += stats.occupiedTonight;
+        }
+        result.topCustomers.addAll(topOf(all.customers.values(), top));
+        return result;
+    }
+
+    // Partial sort: keeps a sorted list of at most n, so large customer sets are not fully sorted
+    private static List<CustomerStats> topOf(Iterable<CustomerStats> customers, int n) {
+        List<CustomerStats> best = new ArrayList<>(n + 1);
+        if (n <= 0) {
+            return best;
+        }
+        for (CustomerStats customer : customers) {
+            if (best.size() == n && RANKING.compare(customer, best.get(n - 1)) >= 0) {
+                continue;
+            }
+            int at = Collections.binarySearch(best, customer, RANKING);
+            best.add(at < 0 ? -at - 1 : at, customer);
+            if (best.size() > n) {
+                best.remove(n);
+            }
+        }
+        return best;
+    }
+
+    private static final class RoomTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Room> rooms;
+        private final int from;
+        private final int to;
+
+        RoomTask(List<Room> rooms, int from, int to) {
+            this.rooms = rooms;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > ROOM_SPLIT) {
+                int middle = (from + to) >>> 1;
+                RoomTask left = new RoomTask(rooms, from, middle);
+                left.fork();
+                Partial right = new RoomTask(rooms, middle, to).compute();
+                return left.join().merge(right);
+            }
+            Partial partial = new Partial();
+            for (int i = from; i < to; i++) {
+                partial.type(rooms.get(i).type).rooms++;
+            }
+            return partial;
+        }
+    }
+
+    private final class ReservationTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final LocalDate today;
+        private final long from;
+        private final long to;
+
+        ReservationTask(LocalDate today, long from, long to) {
+            this.today = today;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > RESERVATION_SPLIT) {
+                long middle = (from + to) >>> 1;
+                ReservationTask left = new ReservationTask(today, from, middle);
+                left.fork();
+                Partial right = new ReservationTask(today, middle, to).compute();
+                return left.join().merge(right);
+            }
+            Partial partial = new Partial();
+            repository.forEachReservation(from, to, res -> {
+                TypeStats stats = partial.type(res.room.type);
+                stats.bookings++;
+                stats.nights += res.nights;
+                stats.revenueCents += res.totalCents;
+                if (!res.checkIn.isAfter(today) && res.checkOut.isAfter(today)) {
+                    stats.occupiedTonight++;
+                }
+                String key = res.customerName + '\n' + res.customerPhone;
+                CustomerStats customer = partial.customers.get(key);
+                if (customer == null) {
+                    customer = new CustomerStats(res.customerName, res.customerPhone);
+                    partial.customers.put(key, customer);
+                }
+                customer.bookings++;
+                customer.revenueCents += res.totalCents;
+            });
+            return partial;
+        }
+    }
+
+    // OUTPUT
+    static void write(Result result, Format format, Writer out) throws IOException {
+        switch (format) {
+            case CSV: writeCsv(result, out); break;
+            case JSON: writeJson(result, out); break;
+            default: writeText(result, out);
+        }
+        out.flush();
+    }
+
+    // .csv and .json by extension, text otherwise
+    static Format formatOf(String fileName) {
+        String name = fileName.toLowerCase();
+        return name.endsWith(".csv") ? Format.CSV : name.endsWith(".json") ? Format.JSON : Format.TEXT;
+    }
+
+    private static void writeText(Result result, Writer out) throws IOException {
+        out.write("===== HOTEL PORTFOLIO REPORT (" + result.day + ") =====\n\n");
+        out.write("Total Rooms: " + result.rooms + "\n");
+        out.write("Booked Tonight: " + result.occupiedTonight + "\n");
+        out.write("Total Bookings: " + result.bookings + "\n");
+        out.write("Nights Sold: " + result.nights + "\n");
+        out.write("Total Revenue: " + Money.format(result.revenueCents) + "\n\n");
+        out.write("BY ROOM TYPE:\n");
+        for (Map.Entry<String, TypeStats> entry : result.byType.entrySet()) {
+            TypeStats stats = entry.getValue();
+            out.write(entry.getKey() + ": " + stats.rooms + " rooms, " + stats.occupiedTonight + " booked tonight, "
+                + stats.bookings + " bookings, " + stats.nights + " nights, " + Money.format(stats.revenueCents) + "\n");
+        }
+        out.write("\nTOP CUSTOMERS:\n");
+        int rank = 0;
+        for (CustomerStats customer : result.topCustomers) {
+            out.write(++rank + ". " + customer.name + " (" + customer.phone + "): "
+                + customer.bookings + " bookings, " + Money.format(customer.revenueCents) + "\n");
+        }
+    }
+
+    // One table with a section column, so it loads into a spreadsheet as is
+    private static void writeCsv(Result result, Writer out) throws IOException {
+        out.write("section,key,rooms,bookedTonight,bookings,nights,revenue\n");
+        out.write("total,," + result.rooms + "," + result.occupiedTonight + "," + result.bookings + ","
+            + result.nights + "," + Money.plain(result.revenueCents) + "\n");
+        for (Map.Entry<String, TypeStats> entry : result.byType.entrySet()) {
+            TypeStats stats = entry.getValue();
+            out.write("type," + csv(entry.getKey()) + "," + stats.rooms + "," + stats.occupiedTonight + ","
+                + stats.bookings + "," + stats.nights + "," + Money.plain(stats.revenueCents) + "\n");
+        }
+        for (CustomerStats customer : result.topCustomers) {
+            out.write("customer," + csv(customer.name + " (" + customer.phone + ")") + ",,," + customer.bookings + ",,"
+                + Money.plain(customer.revenueCents) + "\n");
+        }
+    }
+
+    private static void writeJson(Result result, Writer out) throws IOException {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"day\":\"").append(result.day).append('"')
+            .append(",\"totalRooms\":").append(result.rooms)
+            .append(",\"bookedTonight\":").append(result.occupiedTonight)
+            .append(",\"totalBookings\":").append(result.bookings)
+            .append(",\"nightsSold\":").append(result.nights)
+            .append(",\"totalRevenue\":").append(Money.plain(result.revenueCents))
+            .append(",\"byType\":[");
+        boolean first = true;
+        for (Map.Entry<String, TypeStats> entry : result.byType.entrySet()) {
+            TypeStats stats = entry.getValue();
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"type\":");
+            Json.appendQuoted(json, entry.getKey());
+            json.append(",\"rooms\":").append(stats.rooms)
+                .append(",\"bookedTonight\":").append(stats.occupiedTonight)
+                .append(",\"bookings\":").append(stats.bookings)
+                .append(",\"nights\":").append(stats.nights)
+                .append(",\"revenue\":").append(Money.plain(stats.revenueCents)).append('}');
+        }
+        json.append("],\"topCustomers\":[");
+        first = true;
+        for (CustomerStats customer : result.topCustomers) {
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"name\":");
+            Json.appendQuoted(json, customer.name);
+            json.append(",\"phone\":");
+            Json.appendQuoted(json, customer.phone);
+            json.append(",\"bookings\":").append(customer.bookings)
+                .append(",\"revenue\":").append(Money.plain(customer.revenueCents)).append('}');
+        }
+        json.append("]}\n");
+        out.write(json.toString());
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,42 @@
+import java.util.List;
+
+// Headline numbers of the booking report
+class ReportSummary {
+    final int totalRooms;
+    final int bookedTonight;
+    final int totalBookings;
+    final long totalRevenueCents;
+    final long archivedBookings;
+    final long archivedRevenueCents;
+    final List<TypeSummary> byType;
+
+    ReportSummary(int totalRooms, int bookedTonight, int totalBookings, long totalRevenueCents,
+                  long archivedBookings, long archivedRevenueCents, List<TypeSummary> byType) {
+        this.totalRooms = totalRooms;
+        this.bookedTonight = bookedTonight;
+        this.totalBookings = totalBookings;
+        this.totalRevenueCents = totalRevenueCents;
+        this.archivedBookings = archivedBookings;
+        this.archivedRevenueCents = archivedRevenueCents;
+        this.byType = byType;
+    }
+
+    int availableTonight() {
+        return totalRooms - bookedTonight;
+    }
+
+    // Rooms, live bookings and their revenue for one room type
+    static class TypeSummary {
+        final String type;
+        final int rooms;
+        final int bookings;
+        final long revenueCents;
+
+        TypeSummary(String type, int rooms, int bookings, long revenueCents) {
+            this.type = type;
+            this.rooms = rooms;
+            this.bookings = bookings;
+            this.revenueCents = revenueCents;
+        }
+    }
+}
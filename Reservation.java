@@ -0,0 +1,50 @@
+import java.time.LocalDate;
+
+// Simple Reservation class. Immutable, so it can be handed to other threads once stored;
+// create it with RoomRepository.newReservation, which finds its guest.
+class Reservation {
+    final long id;
+    final String bookingId;
+    final String customerName;
+    final String customerPhone;
+    final Room room;
+    final LocalDate checkIn;
+    final LocalDate checkOut;
+    final int nights;
+    // In cents, see Money
+    final long totalCents;
+    // The name and phone above are the guest's copies when the text is the same
+    final Guest guest;
+
+    Reservation(long id, String customerName, String customerPhone, Guest guest, Room room, LocalDate checkIn, int nights, long totalCents) {
+        this.id = id;
+        this.bookingId = "BK" + id;
+        this.customerName = customerName;
+        this.customerPhone = customerPhone;
+        this.guest = guest;
+        this.room = room;
+        this.checkIn = checkIn;
+        this.checkOut = checkIn.plusDays(nights);
+        this.nights = nights;
+        this.totalCents = totalCents;
+    }
+
+    // "BK42" -> 42, or -1 if the text is not a booking ID
+    static long idOf(String bookingId) {
+        if (bookingId == null || !bookingId.startsWith("BK") || bookingId.length() == 2 || bookingId.length() > 20) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 2; i < bookingId.length(); i++) {
+            char c = bookingId.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+            if (id < 0) {
+                return -1;
+            }
+        }
+        return id;
+    }
+}
@@ -0,0 +1,414 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+// Archive of completed reservations in a fixed-width binary file read through MappedByteBuffer.
+//
+// reservations.dat   32-byte header (magic, version, committed record count, total cost in cents)
+//                    followed by 40-byte records:
+//                      long bookingId | int roomIndex | int typeIndex | int nights |
+//                      int checkInEpochDay | long costCents | int nameIndex | int phoneIndex
+// strings.dat        interned string table: 8-byte header, then int length + UTF-8 bytes per entry
+//
+// Room numbers, types, names and phones are stored once in the string table and referenced by
+// index, so records stay fixed-width and paging through millions of them never creates objects
+// until a cell is actually displayed.
+//
+// Records are written first and only count once the header is updated (commitPending), so a
+// crash while archiving leaves an uncommitted tail that reconcile() settles on the next start.
+class ReservationArchive implements Closeable {
+    static final int RECORD_SIZE = 40;
+
+    private static final int MAGIC = 0x48524152;         // "HRAR"
+    private static final int STRINGS_MAGIC = 0x48525354; // "HRST"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int STRINGS_HEADER_SIZE = 8;
+
+    // Mappings are split into segments below the 2 GB ByteBuffer limit
+    private static final long RECORDS_PER_SEGMENT = (1L << 30) / RECORD_SIZE;
+    private static final long STRING_SEGMENT_BYTES = 1L << 30;
+    // Marks the unused end of a string segment; entries never straddle two segments. An end
+    // shorter than the marker is skipped without one.
+    private static final int STRING_PADDING = -1;
+
+    private final FileChannel records;
+    private final FileChannel strings;
+    private final long recordsPerSegment;
+    private final long segmentBytes;
+    private final long stringSegmentBytes;
+
+    private volatile long committedCount;
+    private volatile long totalCostCents;
+    // Written and synced but not yet counted
+    private long pendingCount;
+    private long pendingCostCents;
+    private volatile MappedByteBuffer[] recordSegments = new MappedByteBuffer[0];
+
+    // String table: offsets are kept on the heap, the bytes stay in the mapped file
+    private long[] stringOffsets = new long[1024];
+    private volatile int stringCount;
+    private long stringsEnd;
+    private volatile MappedByteBuffer[] stringSegments = new MappedByteBuffer[0];
+    // Built on first append, only needed when writing
+    private Map<String, Integer> internedStrings;
+
+    private ReservationArchive(FileChannel records, FileChannel strings, long recordsPerSegment, long stringSegmentBytes) {
+        this.records = records;
+        this.strings = strings;
+        this.recordsPerSegment = recordsPerSegment;
+        this.segmentBytes = recordsPerSegment * RECORD_SIZE;
+        this.stringSegmentBytes = stringSegmentBytes;
+    }
+
+    static ReservationArchive open(Path dir) throws IOException {
+        return open(dir, RECORDS_PER_SEGMENT, STRING_SEGMENT_BYTES);
+    }
+
+    // With smaller segments, so tests can cross segment boundaries; a file must always be
+    // opened with the segment sizes it was written with
+    static ReservationArchive open(Path dir, long recordsPerSegment, long stringSegmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        FileChannel records = FileChannel.open(dir.resolve("reservations.dat"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel strings = FileChannel.open(dir.resolve("strings.dat"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ReservationArchive archive = new ReservationArchive(records, strings, recordsPerSegment, stringSegmentBytes);
+        archive.readHeaders();
+        return archive;
+    }
+
+    // READING
+    long size() {
+        return committedCount;
+    }
+
+    long totalCostCents() {
+        return totalCostCents;
+    }
+
+    long bookingId(long index) {
+        return record(index).getLong(position(index));
+    }
+
+    String roomNumber(long index) {
+        return string(record(index).getInt(position(index) + 8));
+    }
+
+    String roomType(long index) {
+        return string(record(index).getInt(position(index) + 12));
+    }
+
+    int nights(long index) {
+        return record(index).getInt(position(index) + 16);
+    }
+
+    LocalDate checkIn(long index) {
+        return LocalDate.ofEpochDay(record(index).getInt(position(index) + 20));
+    }
+
+    LocalDate checkOut(long index) {
+        return checkIn(index).plusDays(nights(index));
+    }
+
+    long costCents(long index) {
+        return record(index).getLong(position(index) + 24);
+    }
+
+    String customerName(long index) {
+        return string(record(index).getInt(position(index) + 32));
+    }
+
+    String customerPhone(long index) {
+        return string(record(index).getInt(position(index) + 36));
+    }
+
+    // WRITING
+    // Writes and syncs a batch after any pending one; it becomes visible after commitPending()
+    synchronized void writePending(Collection<Reservation> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = committedCount + pendingCount;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * Math.min(batch.size(), 4096));
+        long position = HEADER_SIZE + start * RECORD_SIZE;
+        long cents = 0;
+        for (Reservation res : batch) {
+            long cost = res.totalCents;
+            cents += cost;
+            buffer.putLong(res.id);
+            buffer.putInt(intern(res.room.roomNumber));
+            buffer.putInt(intern(res.room.type));
+            buffer.putInt(res.nights);
+            buffer.putInt((int) res.checkIn.toEpochDay());
+            buffer.putLong(cost);
+            buffer.putInt(intern(res.customerName));
+            buffer.putInt(intern(res.customerPhone));
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                position += writeFully(records, buffer, position);
+                buffer.clear();
+            }
+        }
+        buffer.flip();
+        writeFully(records, buffer, position);
+        // Strings before records, so a synced record never points at a missing string
+        strings.force(false);
+        records.force(false);
+        pendingCount += batch.size();
+        pendingCostCents += cents;
+    }
+
+    synchronized void commitPending() throws IOException {
+        if (pendingCount == 0) {
+            return;
+        }
+        commit(committedCount + pendingCount, totalCostCents + pendingCostCents);
+        pendingCount = 0;
+        pendingCostCents = 0;
+    }
+
+    synchronized void append(Collection<Reservation> batch) throws IOException {
+        writePending(batch);
+        commitPending();
+    }
+
+    // Settles records written by a run that crashed before committing them. Records whose booking
+    // is gone from the live store were removed from it, so they are kept; the rest are dropped
+    // and will be archived again.
+    synchronized int reconcile(RoomRepository live) throws IOException {
+        long fileCount = (records.size() - HEADER_SIZE) / RECORD_SIZE;
+        if (fileCount <= committedCount) {
+            return 0;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        long keep = committedCount;
+        long cents = totalCostCents;
+        for (long i = committedCount; i < fileCount; i++) {
+            record.clear();
+            long from = HEADER_SIZE + i * RECORD_SIZE;
+            while (record.hasRemaining() && records.read(record, from + record.position()) > 0) {
+                // read the whole record
+            }
+            if (live.findReservation("BK" + record.getLong(0)) == null) {
+                cents += record.getLong(24);
+                record.flip();
+                writeFully(records, record, HEADER_SIZE + keep * RECORD_SIZE);
+                keep++;
+            }
+        }
+        records.truncate(HEADER_SIZE + keep * RECORD_SIZE);
+        records.force(false);
+        int recovered = (int) (keep - committedCount);
+        commit(keep, cents);
+        return recovered;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        records.close();
+        strings.close();
+    }
+
+    private void commit(long count, long cents) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(count).putLong(cents).putLong(0);
+        header.flip();
+        writeFully(records, header, 0);
+        records.force(false);
+        totalCostCents = cents;
+        committedCount = count;
+    }
+
+    private int intern(String s) throws IOException {
+        if (internedStrings == null) {
+            internedStrings = new HashMap<>(Math.max(16, stringCount * 2));
+            for (int i = 0; i < stringCount; i++) {
+                internedStrings.put(string(i), i);
+            }
+        }
+        Integer existing = internedStrings.get(s);
+        if (existing != null) {
+            return existing;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        long segmentLeft = stringSegmentBytes - (stringsEnd % stringSegmentBytes);
+        if (4 + bytes.length > segmentLeft) {
+            if (segmentLeft >= 4) {
+                ByteBuffer pad = ByteBuffer.allocate(4).putInt(STRING_PADDING);
+                pad.flip();
+                writeFully(strings, pad, stringsEnd);
+            }
+            stringsEnd += segmentLeft;
+        }
+        ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length).putInt(bytes.length).put(bytes);
+        entry.flip();
+        writeFully(strings, entry, stringsEnd);
+        int index = addStringOffset(stringsEnd);
+        stringsEnd += 4 + bytes.length;
+        internedStrings.put(s, index);
+        return index;
+    }
+
+    private int addStringOffset(long offset) {
+        if (stringCount == stringOffsets.length) {
+            stringOffsets = Arrays.copyOf(stringOffsets, stringCount * 2);
+        }
+        stringOffsets[stringCount] = offset;
+        return stringCount++;
+    }
+
+    // MAPPING
+    private MappedByteBuffer record(long index) {
+        if (index < 0 || index >= committedCount) {
+            throw new IndexOutOfBoundsException("Archive record " + index + " of " + committedCount);
+        }
+        int segment = (int) (index / recordsPerSegment);
+        MappedByteBuffer[] mapped = recordSegments;
+        // Segments are mapped on first use, so lower slots may still be empty
+        if (segment < mapped.length && mapped[segment] != null
+                && position(index) + RECORD_SIZE <= mapped[segment].capacity()) {
+            return mapped[segment];
+        }
+        return remapRecords(segment);
+    }
+
+    private int position(long index) {
+        return (int) ((index % recordsPerSegment) * RECORD_SIZE);
+    }
+
+    private synchronized MappedByteBuffer remapRecords(int segment) {
+        MappedByteBuffer[] mapped = Arrays.copyOf(recordSegments, Math.max(recordSegments.length, segment + 1));
+        long start = HEADER_SIZE + segment * segmentBytes;
+        long length = Math.min(segmentBytes, HEADER_SIZE + committedCount * RECORD_SIZE - start);
+        try {
+            mapped[segment] = records.map(FileChannel.MapMode.READ_ONLY, start, length);
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        recordSegments = mapped;
+        return mapped[segment];
+    }
+
+    private String string(int index) {
+        long offset;
+        synchronized (this) {
+            if (index < 0 || index >= stringCount) {
+                throw new IndexOutOfBoundsException("String " + index);
+            }
+            offset = stringOffsets[index];
+        }
+        int segment = (int) (offset / stringSegmentBytes);
+        int position = (int) (offset % stringSegmentBytes);
+        MappedByteBuffer mapped = stringSegment(segment, position);
+        int length = mapped.getInt(position);
+        if (position + 4 + length > mapped.capacity()) {
+            mapped = remapStrings(segment);
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = mapped.get(position + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private MappedByteBuffer stringSegment(int segment, int position) {
+        MappedByteBuffer[] mapped = stringSegments;
+        if (segment < mapped.length && mapped[segment] != null && position + 4 <= mapped[segment].capacity()) {
+            return mapped[segment];
+        }
+        return remapStrings(segment);
+    }
+
+    private synchronized MappedByteBuffer remapStrings(int segment) {
+        MappedByteBuffer[] mapped = Arrays.copyOf(stringSegments, Math.max(stringSegments.length, segment + 1));
+        long start = segment * stringSegmentBytes;
+        long length = Math.min(stringSegmentBytes, stringsEnd - start);
+        try {
+            mapped[segment] = strings.map(FileChannel.MapMode.READ_ONLY, start, length);
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        stringSegments = mapped;
+        return mapped[segment];
+    }
+
+    // FILES
+    private void readHeaders() throws IOException {
+        if (records.size() < HEADER_SIZE) {
+            commit(0, 0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(records, header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a reservation archive");
+            }
+            committedCount = header.getLong(8);
+            totalCostCents = header.getLong(16);
+        }
+
+        if (strings.size() < STRINGS_HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(STRINGS_HEADER_SIZE).putInt(STRINGS_MAGIC).putInt(VERSION);
+            header.flip();
+            writeFully(strings, header, 0);
+            strings.truncate(STRINGS_HEADER_SIZE);
+            strings.force(true);
+            stringsEnd = STRINGS_HEADER_SIZE;
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(STRINGS_HEADER_SIZE);
+        readFully(strings, header, 0);
+        if (header.getInt(0) != STRINGS_MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not an archive string table");
+        }
+        // Index the entries; a torn entry at the end is cut off
+        long size = strings.size();
+        long offset = STRINGS_HEADER_SIZE;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (offset + 4 <= size) {
+            long segmentLeft = stringSegmentBytes - (offset % stringSegmentBytes);
+            if (segmentLeft < 4) {
+                offset += segmentLeft;
+                continue;
+            }
+            length.clear();
+            readFully(strings, length, offset);
+            int n = length.getInt(0);
+            if (n == STRING_PADDING) {
+                offset += segmentLeft;
+                continue;
+            }
+            if (n < 0 || offset + 4 + n > size) {
+                break;
+            }
+            addStringOffset(offset);
+            offset += 4 + n;
+        }
+        stringsEnd = Math.min(offset, size);
+        strings.truncate(stringsEnd);
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive file");
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Reservations stored by numeric booking ID in fixed-size pages.
+// IDs are handed out sequentially, so pages fill densely: a lookup is two array reads,
+// iteration is naturally in booking-ID order, and there is no per-entry map node.
+// Pages never move once allocated, so readers and writers need no lock.
+class ReservationTable {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+    private volatile Object[] pages = new Object[0];
+    private final AtomicInteger size = new AtomicInteger();
+
+    // Returns the reservation previously stored under the same ID, if any
+    Reservation put(Reservation reservation) {
+        Reservation previous = page(reservation.id, true).getAndSet(offset(reservation.id), reservation);
+        if (previous == null) {
+            size.incrementAndGet();
+        }
+        return previous;
+    }
+
+    Reservation get(long id) {
+        AtomicReferenceArray<Reservation> page = page(id, false);
+        return page == null ? null : page.get(offset(id));
+    }
+
+    Reservation remove(long id) {
+        AtomicReferenceArray<Reservation> page = page(id, false);
+        if (page == null) {
+            return null;
+        }
+        Reservation removed = page.getAndSet(offset(id), null);
+        if (removed != null) {
+            size.decrementAndGet();
+        }
+        return removed;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    // Exclusive upper bound of the IDs that can be stored right now; used to split the table
+    // into ID ranges for parallel scans
+    long idLimit() {
+        return (long) pages.length << PAGE_SHIFT;
+    }
+
+    // Visits the reservations with IDs in [from, to) in ID order, with the same weak
+    // consistency as values()
+    void forEachInRange(long from, long to, Consumer<Reservation> action) {
+        Object[] snapshot = pages;
+        long end = Math.min(to, (long) snapshot.length << PAGE_SHIFT);
+        long id = Math.max(0, from);
+        while (id < end) {
+            @SuppressWarnings("unchecked")
+            AtomicReferenceArray<Reservation> page = (AtomicReferenceArray<Reservation>) snapshot[(int) (id >>> PAGE_SHIFT)];
+            long pageEnd = Math.min(end, ((id >>> PAGE_SHIFT) + 1) << PAGE_SHIFT);
+            if (page != null) {
+                for (int slot = offset(id), last = (int) (pageEnd - 1 & (PAGE_SIZE - 1)); slot <= last; slot++) {
+                    Reservation reservation = page.get(slot);
+                    if (reservation != null) {
+                        action.accept(reservation);
+                    }
+                }
+            }
+            id = pageEnd;
+        }
+    }
+
+    // Weakly consistent view in booking-ID order, like the concurrent collections
+    AbstractCollection<Reservation> values() {
+        return new AbstractCollection<Reservation>() {
+            @Override
+            public Iterator<Reservation> iterator() {
+                return new Iterator<Reservation>() {
+                    private final Object[] snapshot = pages;
+                    private int pageIndex;
+                    private int slot = -1;
+                    private Reservation next = advance();
+
+                    private Reservation advance() {
+                        while (pageIndex < snapshot.length) {
+                            @SuppressWarnings("unchecked")
+                            AtomicReferenceArray<Reservation> page = (AtomicReferenceArray<Reservation>) snapshot[pageIndex];
+                            while (page != null && ++slot < PAGE_SIZE) {
+                                Reservation candidate = page.get(slot);
+                                if (candidate != null) {
+                                    return candidate;
+                                }
+                            }
+                            pageIndex++;
+                            slot = -1;
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Reservation next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        Reservation current = next;
+                        next = advance();
+                        return current;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size.get();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private AtomicReferenceArray<Reservation> page(long id, boolean create) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Invalid booking ID " + id);
+        }
+        long index = id >>> PAGE_SHIFT;
+        Object[] current = pages;
+        if (index < current.length && current[(int) index] != null) {
+            return (AtomicReferenceArray<Reservation>) current[(int) index];
+        }
+        if (!create) {
+            return null;
+        }
+        if (index >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Booking ID out of range: " + id);
+        }
+        synchronized (this) {
+            current = pages;
+            if (index >= current.length) {
+                current = Arrays.copyOf(current, (int) Math.max(index + 1, current.length * 2L));
+            } else if (current[(int) index] != null) {
+                return (AtomicReferenceArray<Reservation>) current[(int) index];
+            } else {
+                current = current.clone();
+            }
+            AtomicReferenceArray<Reservation> page = new AtomicReferenceArray<>(PAGE_SIZE);
+            current[(int) index] = page;
+            pages = current;
+            return page;
+        }
+    }
+
+    private static int offset(long id) {
+        return (int) (id & (PAGE_SIZE - 1));
+    }
+}
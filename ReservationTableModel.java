@@ -0,0 +1,52 @@
+// Bookings tab model. Rows are kept in booking-ID order, the order the repository iterates in,
+// so finding a row is a binary search.
+class ReservationTableModel extends IndexedTableModel<Reservation> {
+    private static final long serialVersionUID = 1L;
+
+    ReservationTableModel() {
+        super("Booking ID", "Name", "Room", "Check-in", "Check-out", "Nights", "Total Cost");
+    }
+
+    @Override
+    Object valueOf(Reservation res, int column) {
+        switch (column) {
+            case 0: return res.bookingId;
+            case 1: return res.customerName;
+            case 2: return res.room;
+            case 3: return res.checkIn;
+            case 4: return res.checkOut;
+            case 5: return res.nights;
+            case 6: return res.totalCents;
+            default: return null;
+        }
+    }
+
+    @Override
+    int indexOf(Reservation item) {
+        int row = search(item.id);
+        return row >= 0 && rows.get(row) == item ? row : -1;
+    }
+
+    @Override
+    int insertionPoint(Reservation item) {
+        int row = search(item.id);
+        return row >= 0 ? row : -(row + 1);
+    }
+
+    private int search(long id) {
+        int low = 0;
+        int high = rows.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = rows.get(mid).id;
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,15 @@
+// Simple Room class
+class Room {
+    String roomNumber;
+    String type;
+    // Price per night in cents, see Money
+    long priceCents;
+    // Position in the AvailabilityIndex bitmaps, -1 while the room is not indexed
+    volatile int slot = -1;
+
+    Room(String roomNumber, String type, long priceCents) {
+        this.roomNumber = roomNumber;
+        this.type = type;
+        this.priceCents = priceCents;
+    }
+}
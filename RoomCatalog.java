@@ -0,0 +1,190 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Sorted views of the rooms for filtered, paged listings ("Doubles under $100 free tonight,
+// cheapest first"). Rooms are kept in three concurrent skip lists: by room number, by price,
+// and by type then price. A query picks the list that already has its sort order, narrows it
+// to the price range (and type) with a sub-set, and reads one page from there; the type and
+// free/booked tests use the AvailabilityIndex bitmaps, built once per page. A page costs
+// about its own length instead of a scan and sort of every room.
+//
+// Pages are keyed by the last room shown, not by position, so rooms added or removed between
+// pages neither repeat nor skip rows. Prices never change after a room is added.
+class RoomCatalog {
+    // Shorter numbers first, so "99" comes before "101"
+    static final Comparator<Room> BY_NUMBER = (a, b) -> {
+        int c = Integer.compare(a.roomNumber.length(), b.roomNumber.length());
+        return c != 0 ? c : a.roomNumber.compareTo(b.roomNumber);
+    };
+    static final Comparator<Room> BY_PRICE = (a, b) -> {
+        int c = Long.compare(a.priceCents, b.priceCents);
+        return c != 0 ? c : BY_NUMBER.compare(a, b);
+    };
+    static final Comparator<Room> BY_TYPE = (a, b) -> {
+        int c = a.type.compareTo(b.type);
+        return c != 0 ? c : BY_PRICE.compare(a, b);
+    };
+
+    enum Sort {
+        NUMBER("Room Number"), PRICE("Price: Low to High"), PRICE_DESC("Price: High to Low"), TYPE("Type");
+
+        final String label;
+
+        Sort(String label) {
+            this.label = label;
+        }
+
+        Comparator<Room> order() {
+            switch (this) {
+                case PRICE: return BY_PRICE;
+                case PRICE_DESC: return BY_PRICE.reversed();
+                case TYPE: return BY_TYPE;
+                default: return BY_NUMBER;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    enum Status {
+        ANY("All"), FREE("Available"), BOOKED("Booked");
+
+        final String label;
+
+        Status(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // What to list and in which order. Status is judged for the stay [from, to).
+    static final class Query {
+        // Null for every type
+        final String type;
+        // Inclusive, in cents
+        final long minCents;
+        final long maxCents;
+        final Status status;
+        final LocalDate from;
+        final LocalDate to;
+        final Sort sort;
+
+        Query(String type, long minCents, long maxCents, Status status, LocalDate from, LocalDate to, Sort sort) {
+            this.type = type;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            this.status = status;
+            this.from = from;
+            this.to = to;
+            this.sort = sort;
+        }
+
+        // Every room, by number
+        static Query all(LocalDate today) {
+            return new Query(null, 0, Long.MAX_VALUE, Status.ANY, today, today.plusDays(1), Sort.NUMBER);
+        }
+
+        boolean matches(Room room, AvailabilityIndex availability) {
+            if (!matchesFixed(room)) {
+                return false;
+            }
+            return status == Status.ANY || availability.isFree(room, from, to) == (status == Status.FREE);
+        }
+
+        // Type and price, which never change for a room
+        boolean matchesFixed(Room room) {
+            return (type == null || type.equals(room.type))
+                && room.priceCents >= minCents && room.priceCents <= maxCents;
+        }
+    }
+
+    private final NavigableSet<Room> byNumber = new ConcurrentSkipListSet<>(BY_NUMBER);
+    private final NavigableSet<Room> byPrice = new ConcurrentSkipListSet<>(BY_PRICE);
+    private final NavigableSet<Room> byType = new ConcurrentSkipListSet<>(BY_TYPE);
+
+    void add(Room room) {
+        byNumber.add(room);
+        byPrice.add(room);
+        byType.add(room);
+    }
+
+    void remove(Room room) {
+        byNumber.remove(room);
+        byPrice.remove(room);
+        byType.remove(room);
+    }
+
+    // Up to limit matching rooms that come after the given one in the query's order
+    // (from the start when after is null)
+    List<Room> page(Query query, Room after, int limit, AvailabilityIndex availability) {
+        List<Room> page = new ArrayList<>(Math.min(limit, 1024));
+        if (limit <= 0 || query.minCents > query.maxCents) {
+            return page;
+        }
+        // No room of the type in the price range: nothing to walk
+        if (query.type != null && typeRange(query).isEmpty()) {
+            return page;
+        }
+        NavigableSet<Room> candidates = candidates(query);
+        if (after != null) {
+            candidates = candidates.tailSet(after, false);
+        }
+        // Rooms of the type that are free for the stay, by slot; null when status is not asked
+        long[] free = query.status == Status.ANY ? null : availability.freeSlots(query.type, query.from, query.to);
+        for (Room room : candidates) {
+            if (query.matchesFixed(room) && (free == null || isSet(free, room.slot) == (query.status == Status.FREE))) {
+                page.add(room);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    // The narrowest sorted range that holds every match, in the query's order
+    private NavigableSet<Room> candidates(Query query) {
+        switch (query.sort) {
+            case PRICE:
+            case PRICE_DESC:
+                NavigableSet<Room> range = query.type != null ? typeRange(query) : priceRange(byPrice, null, query);
+                return query.sort == Sort.PRICE_DESC ? range.descendingSet() : range;
+            case TYPE:
+                return query.type != null ? typeRange(query) : byType;
+            default:
+                return byNumber;
+        }
+    }
+
+    private NavigableSet<Room> typeRange(Query query) {
+        return priceRange(byType, query.type, query);
+    }
+
+    // Rooms priced within the query's range; probe rooms with an empty number sort before
+    // every real room of the same price
+    private static NavigableSet<Room> priceRange(NavigableSet<Room> sorted, String type, Query query) {
+        NavigableSet<Room> range = sorted.tailSet(new Room("", type, query.minCents), true);
+        if (query.maxCents < Long.MAX_VALUE) {
+            range = range.headSet(new Room("", type, query.maxCents + 1), false);
+        } else if (type != null) {
+            // Everything of this type: up to the first room of the next type name
+            range = range.headSet(new Room("", type + '\0', Long.MIN_VALUE), false);
+        }
+        return range;
+    }
+
+    private static boolean isSet(long[] bits, int slot) {
+        return slot >= 0 && (slot >>> 6) < bits.length && (bits[slot >>> 6] & 1L << slot) != 0;
+    }
+}
@@ -0,0 +1,222 @@
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+// Indexed storage for rooms and reservations.
+// Rooms are looked up by number and reservations by booking ID in O(1);
+// rooms are also indexed by type, and booked nights are tracked per room in an AvailabilityIndex.
+// Reservations are also filed under their guest (GuestDirectory) for search by name or phone.
+// Sorted views of the rooms (RoomCatalog) serve filtered, paged listings, and the RateEngine
+// tracks booked nights per room type for occupancy-based pricing.
+//
+// All maps are concurrent so several clients can read and write at once. Changes to the
+// same room must be serialized by the caller (BookingService holds a lock per room).
+class RoomRepository {
+    private final Map<String, Room> roomsByNumber = new ConcurrentHashMap<>();
+    // Paged by numeric booking ID, which also gives display order
+    private final ReservationTable reservationsById = new ReservationTable();
+
+    // Rooms are shown in the order they were added
+    private final Queue<Room> roomsInOrder = new ConcurrentLinkedQueue<>();
+
+    // Secondary indexes
+    private final Map<String, Set<Room>> roomsByType = new ConcurrentHashMap<>();
+    private final AvailabilityIndex availability = new AvailabilityIndex();
+    private final RunningTotals totals = new RunningTotals();
+    private final GuestDirectory guests = new GuestDirectory();
+    private final RoomCatalog catalog = new RoomCatalog();
+    private final RateEngine rates = new RateEngine(availability.firstDay());
+
+    // ROOMS
+    boolean addRoom(Room room) {
+        if (roomsByNumber.putIfAbsent(room.roomNumber, room) != null) {
+            return false;
+        }
+        availability.addRoom(room);
+        roomsByType.computeIfAbsent(room.type, t -> ConcurrentHashMap.newKeySet()).add(room);
+        roomsInOrder.add(room);
+        catalog.add(room);
+        rates.roomAdded(room);
+        totals.roomAdded(room);
+        return true;
+    }
+
+    Room removeRoom(String roomNumber) {
+        Room room = roomsByNumber.remove(roomNumber);
+        if (room == null) {
+            return null;
+        }
+        Set<Room> sameType = roomsByType.get(room.type);
+        if (sameType != null) {
+            sameType.remove(room);
+        }
+        // Linear, but removing rooms is a rare admin action
+        roomsInOrder.remove(room);
+        catalog.remove(room);
+        availability.removeRoom(room);
+        rates.roomRemoved(room);
+        totals.roomRemoved(room);
+        return room;
+    }
+
+    Room findRoom(String roomNumber) {
+        return roomsByNumber.get(roomNumber);
+    }
+
+    boolean containsRoom(String roomNumber) {
+        return roomsByNumber.containsKey(roomNumber);
+    }
+
+    Collection<Room> rooms() {
+        return Collections.unmodifiableCollection(roomsInOrder);
+    }
+
+    Collection<Room> roomsOfType(String type) {
+        Set<Room> sameType = roomsByType.get(type);
+        return sameType == null ? Collections.<Room>emptySet() : Collections.unmodifiableSet(sameType);
+    }
+
+    Set<String> roomTypes() {
+        Set<String> types = new TreeSet<>();
+        for (Map.Entry<String, Set<Room>> entry : roomsByType.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                types.add(entry.getKey());
+            }
+        }
+        return types;
+    }
+
+    // One page of a filtered, sorted listing; pass the last room of the previous page as after
+    List<Room> queryRooms(RoomCatalog.Query query, Room after, int limit) {
+        return catalog.page(query, after, limit, availability);
+    }
+
+    int roomCount() {
+        return roomsByNumber.size();
+    }
+
+    // AVAILABILITY
+    AvailabilityIndex availability() {
+        return availability;
+    }
+
+    boolean isFree(Room room, LocalDate from, LocalDate to) {
+        return availability.isFree(room, from, to);
+    }
+
+    // Rooms of the given type that are free for every night in [from, to)
+    List<Room> freeRooms(String type, LocalDate from, LocalDate to) {
+        return availability.freeRooms(type, from, to);
+    }
+
+    // Nightly rates and stay prices from the pricing rules
+    RateEngine rates() {
+        return rates;
+    }
+
+    // Drops the nights before the day from availability and pricing; the caller holds every room lock
+    void advanceHorizon(LocalDate day) {
+        availability.advanceTo(day);
+        rates.advanceTo(day);
+    }
+
+    int occupiedCount(LocalDate day) {
+        return availability.occupiedCount(day);
+    }
+
+    // RESERVATIONS
+    // A reservation of the guest with this phone number (created on first sight), sharing the
+    // guest's copies of the name and phone; store it with addReservation
+    Reservation newReservation(long id, String name, String phone, Room room, LocalDate checkIn, int nights, long totalCents) {
+        Guest guest = guests.guestOf(name, phone);
+        return new Reservation(id, guest.knownName(name), guest.phone.equals(phone) ? guest.phone : phone,
+            guest, room, checkIn, nights, totalCents);
+    }
+
+    // The guest directory is updated before the reservation is published in reservationsById,
+    // where other threads can find it; availability, rates and totals follow the publication,
+    // after any reservation it replaced has been taken out of them
+    void addReservation(Reservation reservation) {
+        guests.register(reservation);
+        Reservation replaced = reservationsById.put(reservation);
+        if (replaced != null) {
+            availability.release(replaced.room, replaced.checkIn, replaced.checkOut);
+            rates.nightsReleased(replaced.room, replaced.checkIn, replaced.checkOut);
+            totals.reservationRemoved(replaced);
+            guests.unregister(replaced);
+        }
+        availability.occupy(reservation.room, reservation.checkIn, reservation.checkOut);
+        rates.nightsBooked(reservation.room, reservation.checkIn, reservation.checkOut);
+        totals.reservationAdded(reservation);
+    }
+
+    Reservation removeReservation(String bookingId) {
+        long id = Reservation.idOf(bookingId);
+        Reservation reservation = id < 0 ? null : reservationsById.remove(id);
+        if (reservation != null) {
+            availability.release(reservation.room, reservation.checkIn, reservation.checkOut);
+            rates.nightsReleased(reservation.room, reservation.checkIn, reservation.checkOut);
+            totals.reservationRemoved(reservation);
+            guests.unregister(reservation);
+        }
+        return reservation;
+    }
+
+    // HOLDS: nights off sale without a reservation; they count as booked for pricing too
+    void holdNights(Hold hold) {
+        availability.occupy(hold.room, hold.checkIn, hold.checkOut);
+        rates.nightsBooked(hold.room, hold.checkIn, hold.checkOut);
+    }
+
+    void releaseNights(Hold hold) {
+        availability.release(hold.room, hold.checkIn, hold.checkOut);
+        rates.nightsReleased(hold.room, hold.checkIn, hold.checkOut);
+    }
+
+    Reservation findReservation(String bookingId) {
+        long id = Reservation.idOf(bookingId);
+        return id < 0 ? null : reservationsById.get(id);
+    }
+
+    Collection<Reservation> reservations() {
+        return Collections.unmodifiableCollection(reservationsById.values());
+    }
+
+    GuestDirectory guests() {
+        return guests;
+    }
+
+    // Live reservations of one guest, in booking-ID order
+    List<Reservation> reservationsOf(Guest guest) {
+        long[] ids = guest.bookingIds();
+        Arrays.sort(ids);
+        List<Reservation> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Reservation res = reservationsById.get(id);
+            if (res != null && res.guest == guest) {
+                found.add(res);
+            }
+        }
+        return found;
+    }
+
+    // Revenue and per-type numbers, updated on every add and remove above
+    RunningTotals totals() {
+        return totals;
+    }
+
+    // For parallel scans: reservations with IDs in [from, to), and the bound to split up to
+    long reservationIdLimit() {
+        return reservationsById.idLimit();
+    }
+
+    void forEachReservation(long fromId, long toId, Consumer<Reservation> action) {
+        reservationsById.forEachInRange(fromId, toId, action);
+    }
+
+    int reservationCount() {
+        return reservationsById.size();
+    }
+}
@@ -0,0 +1,101 @@
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+// Rooms tab model: the Status column is read from the availability index when painted.
+// Rows are one filtered, sorted listing (RoomCatalog.Query) loaded a page at a time: reload
+// puts in the first page and appendPage the following ones as the table is scrolled.
+class RoomTableModel extends IndexedTableModel<Room> {
+    private static final long serialVersionUID = 1L;
+
+    private final AvailabilityIndex availability;
+    private final Supplier<LocalDate> today;
+    private RoomCatalog.Query query;
+    // True once the last page is in, so every match is a row
+    private boolean complete;
+
+    RoomTableModel(AvailabilityIndex availability, Supplier<LocalDate> today) {
+        super("Room Number", "Type", "Price per Night", "Status");
+        this.availability = availability;
+        this.today = today;
+        this.query = RoomCatalog.Query.all(today.get());
+    }
+
+    @Override
+    Object valueOf(Room room, int column) {
+        switch (column) {
+            case 0: return room.roomNumber;
+            case 1: return room.type;
+            case 2: return room.priceCents;
+            case 3: return availability.isFreeOn(room, today.get());
+            default: return null;
+        }
+    }
+
+    RoomCatalog.Query query() {
+        return query;
+    }
+
+    // Null when no rows are loaded
+    Room lastRow() {
+        return rows.isEmpty() ? null : rows.get(rows.size() - 1);
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    // Starts the listing over with the first page of the query's results
+    void reload(RoomCatalog.Query query, Collection<Room> firstPage, int pageSize) {
+        this.query = query;
+        this.complete = firstPage.size() < pageSize;
+        reload(firstPage);
+    }
+
+    void appendPage(Collection<Room> page, int pageSize) {
+        if (page.isEmpty()) {
+            complete = true;
+            return;
+        }
+        int first = rows.size();
+        rows.addAll(page);
+        complete = page.size() < pageSize;
+        fireTableRowsInserted(first, rows.size() - 1);
+    }
+
+    // Rows are in the query's order, so finding one is a binary search
+    @Override
+    int indexOf(Room room) {
+        int row = Collections.binarySearch(rows, room, query.sort.order());
+        return row >= 0 && rows.get(row) == room ? row : -1;
+    }
+
+    @Override
+    int insertionPoint(Room room) {
+        int row = Collections.binarySearch(rows, room, query.sort.order());
+        return row >= 0 ? row : -(row + 1);
+    }
+
+    // Rooms outside the filter are left out; rooms past the loaded pages come in with their page
+    @Override
+    void added(Room room) {
+        if (query.matches(room, availability) && (complete || insertionPoint(room) < rows.size())) {
+            super.added(room);
+        }
+    }
+
+    // A booking or cancellation can move a room into or out of an Available/Booked filter
+    @Override
+    void changed(Room room) {
+        boolean shown = indexOf(room) >= 0;
+        boolean matches = query.matches(room, availability);
+        if (shown && !matches) {
+            removed(room);
+        } else if (!shown && matches) {
+            added(room);
+        } else {
+            super.changed(room);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Report totals kept up to date as rooms and reservations are added and removed, so the
+// summary is a handful of reads instead of a scan. RoomRepository calls the update methods
+// from its own add/remove paths, which covers bookings, cancellations, archiving and recovery.
+// Money is summed in cents, so totals are exact and do not depend on the order of updates.
+// Each number is exact once changes settle; while changes are running, two numbers read
+// one after the other may straddle a change.
+class RunningTotals {
+    private final LongAdder revenueCents = new LongAdder();
+    private final Map<String, TypeTotals> byType = new ConcurrentHashMap<>();
+
+    private static class TypeTotals {
+        final LongAdder rooms = new LongAdder();
+        final LongAdder bookings = new LongAdder();
+        final LongAdder revenueCents = new LongAdder();
+    }
+
+    void roomAdded(Room room) {
+        totalsFor(room.type).rooms.increment();
+    }
+
+    void roomRemoved(Room room) {
+        totalsFor(room.type).rooms.decrement();
+    }
+
+    void reservationAdded(Reservation reservation) {
+        TypeTotals type = totalsFor(reservation.room.type);
+        type.bookings.increment();
+        type.revenueCents.add(reservation.totalCents);
+        revenueCents.add(reservation.totalCents);
+    }
+
+    void reservationRemoved(Reservation reservation) {
+        TypeTotals type = totalsFor(reservation.room.type);
+        type.bookings.decrement();
+        type.revenueCents.add(-reservation.totalCents);
+        revenueCents.add(-reservation.totalCents);
+    }
+
+    long revenueCents() {
+        return revenueCents.sum();
+    }
+
+    // One line per room type that has rooms or bookings, in type order
+    List<ReportSummary.TypeSummary> byType() {
+        Map<String, TypeTotals> sorted = new TreeMap<>(byType);
+        List<ReportSummary.TypeSummary> lines = new ArrayList<>(sorted.size());
+        for (Map.Entry<String, TypeTotals> entry : sorted.entrySet()) {
+            TypeTotals totals = entry.getValue();
+            int rooms = totals.rooms.intValue();
+            int bookings = totals.bookings.intValue();
+            if (rooms > 0 || bookings > 0) {
+                lines.add(new ReportSummary.TypeSummary(entry.getKey(), rooms, bookings, totals.revenueCents.sum()));
+            }
+        }
+        return lines;
+    }
+
+    private TypeTotals totalsFor(String type) {
+        TypeTotals totals = byType.get(type);
+        return totals != null ? totals : byType.computeIfAbsent(type, t -> new TypeTotals());
+    }
+}
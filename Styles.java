@@ -0,0 +1,30 @@
+import java.awt.Color;
+import java.awt.Font;
+import javax.swing.AbstractButton;
+
+// Fonts and colours shared by every window. Fonts are created once here rather than per
+// component: each new Font is a lookup and a fresh object for Swing to measure and cache.
+final class Styles {
+    private Styles() {
+    }
+
+    static final Font TITLE = new Font("Arial", Font.BOLD, 20);
+    static final Font TEXT = new Font("Arial", Font.PLAIN, 14);
+    static final Font SMALL = new Font("Arial", Font.PLAIN, 12);
+    static final Font BUTTON = new Font("Arial", Font.BOLD, 14);
+    static final Font BUTTON_LARGE = new Font("Arial", Font.BOLD, 16);
+    // Reports and other fixed-width text
+    static final Font MONOSPACED = new Font("Monospaced", Font.PLAIN, 12);
+
+    static final Color GREEN = new Color(76, 175, 80);
+    static final Color RED = new Color(244, 67, 54);
+    static final Color BLUE = new Color(33, 150, 243);
+
+    // White text on a flat coloured button
+    static void filled(AbstractButton button, Color color) {
+        button.setBackground(color);
+        button.setForeground(Color.WHITE);
+        button.setOpaque(true);
+        button.setBorderPainted(false);
+    }
+}
@@ -0,0 +1,40 @@
+import javax.swing.table.DefaultTableCellRenderer;
+
+// Cell renderers, so table models can hand out raw values instead of preformatted strings
+final class TableRenderers {
+    private TableRenderers() {
+    }
+
+    // Amounts in cents
+    static class Amount extends DefaultTableCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof Long ? Money.format((Long) value) : "");
+        }
+    }
+
+    static class Status extends DefaultTableCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void setValue(Object value) {
+            setText(Boolean.TRUE.equals(value) ? "✅ Available" : "❌ Booked");
+        }
+    }
+
+    static class RoomLabel extends DefaultTableCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void setValue(Object value) {
+            if (value instanceof Room) {
+                Room room = (Room) value;
+                setText(room.roomNumber + " (" + room.type + ")");
+            } else {
+                setText(value == null ? "" : value.toString());
+            }
+        }
+    }
+}
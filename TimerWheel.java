@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Hierarchical timing wheel (Varghese and Lauck; the Linux kernel and Kafka use the same
+// scheme) for large numbers of timeouts on one thread. Level 0 has 64 slots of one tick each,
+// level 1 64 slots of 64 ticks, and so on; a timer goes into the level whose span covers its
+// deadline, and when a level-0 rotation completes the next level's current slot is cascaded
+// down. Scheduling and cancelling are O(1), and a tick only touches the timers that are due
+// or being cascaded, however many are outstanding.
+//
+// Timers are intrusive list nodes (subclass Timer), so an outstanding timer costs no object
+// beyond itself. With 100 ms ticks and four levels the wheel spans 19 days; later deadlines
+// wait in the top level and are re-filed as it turns.
+class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    // Ticks covered by all levels together
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    // Something to run at a deadline; expire() is called on the wheel's thread, outside its lock
+    abstract static class Timer {
+        private long deadlineTick;
+        private Timer prev;
+        private Timer next;
+        // Null when not scheduled
+        private Timer[] slotHead;
+        private int slotIndex;
+
+        abstract void expire();
+    }
+
+    private final long tickNanos;
+    private final long startNanos;
+    // Sentinel-free lists: one head per slot, per level; guarded by this
+    private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+    private Thread thread;
+
+    TimerWheel(long tick, TimeUnit unit) {
+        this.tickNanos = unit.toNanos(tick);
+        this.startNanos = System.nanoTime();
+    }
+
+    // Runs timer.expire() once the delay has passed (late by up to one tick). A timer that
+    // is already scheduled is moved.
+    void schedule(Timer timer, long delay, TimeUnit unit) {
+        long deadline = (System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay)) + tickNanos - 1) / tickNanos;
+        synchronized (this) {
+            if (timer.slotHead != null) {
+                unlink(timer);
+            } else {
+                size++;
+            }
+            timer.deadlineTick = Math.max(deadline, currentTick + 1);
+            file(timer);
+            if (thread == null) {
+                thread = new Thread(this::run, "timer-wheel");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    // False if the timer had already fired or was never scheduled
+    synchronized boolean cancel(Timer timer) {
+        if (timer.slotHead == null) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    // Outstanding timers
+    synchronized int size() {
+        return size;
+    }
+
+    // Level and slot from the distance to the deadline. A deadline that has come (only seen
+    // while cascading) goes into the current level-0 slot, which is expired right after.
+    private void file(Timer timer) {
+        long tick = Math.max(currentTick, Math.min(timer.deadlineTick, currentTick + SPAN - 1));
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int index = (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+        Timer[] heads = slots[level];
+        timer.slotHead = heads;
+        timer.slotIndex = index;
+        timer.prev = null;
+        timer.next = heads[index];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        heads[index] = timer;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            timer.slotHead[timer.slotIndex] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.slotHead = null;
+        timer.prev = null;
+        timer.next = null;
+    }
+
+    // Moves the clock forward to the given tick and returns the timers that came due
+    private synchronized List<Timer> advance(long toTick) {
+        List<Timer> due = new ArrayList<>();
+        while (currentTick < toTick) {
+            currentTick++;
+            // Entering a new block of a level re-files that level's slot for the block
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                int index = (int) (currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+                Timer timer = slots[level][index];
+                slots[level][index] = null;
+                while (timer != null) {
+                    Timer next = timer.next;
+                    timer.slotHead = null;
+                    file(timer);
+                    timer = next;
+                }
+            }
+            int index = (int) currentTick & (SLOTS - 1);
+            Timer timer = slots[0][index];
+            slots[0][index] = null;
+            while (timer != null) {
+                Timer next = timer.next;
+                timer.slotHead = null;
+                timer.prev = null;
+                timer.next = null;
+                if (timer.deadlineTick <= currentTick) {
+                    due.add(timer);
+                    size--;
+                } else {
+                    file(timer);
+                }
+                timer = next;
+            }
+        }
+        return due;
+    }
+
+    private void run() {
+        while (true) {
+            long now = (System.nanoTime() - startNanos) / tickNanos;
+            for (Timer timer : advance(now)) {
+                try {
+                    timer.expire();
+                } catch (RuntimeException e) {
+                    Log.error("Timer failed", e);
+                }
+            }
+            long nextTick = (now + 1) * tickNanos;
+            long sleep = nextTick - (System.nanoTime() - startNanos);
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
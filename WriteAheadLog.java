@@ -0,0 +1,576 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Append-only write-ahead log with group commit and periodic snapshots.
+//
+// Directory layout:
+//   snapshot.dat   full state as of the start of segment N (written to a temp file, then renamed)
+//   wal-N.log      events recorded after that point, one file per segment
+//
+// Callers append records to an in-memory buffer. A single writer thread drains the buffer,
+// writes it and fsyncs once for the whole batch, then wakes every caller whose record made it,
+// so concurrent bookings share one fsync. Each record is framed as length, CRC32 and payload;
+// replay stops at the first torn or corrupt record.
+class WriteAheadLog implements BookingJournal, Closeable {
+    static final long DEFAULT_SNAPSHOT_EVERY = 100000;
+
+    private static final int LOG_MAGIC = 0x48524C47;      // "HRLG"
+    private static final int SNAPSHOT_MAGIC = 0x48525350; // "HRSP"
+    // Version 2 stores money as long cents; version 1 files (doubles) are still read
+    private static final int VERSION = 2;
+    private static final int VERSION_DOUBLE_MONEY = 1;
+
+    private static final byte ROOM_ADDED = 1;
+    private static final byte ROOM_REMOVED = 2;
+    private static final byte BOOKED = 3;
+    private static final byte CANCELLED = 4;
+    private static final byte ARCHIVED = 5;
+
+    // A record is a type byte, at most four strings of up to 64 KB and a few numbers; a longer
+    // length can only come from a torn or corrupt frame
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    private final Path dir;
+    private final BookingService service;
+    private final long snapshotEvery;
+    private boolean fresh;
+
+    // Guarded by 'this'
+    private RecordBuffer pending = new RecordBuffer();
+    private RecordBuffer spare = new RecordBuffer();
+    private final RecordBuffer scratch = new RecordBuffer();
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+    private long appendedSequence;
+    private long durableSequence;
+    private long recordsSinceSnapshot;
+    private long segment;
+    private FileChannel channel;
+    private IOException failure;
+    private boolean closed;
+
+    private final Thread writer;
+    private final ScheduledExecutorService snapshotter;
+    // Held while a snapshot is taken, so the timer and close() never write snapshot.tmp at once
+    private final Object snapshotLock = new Object();
+
+    private WriteAheadLog(Path dir, BookingService service, long segment, long snapshotEvery) throws IOException {
+        this.dir = dir;
+        this.service = service;
+        this.segment = segment;
+        this.snapshotEvery = snapshotEvery;
+        this.channel = openSegment(segment);
+
+        writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wal-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshotIfDue, 5, 5, TimeUnit.SECONDS);
+    }
+
+    // Loads the snapshot and the log tail into the service, then starts logging its changes
+    static WriteAheadLog open(Path dir, BookingService service) throws IOException {
+        return open(dir, service, DEFAULT_SNAPSHOT_EVERY);
+    }
+
+    static WriteAheadLog open(Path dir, BookingService service, long snapshotEvery) throws IOException {
+        Files.createDirectories(dir);
+        long firstSegment = 0;
+        Path snapshot = dir.resolve("snapshot.dat");
+        boolean fresh = !Files.exists(snapshot);
+        if (!fresh) {
+            firstSegment = readSnapshot(snapshot, service);
+        }
+        long nextSegment = firstSegment;
+        TreeMap<Long, Path> existing = segments(dir);
+        fresh &= existing.isEmpty();
+        for (Map.Entry<Long, Path> entry : existing.entrySet()) {
+            if (entry.getKey() >= firstSegment) {
+                replaySegment(entry.getValue(), service);
+                nextSegment = entry.getKey() + 1;
+                // Segments holding only a header are left behind by runs that changed nothing
+                if (Files.size(entry.getValue()) <= 8) {
+                    Files.delete(entry.getValue());
+                }
+            }
+        }
+        // Always continue in a fresh segment so a torn tail is never appended to
+        WriteAheadLog log = new WriteAheadLog(dir, service, nextSegment, snapshotEvery);
+        log.fresh = fresh;
+        service.setJournal(log);
+        return log;
+    }
+
+    // True when the directory held no snapshot or log, i.e. this is the first run
+    boolean isFresh() {
+        return fresh;
+    }
+
+    // JOURNAL
+    @Override
+    public long roomAdded(Room room) {
+        synchronized (this) {
+            try {
+                begin(ROOM_ADDED);
+                scratchOut.writeUTF(room.roomNumber);
+                scratchOut.writeUTF(room.type);
+                scratchOut.writeLong(room.priceCents);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return commit();
+        }
+    }
+
+    @Override
+    public long roomRemoved(Room room) {
+        synchronized (this) {
+            try {
+                begin(ROOM_REMOVED);
+                scratchOut.writeUTF(room.roomNumber);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return commit();
+        }
+    }
+
+    @Override
+    public long booked(Reservation res) {
+        synchronized (this) {
+            try {
+                begin(BOOKED);
+                writeReservation(scratchOut, res);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return commit();
+        }
+    }
+
+    @Override
+    public long cancelled(Reservation res) {
+        synchronized (this) {
+            try {
+                begin(CANCELLED);
+                scratchOut.writeUTF(res.bookingId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return commit();
+        }
+    }
+
+    @Override
+    public long archived(Reservation res) {
+        synchronized (this) {
+            try {
+                begin(ARCHIVED);
+                scratchOut.writeUTF(res.bookingId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return commit();
+        }
+    }
+
+    @Override
+    public synchronized void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        while (durableSequence < sequence && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (durableSequence < sequence) {
+            throw new UncheckedIOException("Could not write the booking log", failure);
+        }
+    }
+
+    private void begin(byte type) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The booking log is closed");
+        }
+        if (failure != null) {
+            // The writer has stopped; a record appended now would never reach the disk
+            throw new UncheckedIOException("Could not write the booking log", failure);
+        }
+        scratch.reset();
+        scratchOut.writeByte(type);
+    }
+
+    // Frames the scratch record into the pending batch and wakes the writer
+    private long commit() {
+        crc.reset();
+        crc.update(scratch.array(), 0, scratch.size());
+        pending.writeInt(scratch.size());
+        pending.writeInt((int) crc.getValue());
+        pending.write(scratch.array(), 0, scratch.size());
+        recordsSinceSnapshot++;
+        notifyAll();
+        return ++appendedSequence;
+    }
+
+    // GROUP COMMIT
+    private void writeLoop() {
+        while (true) {
+            RecordBuffer batch;
+            long upTo;
+            FileChannel target;
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Keep draining; close() is the only way to stop the writer
+                    }
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                upTo = appendedSequence;
+                target = channel;
+            }
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(batch.array(), 0, batch.size());
+                while (bytes.hasRemaining()) {
+                    target.write(bytes);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                batch.reset();
+                spare = batch;
+                durableSequence = upTo;
+                notifyAll();
+            }
+        }
+    }
+
+    // Waits for everything appended so far to be on disk, then starts a new segment
+    private synchronized void rotate() throws IOException {
+        awaitDurable(appendedSequence);
+        channel.close();
+        segment++;
+        channel = openSegment(segment);
+    }
+
+    // SNAPSHOTS
+    private void snapshotIfDue() {
+        boolean due;
+        synchronized (this) {
+            due = !closed && recordsSinceSnapshot >= snapshotEvery;
+        }
+        if (due) {
+            try {
+                snapshot();
+            } catch (IOException | UncheckedIOException e) {
+                Log.error("Snapshot failed", e);
+            }
+        }
+    }
+
+    // Captures the state between two segments, writes it out, then drops the segments it covers
+    void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            writeSnapshot();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        List<Room> rooms = new ArrayList<>();
+        List<Reservation> reservations = new ArrayList<>();
+        long[] captured = new long[2];
+        service.runExclusive(() -> {
+            try {
+                rotate();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rooms.addAll(service.repository().rooms());
+            reservations.addAll(service.repository().reservations());
+            synchronized (this) {
+                captured[0] = segment;
+                recordsSinceSnapshot = 0;
+            }
+            captured[1] = service.peekNextBookingId();
+        });
+
+        Path tmp = dir.resolve("snapshot.tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(captured[0]);
+            out.writeLong(captured[1]);
+            out.writeInt(rooms.size());
+            for (Room room : rooms) {
+                out.writeUTF(room.roomNumber);
+                out.writeUTF(room.type);
+                out.writeLong(room.priceCents);
+            }
+            out.writeInt(reservations.size());
+            for (Reservation res : reservations) {
+                writeReservation(out, res);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp, dir.resolve("snapshot.dat"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (long n : segments(dir).headMap(captured[0]).keySet()) {
+            Files.deleteIfExists(segmentPath(dir, n));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        snapshotter.shutdownNow();
+        try {
+            // A scheduled snapshot may still be writing; snapshotLock orders it before ours anyway
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean dirty;
+        synchronized (this) {
+            dirty = recordsSinceSnapshot > 0;
+        }
+        if (dirty) {
+            snapshot();
+        }
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+        }
+    }
+
+    // RECOVERY
+    private static long readSnapshot(Path path, BookingService service) throws IOException {
+        RoomRepository repository = service.repository();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != VERSION_DOUBLE_MONEY) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            long firstSegment = in.readLong();
+            service.ensureNextBookingIdAbove(in.readLong() - 1);
+            int roomCount = in.readInt();
+            for (int i = 0; i < roomCount; i++) {
+                repository.addRoom(new Room(in.readUTF(), in.readUTF(), readMoney(in, version)));
+            }
+            int reservationCount = in.readInt();
+            for (int i = 0; i < reservationCount; i++) {
+                restoreReservation(in, service, version);
+            }
+            return firstSegment;
+        }
+    }
+
+    private static void replaySegment(Path path, BookingService service) throws IOException {
+        RoomRepository repository = service.repository();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != LOG_MAGIC) {
+                throw new IOException("Not a booking log: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION && version != VERSION_DOUBLE_MONEY) {
+                throw new IOException("Unsupported log version " + version + ": " + path);
+            }
+            // Bytes after the header not yet read; a frame claiming more than this is torn
+            long remaining = Files.size(path) - 8;
+            CRC32 crc = new CRC32();
+            byte[] record = new byte[256];
+            RecordInput recordIn = new RecordInput();
+            DataInputStream body = new DataInputStream(recordIn);
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                remaining -= 8;
+                if (length <= 0 || length > MAX_RECORD_LENGTH || length > remaining) {
+                    return;
+                }
+                remaining -= length;
+                if (record.length < length) {
+                    record = new byte[Math.max(length, record.length * 2)];
+                }
+                try {
+                    in.readFully(record, 0, length);
+                } catch (EOFException e) {
+                    return;
+                }
+                crc.reset();
+                crc.update(record, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                recordIn.point(record, length);
+                switch (body.readByte()) {
+                    case ROOM_ADDED:
+                        repository.addRoom(new Room(body.readUTF(), body.readUTF(), readMoney(body, version)));
+                        break;
+                    case ROOM_REMOVED:
+                        repository.removeRoom(body.readUTF());
+                        break;
+                    case BOOKED:
+                        restoreReservation(body, service, version);
+                        break;
+                    case CANCELLED:
+                    case ARCHIVED:
+                        repository.removeReservation(body.readUTF());
+                        break;
+                    default:
+                        throw new IOException("Unknown record type in " + path);
+                }
+            }
+        }
+    }
+
+    private static void writeReservation(DataOutputStream out, Reservation res) throws IOException {
+        out.writeLong(res.id);
+        out.writeUTF(res.customerName);
+        out.writeUTF(res.customerPhone);
+        out.writeUTF(res.room.roomNumber);
+        out.writeUTF(res.room.type);
+        out.writeLong(res.checkIn.toEpochDay());
+        out.writeInt(res.nights);
+        out.writeLong(res.totalCents);
+    }
+
+    private static void restoreReservation(DataInputStream in, BookingService service, int version) throws IOException {
+        long id = in.readLong();
+        String name = in.readUTF();
+        String phone = in.readUTF();
+        String roomNumber = in.readUTF();
+        String type = in.readUTF();
+        LocalDate checkIn = LocalDate.ofEpochDay(in.readLong());
+        int nights = in.readInt();
+        long total = readMoney(in, version);
+        Room room = service.repository().findRoom(roomNumber);
+        if (room == null) {
+            // Past booking of a room that has since been removed
+            room = new Room(roomNumber, type, 0);
+        }
+        service.repository().addReservation(service.repository().newReservation(id, name, phone, room, checkIn, nights, total));
+        service.ensureNextBookingIdAbove(id);
+    }
+
+    private static long readMoney(DataInputStream in, int version) throws IOException {
+        return version == VERSION_DOUBLE_MONEY ? Money.fromDouble(in.readDouble()) : in.readLong();
+    }
+
+    // FILES
+    private FileChannel openSegment(long n) throws IOException {
+        FileChannel ch = FileChannel.open(segmentPath(dir, n),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(LOG_MAGIC).putInt(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            ch.write(header);
+        }
+        ch.force(true);
+        return ch;
+    }
+
+    private static Path segmentPath(Path dir, long n) {
+        return dir.resolve("wal-" + n + ".log");
+    }
+
+    // Segment number -> file, in order
+    private static TreeMap<Long, Path> segments(Path dir) throws IOException {
+        TreeMap<Long, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "wal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    found.put(Long.parseLong(name.substring(4, name.length() - 4)), file);
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return found;
+    }
+
+    // ByteArrayInputStream that can be pointed at the next record, so replay allocates no stream per record
+    private static final class RecordInput extends ByteArrayInputStream {
+        RecordInput() {
+            super(new byte[0]);
+        }
+
+        void point(byte[] bytes, int length) {
+            buf = bytes;
+            pos = 0;
+            mark = 0;
+            count = length;
+        }
+    }
+
+    // ByteArrayOutputStream that exposes its array, so batches are written without copying
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(1 << 12);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        void writeInt(int v) {
+            write(v >>> 24);
+            write(v >>> 16);
+            write(v >>> 8);
+            write(v);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+import benchmarks.HotelFixture;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Benchmark side of HotelFixture. It sits in the default package so it can reach the
+// package-private application classes, and keeps every fixed input (room numbers, dates)
+// precomputed so the benchmarks measure the application rather than string building.
+public class HotelBenchmarkFixture implements HotelFixture {
+    private static final String[] TYPES = {"Single", "Double", "Suite", "Deluxe"};
+    // Stays made by book() start this many days out, clear of the pre-booked nights
+    private static final int FIRST_FREE_NIGHT = 30;
+
+    private BookingService service;
+    private RoomRepository repository;
+    private String[] roomNumbers;
+    private LocalDate[] nights;
+    private long cursor;
+    private long[] booked = new long[1024];
+    private int bookedCount;
+
+    private LocalDate scanFrom;
+    private RoomTableModel roomTableModel;
+    private ReservationTableModel reservationTableModel;
+    private List<Room> roomsSnapshot;
+    private List<Reservation> reservationsSnapshot;
+    private Reservation middleReservation;
+    private final Map<Integer, ForkJoinPool> pools = new HashMap<>();
+
+    public HotelBenchmarkFixture() {
+    }
+
+    @Override
+    public void setUp(int rooms, int bookedPercent) {
+        repository = new RoomRepository();
+        service = new BookingService(repository);
+        LocalDate today = service.today();
+        roomNumbers = new String[rooms];
+        try {
+            for (int i = 0; i < rooms; i++) {
+                roomNumbers[i] = "R" + i;
+                service.addRoom(roomNumbers[i], TYPES[i % TYPES.length], 5000 + (i % 7) * 1000);
+            }
+            scanFrom = today.plusDays(7);
+            for (int i = 0; i < rooms; i++) {
+                if (i % 100 < bookedPercent) {
+                    service.book("Guest " + i, "555-" + i, roomNumbers[i], scanFrom.plusDays(i % 3), 3);
+                }
+            }
+        } catch (BookingException e) {
+            throw new IllegalStateException(e);
+        }
+        int horizon = (int) (repository.availability().lastDay().toEpochDay() - today.toEpochDay());
+        nights = new LocalDate[horizon - FIRST_FREE_NIGHT];
+        for (int i = 0; i < nights.length; i++) {
+            nights[i] = today.plusDays(FIRST_FREE_NIGHT + i);
+        }
+
+        roomTableModel = new RoomTableModel(repository.availability(), service::today);
+        reservationTableModel = new ReservationTableModel();
+        roomsSnapshot = new ArrayList<>(repository.rooms());
+        reservationsSnapshot = new ArrayList<>(repository.reservations());
+        roomTableModel.reload(roomsSnapshot);
+        reservationTableModel.reload(reservationsSnapshot);
+        middleReservation = reservationsSnapshot.isEmpty() ? null : reservationsSnapshot.get(reservationsSnapshot.size() / 2);
+    }
+
+    @Override
+    public int book(int count) {
+        if (booked.length < bookedCount + count) {
+            booked = Arrays.copyOf(booked, Math.max(bookedCount + count, booked.length * 2));
+        }
+        int made = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                // Walks every room for one night, then the next night, so slots are never reused
+                // before cancelBooked() frees them
+                long slot = cursor++;
+                String room = roomNumbers[(int) (slot % roomNumbers.length)];
+                LocalDate night = nights[(int) (slot / roomNumbers.length % nights.length)];
+                booked[bookedCount++] = service.book("Bench Guest", "555-0100", room, night, 1).id;
+                made++;
+            }
+        } catch (BookingException e) {
+            throw new IllegalStateException(e);
+        }
+        return made;
+    }
+
+    @Override
+    public int cancelBooked() {
+        int cancelled = 0;
+        try {
+            for (int i = 0; i < bookedCount; i++) {
+                service.cancel("BK" + booked[i]);
+                cancelled++;
+            }
+        } catch (BookingException e) {
+            throw new IllegalStateException(e);
+        }
+        bookedCount = 0;
+        return cancelled;
+    }
+
+    @Override
+    public int availabilityScan() {
+        return repository.freeRooms("Single", scanFrom, scanFrom.plusDays(3)).size();
+    }
+
+    @Override
+    public int reloadRoomTable() {
+        roomTableModel.reload(roomsSnapshot);
+        return roomTableModel.getRowCount();
+    }
+
+    @Override
+    public int reloadReservationTable() {
+        reservationTableModel.reload(reservationsSnapshot);
+        return reservationTableModel.getRowCount();
+    }
+
+    @Override
+    public int reservationTableAddRemove() {
+        if (middleReservation == null) {
+            return 0;
+        }
+        reservationTableModel.removed(middleReservation);
+        reservationTableModel.added(middleReservation);
+        return reservationTableModel.getRowCount();
+    }
+
+    @Override
+    public long reportSummary() {
+        ReportSummary summary = service.summary();
+        return summary.totalRevenueCents + summary.bookedTonight + summary.byType.size();
+    }
+
+    @Override
+    public long reportDetails() {
+        CountingWriter out = new CountingWriter();
+        try {
+            HotelReservationSystem.writeReportDetails(out, repository.reservations(), progress -> { });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.chars;
+    }
+
+    @Override
+    public long fullReport(int parallelism) {
+        ForkJoinPool pool = pools.computeIfAbsent(parallelism, ForkJoinPool::new);
+        ReportEngine.Result result = new ReportEngine(repository, pool).run(service.today(), ReportEngine.DEFAULT_TOP);
+        return result.revenueCents + result.topCustomers.size();
+    }
+
+    // Discards the report text but counts it, so the writes cannot be optimized away
+    private static final class CountingWriter extends Writer {
+        long chars;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void write(String text) {
+            chars += text.length();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Booking and cancellation throughput. Each invocation books (or cancels) a batch of
+// one-night stays; the other half of the work happens in the per-invocation setup, outside
+// the measurement, so the hotel never fills up.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BookingBenchmark {
+    static final int BATCH = 1000;
+
+    @State(Scope.Benchmark)
+    public static class Hotel {
+        @Param({"1000", "100000", "1000000"})
+        int rooms;
+
+        HotelFixture fixture;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            fixture = HotelFixture.create();
+            fixture.setUp(rooms, 50);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Empty {
+        @Setup(Level.Invocation)
+        public void cancelPrevious(Hotel hotel) {
+            hotel.fixture.cancelBooked();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Booked {
+        @Setup(Level.Invocation)
+        public void bookBatch(Hotel hotel) {
+            hotel.fixture.book(BATCH);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int book(Hotel hotel, Empty empty) {
+        return hotel.fixture.book(BATCH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int cancel(Hotel hotel, Booked booked) {
+        return hotel.fixture.cancelBooked();
+    }
+}
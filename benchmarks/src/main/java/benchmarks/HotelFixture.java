@@ -0,0 +1,44 @@
+package benchmarks;
+
+// The application classes live in the default package, which JMH benchmarks (and any other
+// named package) cannot import. The benchmarks therefore drive them through this interface,
+// implemented by HotelBenchmarkFixture in the default package next to them. The lookup is
+// reflective once per trial; every measured call is a plain interface call.
+public interface HotelFixture {
+    // In-memory hotel with the given number of rooms; bookedPercent of them get a stay
+    // overlapping the nights that availabilityScan asks about
+    void setUp(int rooms, int bookedPercent);
+
+    // Books count one-night stays on rooms and nights nobody else uses, returns bookings made
+    int book(int count);
+
+    // Cancels everything booked through book(), by booking ID
+    int cancelBooked();
+
+    // Free rooms of one type for a three-night stay
+    int availabilityScan();
+
+    // Full reloads of the View Rooms and My Bookings table models
+    int reloadRoomTable();
+
+    int reloadReservationTable();
+
+    // One booking appearing in and leaving My Bookings, as after a booking and a cancellation
+    int reservationTableAddRemove();
+
+    // Report summary and the streamed booking details
+    long reportSummary();
+
+    long reportDetails();
+
+    // Full fork/join report (per-type breakdown, top 10 customers) on a pool of the given size
+    long fullReport(int parallelism);
+
+    static HotelFixture create() {
+        try {
+            return (HotelFixture) Class.forName("HotelBenchmarkFixture").getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("HotelBenchmarkFixture is missing from the benchmark jar", e);
+        }
+    }
+}
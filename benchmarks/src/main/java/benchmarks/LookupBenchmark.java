@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Availability scan, table model refreshes and the report, against a hotel where half the
+// rooms have a stay overlapping the scanned nights
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int rooms;
+
+    HotelFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = HotelFixture.create();
+        fixture.setUp(rooms, 50);
+    }
+
+    @Benchmark
+    public int availabilityScan() {
+        return fixture.availabilityScan();
+    }
+
+    @Benchmark
+    public int roomTableRefresh() {
+        return fixture.reloadRoomTable();
+    }
+
+    @Benchmark
+    public int reservationTableRefresh() {
+        return fixture.reloadReservationTable();
+    }
+
+    @Benchmark
+    public int reservationTableAddRemove() {
+        return fixture.reservationTableAddRemove();
+    }
+
+    @Benchmark
+    public long reportSummary() {
+        return fixture.reportSummary();
+    }
+
+    @Benchmark
+    public long reportDetails() {
+        return fixture.reportDetails();
+    }
+}
@@ -0,0 +1,33 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Fork/join report on pools of 1 to 8 threads. Compare the scores across parallelism for
+// the speedup; beyond the machine's core count the numbers only show scheduling overhead.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+    @Param({"100000", "1000000"})
+    int rooms;
+
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    HotelFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = HotelFixture.create();
+        fixture.setUp(rooms, 100);
+    }
+
+    @Benchmark
+    public long fullReport() {
+        return fixture.fullReport(parallelism);
+    }
+}
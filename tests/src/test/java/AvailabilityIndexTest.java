@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AvailabilityIndexTest {
+    private final LocalDate first = LocalDate.of(2024, 1, 1);
+    private final AvailabilityIndex index = new AvailabilityIndex(first);
+
+    private List<Room> addRooms(String type, int count) {
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Room room = new Room(type + "-" + i, type, 5000);
+            index.addRoom(room);
+            rooms.add(room);
+        }
+        return rooms;
+    }
+
+    @Test
+    void bookedNightsAreNotFree() {
+        Room room = addRooms("Single", 1).get(0);
+        LocalDate checkIn = first.plusDays(10);
+        index.occupy(room, checkIn, checkIn.plusDays(3));
+
+        assertFalse(index.isFree(room, checkIn, checkIn.plusDays(1)));
+        assertFalse(index.isFree(room, checkIn.minusDays(1), checkIn.plusDays(1)));
+        assertFalse(index.isFreeOn(room, checkIn.plusDays(2)));
+        // Check-out day is free for the next guest
+        assertTrue(index.isFree(room, checkIn.plusDays(3), checkIn.plusDays(5)));
+        assertTrue(index.isFree(room, checkIn.minusDays(2), checkIn));
+        assertEquals(1, index.occupiedCount(checkIn.plusDays(1)));
+        assertTrue(index.hasBookingsFrom(room, first));
+
+        index.release(room, checkIn, checkIn.plusDays(3));
+        assertTrue(index.isFree(room, checkIn, checkIn.plusDays(3)));
+        assertEquals(0, index.occupiedCount(checkIn.plusDays(1)));
+        assertFalse(index.hasBookingsFrom(room, first));
+    }
+
+    @Test
+    void freeRoomsOfATypeAcrossWords() {
+        // More than one 64-room word, with another type interleaved
+        List<Room> singles = addRooms("Single", 150);
+        addRooms("Suite", 10);
+        LocalDate checkIn = first.plusDays(5);
+        for (int i = 0; i < singles.size(); i += 3) {
+            index.occupy(singles.get(i), checkIn.plusDays(1), checkIn.plusDays(2));
+        }
+
+        List<Room> free = index.freeRooms("Single", checkIn, checkIn.plusDays(2));
+        assertEquals(100, free.size());
+        for (Room room : free) {
+            assertEquals("Single", room.type);
+            assertTrue(index.isFree(room, checkIn, checkIn.plusDays(2)));
+        }
+        assertEquals(100, index.countFree("Single", checkIn, checkIn.plusDays(2)));
+        assertEquals(150, index.countFree("Single", checkIn, checkIn.plusDays(1)));
+        assertEquals(10, index.countFree("Suite", checkIn, checkIn.plusDays(2)));
+        assertEquals(0, index.countFree("Deluxe", checkIn, checkIn.plusDays(2)));
+    }
+
+    @Test
+    void removedRoomSlotIsReusedClean() {
+        Room old = addRooms("Single", 1).get(0);
+        index.occupy(old, first, first.plusDays(5));
+        index.removeRoom(old);
+        Room added = addRooms("Double", 1).get(0);
+
+        assertTrue(index.isFree(added, first, first.plusDays(5)));
+        assertEquals(0, index.occupiedCount(first));
+        assertEquals(0, index.countFree("Single", first, first.plusDays(1)));
+        assertEquals(1, index.countFree("Double", first, first.plusDays(1)));
+    }
+
+    @Test
+    void horizonBounds() {
+        LocalDate last = index.lastDay();
+        assertEquals(first.plusDays(AvailabilityIndex.HORIZON_DAYS), last);
+        assertTrue(index.inHorizon(first, last));
+        assertFalse(index.inHorizon(first.minusDays(1), first.plusDays(1)));
+        assertFalse(index.inHorizon(last.minusDays(1), last.plusDays(1)));
+    }
+
+    @Test
+    void advancingRecyclesPassedNights() {
+        Room room = addRooms("Single", 1).get(0);
+        // A stay over the move, and one on the last night of the old horizon
+        index.occupy(room, first, first.plusDays(4));
+        LocalDate lastNight = index.lastDay().minusDays(1);
+        index.occupy(room, lastNight, lastNight.plusDays(1));
+
+        index.advanceTo(first.plusDays(2));
+        assertEquals(first.plusDays(2), index.firstDay());
+        assertEquals(first.plusDays(2 + AvailabilityIndex.HORIZON_DAYS), index.lastDay());
+        // Nights still inside the horizon keep their bookings
+        assertFalse(index.isFreeOn(room, first.plusDays(3)));
+        assertFalse(index.isFreeOn(room, lastNight));
+        // The new nights at the far end reuse the slots of the passed ones and start free
+        LocalDate newLast = index.lastDay().minusDays(1);
+        assertTrue(index.isFree(room, lastNight.plusDays(1), newLast.plusDays(1)));
+        assertEquals(0, index.occupiedCount(newLast));
+
+        // Releasing the stay over the move only touches the nights left in the horizon
+        index.release(room, first, first.plusDays(4));
+        assertTrue(index.isFree(room, index.firstDay(), lastNight));
+        assertEquals(1, index.occupiedCount(lastNight));
+    }
+
+    @Test
+    void advancingMoreThanAHorizonClearsEverything() {
+        Room room = addRooms("Single", 1).get(0);
+        index.occupy(room, first.plusDays(100), first.plusDays(110));
+        index.advanceTo(first.plusDays(AvailabilityIndex.HORIZON_DAYS + 50));
+        assertTrue(index.isFree(room, index.firstDay(), index.lastDay()));
+        assertFalse(index.hasBookingsFrom(room, index.firstDay()));
+
+        // Never moves back
+        LocalDate moved = index.firstDay();
+        index.advanceTo(first);
+        assertEquals(moved, index.firstDay());
+    }
+}
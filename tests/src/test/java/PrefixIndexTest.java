@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class PrefixIndexTest {
+    private final PrefixIndex<String> index = new PrefixIndex<>();
+
+    private static Set<String> expected(List<String> keys, String prefix) {
+        Set<String> matches = new HashSet<>();
+        for (String key : keys) {
+            if (key.startsWith(prefix)) {
+                matches.add(key);
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    void findsKeysInTheBufferAndInMergedRuns() {
+        // Enough keys for several sorted runs and merges, plus some left in the buffer
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            keys.add(Integer.toString(i * 7919 % 100000, 36) + "x" + i);
+        }
+        for (String key : keys) {
+            index.add(key, key);
+        }
+        assertEquals(keys.size(), index.size());
+
+        for (String prefix : new String[] {"", "a", "1", "2b", "zz", "1x", keys.get(4999), keys.get(17)}) {
+            assertEquals(expected(keys, prefix), new HashSet<>(index.withPrefix(prefix, Integer.MAX_VALUE)), prefix);
+        }
+    }
+
+    @Test
+    void comparesBeyondTheCodedCharacters() {
+        // Same first 12 characters, so the same code; only startsWith tells them apart
+        index.add("abcdefghijklmnop", "first");
+        index.add("abcdefghijklxyz", "second");
+        index.add("abcdefghijkl", "short");
+
+        assertEquals(3, index.withPrefix("abcdefghijkl", 10).size());
+        assertEquals(1, index.withPrefix("abcdefghijklm", 10).size());
+        assertEquals("second", index.withPrefix("abcdefghijklx", 10).get(0));
+        assertTrue(index.withPrefix("abcdefghijklq", 10).isEmpty());
+    }
+
+    @Test
+    void otherCharactersStillMatchExactly() {
+        // Anything outside digits and letters codes as 0
+        index.add("o'brien", "o'brien");
+        index.add("o brien", "o brien");
+        index.add("obrien", "obrien");
+
+        assertEquals(1, index.withPrefix("o'", 10).size());
+        assertEquals("o'brien", index.withPrefix("o'", 10).get(0));
+        assertEquals(1, index.withPrefix("ob", 10).size());
+        assertEquals(3, index.withPrefix("o", 10).size());
+    }
+
+    @Test
+    void stopsAtTheLimit() {
+        for (int i = 0; i < 3000; i++) {
+            index.add("smith" + i, "smith" + i);
+        }
+        assertEquals(25, index.withPrefix("smith", 25).size());
+        assertEquals(3000, index.withPrefix("smith", 5000).size());
+        assertEquals(0, index.withPrefix("smith", 0).size());
+    }
+}
@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PricingRulesTest {
+    private static final LocalDate FIRST = LocalDate.of(2024, 1, 1);
+    // Fridays and Saturdays of the first January weekend
+    private static final LocalDate FRIDAY = LocalDate.of(2024, 1, 5);
+    private static final LocalDate MONDAY = LocalDate.of(2024, 1, 8);
+
+    private final RateEngine rates = new RateEngine(FIRST);
+    private final Room single = new Room("101", "Single", 10000);
+
+    private void rules(String... lines) {
+        rates.setRules(PricingRules.parse(Arrays.asList(lines)));
+    }
+
+    @Test
+    void parsesAndFormatsEveryRule() {
+        List<String> lines = Arrays.asList("# weekend and summer", "", "season 06-15 08-31 +20%",
+            "days fri,Sat +15", "surge 80% +10%", "stay 7 -10.5%");
+        List<PricingRule> rules = PricingRules.parse(lines);
+        assertEquals(4, rules.size());
+        assertEquals(Arrays.asList("season 06-15 08-31 +20%", "days FRI,SAT +15%", "surge 80% +10%", "stay 7 -10.5%"),
+            PricingRules.format(rules));
+        assertEquals(PricingRules.format(rules), PricingRules.format(PricingRules.parse(PricingRules.format(rules))));
+    }
+
+    @Test
+    void namesTheBadLine() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> PricingRules.parse(Arrays.asList("days SAT +10%", "stay seven -10%")));
+        assertTrue(e.getMessage().startsWith("Line 2: "), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> PricingRules.parse(Arrays.asList("discount 10%")));
+        assertThrows(IllegalArgumentException.class, () -> PricingRules.parse(Arrays.asList("surge 150% +10%")));
+        assertThrows(IllegalArgumentException.class, () -> PricingRules.parse(Arrays.asList("days FRI -150%")));
+        assertThrows(IllegalArgumentException.class, () -> PricingRules.parse(Arrays.asList("season 13-01 14-01 +5%")));
+        assertThrows(IllegalArgumentException.class, () -> PricingRules.parse(Arrays.asList("days XY +5%")));
+    }
+
+    @Test
+    void noRulesMeansTheBasePrice() {
+        rates.roomAdded(single);
+        assertEquals(30000, rates.quote(single, FRIDAY, 3));
+        assertEquals(10000, rates.nightlyRate(single, FRIDAY));
+    }
+
+    @Test
+    void weekdayAndSeasonFactorsMultiply() {
+        rates.roomAdded(single);
+        rules("days FRI,SAT +15%", "season 06-15 08-31 +20%");
+        // Thursday, Friday, Saturday, Sunday
+        assertEquals(10000 + 11500 + 11500 + 10000, rates.quote(single, FRIDAY.minusDays(1), 4));
+        // Saturday June 15th: 1.20 x 1.15
+        assertEquals(13800, rates.nightlyRate(single, LocalDate.of(2024, 6, 15)));
+        assertEquals(10000, rates.nightlyRate(single, LocalDate.of(2024, 9, 2)));
+    }
+
+    @Test
+    void seasonsMayWrapTheNewYear() {
+        rates.roomAdded(single);
+        rules("season 12-20 01-10 +50%");
+        assertEquals(15000, rates.nightlyRate(single, LocalDate.of(2024, 12, 31)));
+        assertEquals(15000, rates.nightlyRate(single, LocalDate.of(2024, 1, 10)));
+        assertEquals(10000, rates.nightlyRate(single, LocalDate.of(2024, 1, 11)));
+        assertEquals(10000, rates.nightlyRate(single, LocalDate.of(2024, 12, 19)));
+    }
+
+    @Test
+    void stayFactorAppliesToTheSumOfRoundedNights() {
+        Room cheap = new Room("102", "Single", 999);
+        rates.roomAdded(cheap);
+        rules("days FRI,SAT +15%", "stay 7 -10%");
+        // 999 x 1.15 = 1148.85 is rounded per night before summing
+        assertEquals(1149 * 2, rates.quote(cheap, FRIDAY, 2));
+        // A week from Monday: five plain nights and a weekend, then 10% off the whole stay
+        long week = 5 * 999 + 2 * 1149;
+        assertEquals((week * 9000 + 5000) / 10000, rates.quote(cheap, MONDAY, 7));
+        // Six nights are not discounted
+        assertEquals(4 * 999 + 2 * 1149, rates.quote(cheap, MONDAY, 6));
+    }
+
+    @Test
+    void surgeFollowsBookings() {
+        Room other = new Room("103", "Single", 10000);
+        rates.roomAdded(single);
+        rates.roomAdded(other);
+        rules("surge 50% +10%");
+        // The table is built before the booking and updated by it
+        assertEquals(10000, rates.nightlyRate(single, FRIDAY));
+        rates.nightsBooked(other, FRIDAY, FRIDAY.plusDays(1));
+        assertEquals(11000, rates.nightlyRate(single, FRIDAY));
+        assertEquals(10000, rates.nightlyRate(single, FRIDAY.plusDays(1)));
+        rates.nightsReleased(other, FRIDAY, FRIDAY.plusDays(1));
+        assertEquals(10000, rates.nightlyRate(single, FRIDAY));
+
+        // New rules start from the current counts
+        rates.nightsBooked(other, FRIDAY, FRIDAY.plusDays(1));
+        rules("surge 50% +20%");
+        assertEquals(12000, rates.nightlyRate(single, FRIDAY));
+        // Another room of the type brings occupancy below the threshold
+        rates.roomAdded(new Room("104", "Single", 10000));
+        assertEquals(10000, rates.nightlyRate(single, FRIDAY));
+    }
+
+    @Test
+    void advancingDropsPassedNightsFromTheCounts() {
+        rates.roomAdded(single);
+        rules("surge 100% +10%");
+        LocalDate second = FIRST.plusDays(1);
+        rates.nightsBooked(single, second, second.plusDays(2));
+        assertEquals(11000, rates.nightlyRate(single, second));
+
+        rates.advanceTo(FIRST.plusDays(2));
+        // The night kept in the passed night's slot starts unbooked
+        assertEquals(10000, rates.nightlyRate(single, second.plusDays(AvailabilityIndex.HORIZON_DAYS)));
+        assertEquals(11000, rates.nightlyRate(single, FIRST.plusDays(2)));
+        // Nights outside the horizon are priced without occupancy
+        assertEquals(10000, rates.nightlyRate(single, FIRST.plusDays(5 + AvailabilityIndex.HORIZON_DAYS)));
+    }
+}
@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReservationArchiveTest {
+    // Three records and 64 bytes of strings per segment, so a few bookings span many segments
+    private static final long RECORDS_PER_SEGMENT = 3;
+    private static final long STRING_SEGMENT_BYTES = 64;
+
+    @TempDir
+    Path dir;
+
+    private final RoomRepository repository = new RoomRepository();
+    private final LocalDate checkIn = LocalDate.of(2024, 3, 1);
+
+    private List<Reservation> reservations(int count) {
+        Room single = new Room("101", "Single", 5000);
+        Room suite = new Room("201", "Suite", 25000);
+        List<Reservation> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Names of varying length, so string entries are padded at segment ends
+            String name = "Guest " + i + " " + "xxxxxxxxxxxxxxxxxxxx".substring(0, i % 20);
+            batch.add(repository.newReservation(i + 1, name, "555-01" + i, i % 2 == 0 ? single : suite,
+                checkIn.plusDays(i), 1 + i % 4, 1000L * (i + 1)));
+        }
+        return batch;
+    }
+
+    private static void assertRecords(ReservationArchive archive, List<Reservation> expected) {
+        assertEquals(expected.size(), archive.size());
+        long total = 0;
+        // Last to first, so higher segments are mapped before lower ones
+        for (int i = expected.size() - 1; i >= 0; i--) {
+            Reservation res = expected.get(i);
+            assertEquals(res.id, archive.bookingId(i));
+            assertEquals(res.room.roomNumber, archive.roomNumber(i));
+            assertEquals(res.room.type, archive.roomType(i));
+            assertEquals(res.nights, archive.nights(i));
+            assertEquals(res.checkIn, archive.checkIn(i));
+            assertEquals(res.checkOut, archive.checkOut(i));
+            assertEquals(res.totalCents, archive.costCents(i));
+            assertEquals(res.customerName, archive.customerName(i));
+            assertEquals(res.customerPhone, archive.customerPhone(i));
+            total += res.totalCents;
+        }
+        assertEquals(total, archive.totalCostCents());
+    }
+
+    @Test
+    void readsRecordsAcrossSegments() throws Exception {
+        List<Reservation> batch = reservations(20);
+        try (ReservationArchive archive = ReservationArchive.open(dir, RECORDS_PER_SEGMENT, STRING_SEGMENT_BYTES)) {
+            archive.append(batch.subList(0, 7));
+            assertRecords(archive, batch.subList(0, 7));
+            // Grows the last mapped segments of both files
+            archive.append(batch.subList(7, 20));
+            assertRecords(archive, batch);
+        }
+        try (ReservationArchive archive = ReservationArchive.open(dir, RECORDS_PER_SEGMENT, STRING_SEGMENT_BYTES)) {
+            assertRecords(archive, batch);
+        }
+    }
+
+    @Test
+    void mapsASegmentAboveUnmappedOnes() throws Exception {
+        List<Reservation> batch = reservations(10);
+        try (ReservationArchive archive = ReservationArchive.open(dir, RECORDS_PER_SEGMENT, STRING_SEGMENT_BYTES)) {
+            archive.append(batch);
+        }
+        try (ReservationArchive archive = ReservationArchive.open(dir, RECORDS_PER_SEGMENT, STRING_SEGMENT_BYTES)) {
+            // Segment 3 first leaves segments 0-2 unmapped
+            assertEquals(batch.get(9).id, archive.bookingId(9));
+            assertEquals(batch.get(9).customerName, archive.customerName(9));
+            assertEquals(batch.get(0).id, archive.bookingId(0));
+            assertEquals(batch.get(0).customerName, archive.customerName(0));
+        }
+    }
+
+    @Test
+    void uncommittedRecordsAreNotVisible() throws Exception {
+        List<Reservation> batch = reservations(5);
+        try (ReservationArchive archive = ReservationArchive.open(dir, RECORDS_PER_SEGMENT, STRING_SEGMENT_BYTES)) {
+            archive.append(batch.subList(0, 2));
+            archive.writePending(batch.subList(2, 5));
+            assertEquals(2, archive.size());
+            assertThrows(IndexOutOfBoundsException.class, () -> archive.bookingId(2));
+            archive.commitPending();
+            assertRecords(archive, batch);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+    // 1 ms ticks: level 1 starts at 64 ms, level 2 at about 4.1 s
+    private final TimerWheel wheel = new TimerWheel(1, TimeUnit.MILLISECONDS);
+
+    private static final class Recorder extends TimerWheel.Timer {
+        final long scheduledAt = System.nanoTime();
+        final CountDownLatch fired = new CountDownLatch(1);
+        volatile long firedAfterMillis = -1;
+
+        @Override
+        void expire() {
+            firedAfterMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduledAt);
+            fired.countDown();
+        }
+    }
+
+    @Test
+    void timersFireAfterTheirDelayOnEveryLevel() throws InterruptedException {
+        long[] delays = {5, 40, 100, 700, 4500};
+        Recorder[] timers = new Recorder[delays.length];
+        for (int i = 0; i < delays.length; i++) {
+            timers[i] = new Recorder();
+            wheel.schedule(timers[i], delays[i], TimeUnit.MILLISECONDS);
+        }
+        assertEquals(delays.length, wheel.size());
+        for (int i = 0; i < delays.length; i++) {
+            assertTrue(timers[i].fired.await(delays[i] + 5000, TimeUnit.MILLISECONDS), "timer " + delays[i] + " ms");
+            // Cascaded timers must not come early
+            assertTrue(timers[i].firedAfterMillis >= delays[i], delays[i] + " ms fired after " + timers[i].firedAfterMillis);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void reschedulingMovesTheTimer() throws InterruptedException {
+        Recorder timer = new Recorder();
+        wheel.schedule(timer, 1, TimeUnit.HOURS);
+        wheel.schedule(timer, 2, TimeUnit.HOURS);
+        assertEquals(1, wheel.size());
+        wheel.schedule(timer, 20, TimeUnit.MILLISECONDS);
+        assertEquals(1, wheel.size());
+        assertTrue(timer.fired.await(5, TimeUnit.SECONDS));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledTimersDoNotFire() throws InterruptedException {
+        Recorder cancelled = new Recorder();
+        Recorder kept = new Recorder();
+        wheel.schedule(cancelled, 30, TimeUnit.MILLISECONDS);
+        wheel.schedule(kept, 80, TimeUnit.MILLISECONDS);
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(1, wheel.size());
+
+        assertTrue(kept.fired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, cancelled.fired.getCount());
+        assertFalse(wheel.cancel(kept));
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,137 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WriteAheadLogTest {
+    @TempDir
+    Path dir;
+
+    private final LocalDate checkIn = LocalDate.now().plusDays(3);
+
+    // A log that is never closed stands for a crash: only the fsynced segments are left
+    private static BookingService open(Path dir) throws IOException {
+        BookingService service = new BookingService(new RoomRepository());
+        WriteAheadLog.open(dir, service, Long.MAX_VALUE);
+        return service;
+    }
+
+    @Test
+    void replaysTheLogAfterACrash() throws Exception {
+        BookingService before = open(dir);
+        before.addRoom("101", "Single", 5000);
+        before.addRoom("102", "Double", 8000);
+        Reservation kept = before.book("Ada Lovelace", "555-0100", "101", checkIn, 2);
+        Reservation cancelled = before.book("Alan Turing", "555-0101", "102", checkIn, 1);
+        before.cancel(cancelled.bookingId);
+        before.removeRoom("102");
+
+        BookingService after = open(dir);
+        RoomRepository repository = after.repository();
+        assertEquals(1, repository.roomCount());
+        assertNull(repository.findRoom("102"));
+        assertEquals(1, repository.reservationCount());
+        Reservation restored = repository.findReservation(kept.bookingId);
+        assertNotNull(restored);
+        assertEquals("Ada Lovelace", restored.customerName);
+        assertEquals(checkIn, restored.checkIn);
+        assertEquals(kept.totalCents, restored.totalCents);
+        assertEquals(false, repository.isFree(restored.room, checkIn, checkIn.plusDays(2)));
+        // New bookings continue after the highest restored ID
+        Reservation next = after.book("Grace Hopper", "555-0102", "101", checkIn.plusDays(5), 1);
+        assertEquals(cancelled.id + 1, next.id);
+    }
+
+    @Test
+    void restoresFromTheSnapshotWrittenOnClose() throws Exception {
+        BookingService before = new BookingService(new RoomRepository());
+        WriteAheadLog log = WriteAheadLog.open(dir, before, Long.MAX_VALUE);
+        before.addRoom("101", "Single", 5000);
+        Reservation booked = before.book("Ada Lovelace", "555-0100", "101", checkIn, 2);
+        log.close();
+
+        BookingService after = open(dir);
+        assertEquals(1, after.repository().roomCount());
+        assertNotNull(after.repository().findReservation(booked.bookingId));
+    }
+
+    @Test
+    void dropsATornTail() throws Exception {
+        BookingService before = open(dir);
+        before.addRoom("101", "Single", 5000);
+        Reservation booked = before.book("Ada Lovelace", "555-0100", "101", checkIn, 2);
+        // Half a frame header, as left by a crash in the middle of a write
+        append(lastSegment(), new byte[] {0, 0});
+
+        BookingService after = open(dir);
+        assertEquals(1, after.repository().reservationCount());
+        assertNotNull(after.repository().findReservation(booked.bookingId));
+        // The next run logs to a fresh segment, so its records are not lost behind the torn one
+        Reservation later = after.book("Alan Turing", "555-0101", "101", checkIn.plusDays(5), 1);
+
+        BookingService third = open(dir);
+        assertEquals(2, third.repository().reservationCount());
+        assertNotNull(third.repository().findReservation(later.bookingId));
+    }
+
+    @Test
+    void stopsAtAFrameClaimingMoreThanIsLeft() throws Exception {
+        BookingService before = open(dir);
+        before.addRoom("101", "Single", 5000);
+        // A length far beyond the file must not be allocated
+        append(lastSegment(), ByteBuffer.allocate(12).putInt(Integer.MAX_VALUE - 8).putInt(0).putInt(0).array());
+
+        BookingService after = open(dir);
+        assertEquals(1, after.repository().roomCount());
+        assertEquals(0, after.repository().reservationCount());
+    }
+
+    @Test
+    void stopsAtACorruptRecord() throws Exception {
+        BookingService before = open(dir);
+        before.addRoom("101", "Single", 5000);
+        Path segment = lastSegment();
+        long goodEnd = Files.size(segment);
+        before.addRoom("102", "Single", 5000);
+        before.addRoom("103", "Single", 5000);
+        // Flip a byte in the payload of the second record; it and everything after it is dropped
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, goodEnd + 9);
+            one.put(0, (byte) (one.get(0) ^ 0x55));
+            one.rewind();
+            channel.write(one, goodEnd + 9);
+        }
+
+        BookingService after = open(dir);
+        assertEquals(1, after.repository().roomCount());
+        assertNotNull(after.repository().findRoom("101"));
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith("wal-"))
+                .max((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                .orElseThrow(IllegalStateException::new);
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(4, name.length() - 4));
+    }
+
+    private static void append(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes, StandardOpenOption.APPEND);
+    }
+}